@@ -64,7 +64,10 @@ import org.apache.log4j.Logger;
 public abstract class ETApiObject extends ETObject {
     private static Logger logger = Logger.getLogger(ETApiObject.class);
 
-    private Map<String, Boolean> isModified = new HashMap<String, Boolean>();
+    // allocated on first use, as most objects never have
+    // a property marked (data extension rows, e.g., are
+    // retrieved in large numbers):
+    private Map<String, Boolean> isModified = null;
 
     public abstract String getId();
     public abstract void setId(String id);
@@ -74,17 +77,31 @@ public abstract class ETApiObject extends ETObject {
     //public abstract void refresh();
 
     public Boolean getModified(String property) {
-        logger.trace("isModified[" + property + "] = " + isModified.get(property));
-        return isModified.get(property);
+        Boolean value = null;
+        if (isModified != null) {
+            value = isModified.get(property);
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("isModified[" + property + "] = " + value);
+        }
+        return value;
     }
 
     public Boolean setModified(String property, Boolean value) {
-        logger.trace("isModified[" + property + "] = " + value);
+        if (logger.isTraceEnabled()) {
+            logger.trace("isModified[" + property + "] = " + value);
+        }
+        if (isModified == null) {
+            isModified = new HashMap<String, Boolean>();
+        }
         return isModified.put(property, value);
     }
 
     public List<String> getAllModified() {
         List<String> modified = new ArrayList<String>();
+        if (isModified == null) {
+            return modified;
+        }
         for (Map.Entry<String, Boolean> entry : isModified.entrySet()) {
             if (entry.getValue() == true) {
                 modified.add(entry.getKey());
@@ -0,0 +1,192 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+/**
+ * An <code>ETAsyncOptions</code> object holds the options for
+ * writes queued for asynchronous processing on the server
+ * (see <code>ETClient.queueCreate</code> and
+ * <code>ETClient.queueUpdate</code>).
+ */
+
+public class ETAsyncOptions extends ETObject {
+    public enum Priority {
+        LOW("Low"),
+        MEDIUM("Medium"),
+        HIGH("High");
+        private final String value;
+
+        Priority(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public static Priority fromValue(String value) {
+            for (Priority v : Priority.values()) {
+                if (v.value.equals(value)) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException(value);
+        }
+    }
+
+    public enum ResponseType {
+        NONE("None"),
+        EMAIL("email"),
+        FTP("FTP"),
+        HTTP_POST("HTTPPost");
+        private final String value;
+
+        ResponseType(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public static ResponseType fromValue(String value) {
+            for (ResponseType v : ResponseType.values()) {
+                if (v.value.equals(value)) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException(value);
+        }
+    }
+
+    public enum RespondWhen {
+        NEVER("Never"),
+        ON_ERROR("OnError"),
+        ALWAYS("Always"),
+        ON_CONVERSATION_ERROR("OnConversationError"),
+        ON_CONVERSATION_COMPLETE("OnConversationComplete"),
+        ON_CALL_COMPLETE("OnCallComplete");
+        private final String value;
+
+        RespondWhen(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public static RespondWhen fromValue(String value) {
+            for (RespondWhen v : RespondWhen.values()) {
+                if (v.value.equals(value)) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException(value);
+        }
+    }
+
+    private Priority priority = null;
+    private String conversationId = null;
+    private ResponseType responseType = null;
+    private String responseAddress = null;
+    private RespondWhen respondWhen = null;
+    private Boolean includeResults = null;
+    private Boolean includeObjects = null;
+
+    public ETAsyncOptions() {}
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public ResponseType getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * Sets how (in addition to the results being available
+     * for polling) the server reports the outcome of the
+     * request, e.g., by email or by HTTP POST to
+     * <code>responseAddress</code>.
+     */
+    public void setResponseType(ResponseType responseType) {
+        this.responseType = responseType;
+    }
+
+    public String getResponseAddress() {
+        return responseAddress;
+    }
+
+    public void setResponseAddress(String responseAddress) {
+        this.responseAddress = responseAddress;
+    }
+
+    public RespondWhen getRespondWhen() {
+        return respondWhen;
+    }
+
+    public void setRespondWhen(RespondWhen respondWhen) {
+        this.respondWhen = respondWhen;
+    }
+
+    public Boolean getIncludeResults() {
+        return includeResults;
+    }
+
+    public void setIncludeResults(Boolean includeResults) {
+        this.includeResults = includeResults;
+    }
+
+    public Boolean getIncludeObjects() {
+        return includeObjects;
+    }
+
+    public void setIncludeObjects(Boolean includeObjects) {
+        this.includeObjects = includeObjects;
+    }
+}
@@ -0,0 +1,222 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * An <code>ETAsyncWrite</code> is the handle to a create or update
+ * queued for asynchronous processing on the server. It holds one
+ * future per object (in the order the objects were passed), which
+ * an <code>ETAsyncWriteTracker</code> completes as it polls for
+ * their results.
+ */
+
+public class ETAsyncWrite<T extends ETSoapObject> {
+    private final String requestId;
+    private final List<T> objects;
+    private final List<CompletableFuture<ETResult<T>>> futures;
+    private final CompletableFuture<ETResponse<T>> response =
+            new CompletableFuture<ETResponse<T>>();
+    private final long submittedTime = System.currentTimeMillis();
+    private int pending = 0;
+
+    // set once the server reports the request as a whole done:
+    private ETAsyncRequestResult requestResult = null;
+
+    ETAsyncWrite(String requestId, List<T> objects) {
+        this.requestId = requestId;
+        this.objects = Collections.unmodifiableList(new ArrayList<T>(objects));
+        futures = new ArrayList<CompletableFuture<ETResult<T>>>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            CompletableFuture<ETResult<T>> future = new CompletableFuture<ETResult<T>>();
+            future.whenComplete(new BiConsumer<ETResult<T>, Throwable>() {
+                public void accept(ETResult<T> result, Throwable throwable) {
+                    objectCompleted();
+                }
+            });
+            futures.add(future);
+        }
+        pending = objects.size();
+        if (pending == 0) {
+            response.complete(toResponse());
+        }
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public List<T> getObjects() {
+        return objects;
+    }
+
+    /**
+     * Returns the future for the object at the specified
+     * position in the list of objects passed to the write.
+     */
+    public CompletableFuture<ETResult<T>> getFuture(int index) {
+        return futures.get(index);
+    }
+
+    public List<CompletableFuture<ETResult<T>>> getFutures() {
+        return Collections.unmodifiableList(futures);
+    }
+
+    /**
+     * Returns a future that is completed (with the results of
+     * all objects, in order) once every object is complete.
+     */
+    public CompletableFuture<ETResponse<T>> getResponse() {
+        return response;
+    }
+
+    public synchronized boolean isDone() {
+        return pending == 0;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    long getSubmittedTime() {
+        return submittedTime;
+    }
+
+    synchronized ETAsyncRequestResult getRequestResult() {
+        return requestResult;
+    }
+
+    synchronized void setRequestResult(ETAsyncRequestResult requestResult) {
+        this.requestResult = requestResult;
+    }
+
+    //
+    // Completes the object at the specified ordinal from its
+    // result item (ordinals outside the list are ignored):
+    //
+
+    void complete(ETResultItem item) {
+        Integer ordinal = item.getOrdinalId();
+        if (ordinal == null || ordinal < 0 || ordinal >= futures.size()) {
+            return;
+        }
+        ETResult<T> result = new ETResult<T>();
+        result.setRequestId(requestId);
+        if ("OK".equals(item.getStatusCode())) {
+            result.setStatus(ETResult.Status.OK);
+            result.setObject(objects.get(ordinal));
+        } else {
+            result.setStatus(ETResult.Status.ERROR);
+        }
+        result.setResponseCode(item.getStatusCode());
+        result.setResponseMessage(item.getStatusMessage());
+        result.setErrorCode(item.getErrorCode());
+        futures.get(ordinal).complete(result);
+    }
+
+    //
+    // Completes all objects that have not been completed
+    // individually with the same result:
+    //
+
+    void completeRemaining(ETResult.Status status, String code, String message) {
+        for (int i = 0; i < futures.size(); i++) {
+            ETResult<T> result = new ETResult<T>();
+            result.setRequestId(requestId);
+            result.setStatus(status);
+            result.setResponseCode(code);
+            result.setResponseMessage(message);
+            if (status == ETResult.Status.OK) {
+                result.setObject(objects.get(i));
+            }
+            futures.get(i).complete(result);
+        }
+    }
+
+    void completeRemainingExceptionally(Throwable throwable) {
+        for (CompletableFuture<ETResult<T>> future : futures) {
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    private void objectCompleted() {
+        boolean done = false;
+        synchronized (this) {
+            pending--;
+            done = (pending == 0);
+        }
+        if (done) {
+            response.complete(toResponse());
+        }
+    }
+
+    private ETResponse<T> toResponse() {
+        ETResponse<T> r = new ETResponse<T>();
+        r.setRequestId(requestId);
+        ETResult.Status status = ETResult.Status.OK;
+        for (CompletableFuture<ETResult<T>> future : futures) {
+            ETResult<T> result = null;
+            if (!future.isCompletedExceptionally()) {
+                result = future.getNow(null);
+            }
+            if (result == null) {
+                result = new ETResult<T>();
+                result.setRequestId(requestId);
+                result.setStatus(ETResult.Status.ERROR);
+                result.setResponseCode("Error");
+            }
+            if (result.getStatus() != ETResult.Status.OK) {
+                status = ETResult.Status.ERROR;
+            }
+            r.addResult(result);
+        }
+        r.setStatus(status);
+        r.setResponseCode(status == ETResult.Status.OK ? "OK" : "Has Errors");
+        r.setResponseMessage(r.getResponseCode());
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        return "ETAsyncWrite[requestId=" + requestId
+                + ", objects=" + objects.size()
+                + ", pending=" + getPendingCount() + "]";
+    }
+}
@@ -0,0 +1,389 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETAsyncWriteTracker</code> tracks the writes an
+ * <code>ETClient</code> has queued for asynchronous processing
+ * on the server. A single background thread periodically
+ * retrieves the <code>ResultItem</code>s of up to
+ * <code>maxRequestsPerPoll</code> outstanding requests in one
+ * call, completing the future of each object as its result
+ * item shows up. Objects that never get a result item are
+ * completed from the request's <code>AsyncRequestResult</code>
+ * once the request as a whole is done.
+ */
+
+public class ETAsyncWriteTracker {
+    private static Logger logger = Logger.getLogger(ETAsyncWriteTracker.class);
+
+    public static final long DEFAULT_POLL_INTERVAL = 10000;
+    public static final int DEFAULT_MAX_REQUESTS_PER_POLL = 50;
+
+    private ETClient client = null;
+
+    private Map<String, ETAsyncWrite<?>> writes =
+            new LinkedHashMap<String, ETAsyncWrite<?>>();
+
+    private long pollInterval = DEFAULT_POLL_INTERVAL;
+    private int maxRequestsPerPoll = DEFAULT_MAX_REQUESTS_PER_POLL;
+    private long timeout = 0;
+
+    private ScheduledExecutorService executor = null;
+
+    public ETAsyncWriteTracker(ETClient client) {
+        this.client = client;
+    }
+
+    public synchronized long getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * Sets the time (in milliseconds) between polls. Takes
+     * effect the next time the poller is started.
+     */
+    public synchronized void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public synchronized int getMaxRequestsPerPoll() {
+        return maxRequestsPerPoll;
+    }
+
+    public synchronized void setMaxRequestsPerPoll(int maxRequestsPerPoll) {
+        this.maxRequestsPerPoll = maxRequestsPerPoll;
+    }
+
+    public synchronized long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the time (in milliseconds) after which the objects of
+     * a write that are still outstanding are completed
+     * exceptionally. Zero (the default) means never.
+     */
+    public synchronized void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized int getPendingRequestCount() {
+        return writes.size();
+    }
+
+    public synchronized void track(ETAsyncWrite<?> write) {
+        if (write.isDone()) {
+            return;
+        }
+        writes.put(write.getRequestId(), write);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ETAsyncWriteTracker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        poll();
+                    } catch (Throwable t) {
+                        // don't let an exception stop the poller
+                        logger.warn("error polling asynchronous requests", t);
+                    }
+                }
+            }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+            logger.debug("started polling asynchronous requests every "
+                    + pollInterval + " ms");
+        }
+    }
+
+    /**
+     * Stops the poller. Writes still being tracked are
+     * completed exceptionally.
+     */
+    public void shutdown() {
+        List<ETAsyncWrite<?>> remaining = null;
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            remaining = new ArrayList<ETAsyncWrite<?>>(writes.values());
+            writes.clear();
+        }
+        for (ETAsyncWrite<?> write : remaining) {
+            write.completeRemainingExceptionally(new ETSdkException("tracker shut down "
+                    + "before request " + write.getRequestId() + " completed"));
+        }
+    }
+
+    /**
+     * Polls the server for the results of up to
+     * <code>maxRequestsPerPoll</code> outstanding requests
+     * (called periodically by the background thread).
+     */
+    public void poll()
+        throws ETSdkException
+    {
+        List<ETAsyncWrite<?>> batch = new ArrayList<ETAsyncWrite<?>>();
+        long timeout = 0;
+        synchronized (this) {
+            timeout = this.timeout;
+            for (ETAsyncWrite<?> write : writes.values()) {
+                if (batch.size() == maxRequestsPerPoll) {
+                    break;
+                }
+                batch.add(write);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        logger.trace("polling " + batch.size() + " asynchronous requests");
+
+        //
+        // The requests already seen finished (by an earlier poll);
+        // whatever of them isn't completed by their result items
+        // below can be completed from the request result, as their
+        // result items were all written before this poll:
+        //
+
+        Map<ETAsyncWrite<?>, ETAsyncRequestResult> finished =
+                new HashMap<ETAsyncWrite<?>, ETAsyncRequestResult>();
+        for (ETAsyncWrite<?> write : batch) {
+            if (write.getRequestResult() != null) {
+                finished.put(write, write.getRequestResult());
+            }
+        }
+
+        //
+        // Retrieve the result items of all requests in the batch:
+        //
+
+        final Map<String, ETAsyncWrite<?>> byRequestId =
+                new LinkedHashMap<String, ETAsyncWrite<?>>();
+        for (ETAsyncWrite<?> write : batch) {
+            byRequestId.put(write.getRequestId(), write);
+        }
+
+        // (continued, so no result items past the first page are missed)
+        ETSoapObject.retrieve(client,
+                              ETResultItem.class,
+                              toRequestIdFilter("requestId", batch),
+                              new ETObjectHandler<ETResultItem>() {
+            public void handleObject(ETResultItem item) {
+                ETAsyncWrite<?> write = byRequestId.get(item.getRequestId());
+                if (write != null) {
+                    write.complete(item);
+                }
+            }
+        });
+
+        //
+        // Look for requests that have finished since; they're
+        // completed by the next poll, after another look at
+        // their result items:
+        //
+
+        List<ETAsyncWrite<?>> unresolved = new ArrayList<ETAsyncWrite<?>>();
+        for (ETAsyncWrite<?> write : batch) {
+            if (!write.isDone() && write.getRequestResult() == null) {
+                unresolved.add(write);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            retrieveRequestResults(unresolved);
+        }
+
+        long now = System.currentTimeMillis();
+        for (ETAsyncWrite<?> write : batch) {
+            if (write.isDone()) {
+                continue;
+            }
+            ETAsyncRequestResult requestResult = finished.get(write);
+            if (requestResult != null) {
+                write.completeRemaining(getStatus(requestResult),
+                                        requestResult.getCallStatus(),
+                                        requestResult.getCallMessage());
+                continue;
+            }
+            if (write.getRequestResult() != null) {
+                continue;
+            }
+            if (timeout > 0 && now - write.getSubmittedTime() > timeout) {
+                write.completeRemainingExceptionally(new ETSdkException("request "
+                        + write.getRequestId() + " timed out"));
+            }
+        }
+
+        //
+        // Drop completed writes and move the rest of the batch
+        // to the back, so every request gets polled in turn:
+        //
+
+        synchronized (this) {
+            for (ETAsyncWrite<?> write : batch) {
+                writes.remove(write.getRequestId());
+                if (!write.isDone()) {
+                    writes.put(write.getRequestId(), write);
+                }
+            }
+        }
+    }
+
+    //
+    // AsyncRequestResult objects don't carry the ID of their
+    // request, so the results of a RequestID IN (...) retrieve
+    // can't be matched to the requests one by one. They don't
+    // need to be when none of the requests has finished yet or
+    // all of them finished the same way, which is the usual
+    // case, so that's one retrieve for all of them; otherwise
+    // the requests are split in two and each half retrieved
+    // again, down to single requests:
+    //
+
+    private void retrieveRequestResults(List<ETAsyncWrite<?>> writes)
+        throws ETSdkException
+    {
+        final List<ETAsyncRequestResult> results = new ArrayList<ETAsyncRequestResult>();
+        ETSoapObject.retrieve(client,
+                              ETAsyncRequestResult.class,
+                              toRequestIdFilter("RequestID", writes),
+                              new ETObjectHandler<ETAsyncRequestResult>() {
+            public void handleObject(ETAsyncRequestResult result) {
+                results.add(result);
+            }
+        });
+
+        List<ETAsyncRequestResult> finished = new ArrayList<ETAsyncRequestResult>();
+        for (ETAsyncRequestResult result : results) {
+            if (isFinished(result)) {
+                finished.add(result);
+            }
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        if (writes.size() == 1 || (finished.size() == writes.size()
+                && results.size() == writes.size() && isUniform(finished)))
+        {
+            for (ETAsyncWrite<?> write : writes) {
+                write.setRequestResult(finished.get(0));
+            }
+            return;
+        }
+
+        int half = writes.size() / 2;
+        retrieveRequestResults(new ArrayList<ETAsyncWrite<?>>(writes.subList(0, half)));
+        retrieveRequestResults(new ArrayList<ETAsyncWrite<?>>(writes.subList(half, writes.size())));
+    }
+
+    private static ETFilter toRequestIdFilter(String property,
+                                              List<ETAsyncWrite<?>> writes)
+    {
+        ETExpression expression = new ETExpression();
+        expression.setProperty(property);
+        if (writes.size() == 1) {
+            expression.setOperator(ETExpression.Operator.EQUALS);
+        } else {
+            expression.setOperator(ETExpression.Operator.IN);
+        }
+        for (ETAsyncWrite<?> write : writes) {
+            expression.addValue(write.getRequestId());
+        }
+        ETFilter filter = new ETFilter();
+        filter.setExpression(expression);
+        return filter;
+    }
+
+    private static boolean isUniform(List<ETAsyncRequestResult> results) {
+        ETAsyncRequestResult first = results.get(0);
+        for (ETAsyncRequestResult result : results) {
+            if (!equal(first.getStatus(), result.getStatus())
+                    || !equal(first.getCallStatus(), result.getCallStatus())
+                    || !equal(first.getCallMessage(), result.getCallMessage()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equal(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    //
+    // Status only tells whether the request has finished; how
+    // it went is in CallStatus (or, without one, whether it
+    // finished with an error):
+    //
+
+    private static ETResult.Status getStatus(ETAsyncRequestResult result) {
+        String callStatus = result.getCallStatus();
+        if (callStatus != null) {
+            return "OK".equalsIgnoreCase(callStatus)
+                    ? ETResult.Status.OK
+                    : ETResult.Status.ERROR;
+        }
+        return "Error".equalsIgnoreCase(result.getStatus())
+                ? ETResult.Status.ERROR
+                : ETResult.Status.OK;
+    }
+
+    private static boolean isFinished(ETAsyncRequestResult result) {
+        String status = result.getStatus();
+        return result.getCompleteDate() != null
+                || "Complete".equalsIgnoreCase(status)
+                || "Completed".equalsIgnoreCase(status)
+                || "Error".equalsIgnoreCase(status);
+    }
+}
@@ -0,0 +1,276 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETBatchDispatcher</code> sends batches of data extension
+ * rows asynchronously, with at most a fixed number of batches in
+ * flight (sending blocks until one completes), and maps each
+ * response back to the rows sent. Rows that fail are passed to
+ * the listener. Shared by <code>ETFilteredWrite</code>,
+ * <code>ETHashSync</code> and <code>ETDataExtensionWriteBuffer</code>.
+ */
+
+class ETBatchDispatcher {
+    private static Logger logger = Logger.getLogger(ETBatchDispatcher.class);
+
+    private ETDataExtension dataExtension = null;
+    private ETIngestListener listener = null;
+
+    private int batchSize = 0;
+    private int maxBatchesInFlight = 0;
+    private Semaphore batchesInFlight = null;
+
+    private AtomicLong rowsFailed = new AtomicLong();
+    private AtomicLong batchesSent = new AtomicLong();
+
+    /**
+     * Sends a batch of items and handles the result of each.
+     * Items are whatever the caller keeps per row sent.
+     */
+    interface Sender<T> {
+        CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<T> batch)
+            throws ETSdkException;
+
+        ETDataExtensionRow getRow(T item);
+
+        /**
+         * Called (on the thread completing the batch) with the
+         * result of each item, after a failure has been reported
+         * to the listener.
+         */
+        void completed(T item, ETResult<ETDataExtensionRow> result);
+    }
+
+    /**
+     * Uses the options' batch size and number of dispatcher
+     * threads, or the connection's if they aren't set.
+     */
+    ETBatchDispatcher(ETDataExtension dataExtension, ETIngestOptions options)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+        this.listener = options.getListener();
+
+        ETSoapConnection connection = dataExtension.getClient().getSoapConnection();
+        if (options.getBatchSize() != null) {
+            batchSize = options.getBatchSize();
+        } else {
+            batchSize = connection.getBatchSize("DataExtensionObject");
+        }
+        if (options.getDispatcherThreads() != null) {
+            maxBatchesInFlight = options.getDispatcherThreads();
+        } else {
+            maxBatchesInFlight = connection.getMaxConcurrentBatches();
+        }
+        batchesInFlight = new Semaphore(maxBatchesInFlight);
+    }
+
+    ETBatchDispatcher(ETDataExtension dataExtension,
+                      ETIngestListener listener,
+                      int batchSize,
+                      int maxBatchesInFlight)
+    {
+        this.dataExtension = dataExtension;
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        batchesInFlight = new Semaphore(maxBatchesInFlight);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getMaxBatchesInFlight() {
+        return maxBatchesInFlight;
+    }
+
+    long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    /**
+     * Sends the batch once fewer than the maximum number of
+     * batches are in flight. If sending fails, nothing is
+     * reported and the exception is thrown.
+     */
+    <T> void send(final List<T> batch, final Sender<T> sender)
+        throws ETSdkException
+    {
+        try {
+            batchesInFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted sending batch", ex);
+        }
+
+        CompletableFuture<ETResponse<ETDataExtensionRow>> future = null;
+        try {
+            future = sender.send(batch);
+        } catch (ETSdkException ex) {
+            batchesInFlight.release();
+            throw ex;
+        } catch (RuntimeException ex) {
+            batchesInFlight.release();
+            throw ex;
+        }
+        batchesSent.incrementAndGet();
+
+        future.whenComplete(new BiConsumer<ETResponse<ETDataExtensionRow>, Throwable>() {
+            public void accept(ETResponse<ETDataExtensionRow> response, Throwable throwable) {
+                try {
+                    handleResults(batch, sender, response, throwable);
+                } finally {
+                    batchesInFlight.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits up to <code>timeout</code> milliseconds for every
+     * batch in flight to complete, returning false if some
+     * are still in flight.
+     */
+    boolean awaitBatches(long timeout)
+        throws InterruptedException
+    {
+        if (!batchesInFlight.tryAcquire(maxBatchesInFlight,
+                                        timeout,
+                                        TimeUnit.MILLISECONDS))
+        {
+            return false;
+        }
+        batchesInFlight.release(maxBatchesInFlight);
+        return true;
+    }
+
+    /**
+     * Passes the result of each item of the batch to the sender:
+     * the result of the row in the response (results are in the
+     * order of the objects sent) or, without a result per row,
+     * the overall status of the response.
+     */
+    <T> void handleResults(List<T> batch,
+                           Sender<T> sender,
+                           ETResponse<ETDataExtensionRow> response,
+                           Throwable throwable)
+    {
+        if (throwable != null) {
+            logger.warn("error sending batch of " + batch.size() + " rows to "
+                    + dataExtension.getKey(), throwable);
+            for (T item : batch) {
+                completed(item, sender, ETResult.Status.ERROR, "Error",
+                          "error sending batch: " + throwable);
+            }
+            return;
+        }
+
+        List<ETResult<ETDataExtensionRow>> results = response.getResults();
+        if (results.size() != batch.size()) {
+            for (T item : batch) {
+                completed(item, sender, response.getStatus(),
+                          response.getResponseCode(),
+                          response.getResponseMessage());
+            }
+            return;
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            ETResult<ETDataExtensionRow> result = results.get(i);
+            completed(batch.get(i), sender, result.getStatus(),
+                      result.getResponseCode(), result.getResponseMessage());
+        }
+    }
+
+    private <T> void completed(T item,
+                               Sender<T> sender,
+                               ETResult.Status status,
+                               String responseCode,
+                               String responseMessage)
+    {
+        ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+        result.setStatus(status != null ? status : ETResult.Status.OK);
+        result.setResponseCode(responseCode);
+        result.setResponseMessage(responseMessage);
+        result.setObject(sender.getRow(item));
+        if (result.getStatus() == ETResult.Status.ERROR) {
+            rowFailed(result);
+        }
+        sender.completed(item, result);
+    }
+
+    /**
+     * Counts a row that failed (before or after being sent)
+     * and reports it to the listener.
+     */
+    void rowFailed(ETDataExtensionRow row,
+                   String responseCode,
+                   String responseMessage)
+    {
+        ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+        result.setStatus(ETResult.Status.ERROR);
+        result.setResponseCode(responseCode);
+        result.setResponseMessage(responseMessage);
+        result.setObject(row);
+        rowFailed(result);
+    }
+
+    private void rowFailed(ETResult<ETDataExtensionRow> result) {
+        rowsFailed.incrementAndGet();
+        if (listener != null) {
+            try {
+                listener.rowFailed(result);
+            } catch (RuntimeException ex) {
+                // don't let the listener stop the job
+                logger.warn("error reporting failed row", ex);
+            }
+        }
+    }
+}
@@ -35,11 +35,14 @@
 package com.exacttarget.fuelsdk;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -68,6 +71,10 @@ public class ETClient {
 
     private ETConfiguration configuration = null;
 
+    private ETAsyncWriteTracker asyncWriteTracker = null;
+    private ETDataExtensionSchemaCache dataExtensionSchemaCache = null;
+    private ETExportJobTracker exportJobTracker = null;
+
     private String clientId = null;
     private String clientSecret = null;
 
@@ -152,6 +159,41 @@ public class ETClient {
                                                   password);
         }
 
+        String soapWireLogging = configuration.get("soapWireLogging");
+        if (soapWireLogging != null) {
+            soapConnection.setWireLogging(Boolean.parseBoolean(soapWireLogging));
+        }
+
+        String soapCompression = configuration.get("soapCompression");
+        if (soapCompression != null) {
+            soapConnection.setCompression(Boolean.parseBoolean(soapCompression));
+        }
+        String soapRequestCompressionThreshold =
+                configuration.get("soapRequestCompressionThreshold");
+        if (soapRequestCompressionThreshold != null) {
+            soapConnection.setRequestCompressionThreshold(
+                    Integer.parseInt(soapRequestCompressionThreshold));
+        }
+
+        //
+        // Batch sizes can be set per object type using
+        // soapBatchSize.<object type>:
+        //
+
+        for (String key : configuration.getKeys()) {
+            if (key.equals("soapBatchSize")) {
+                soapConnection.setBatchSize(Integer.parseInt(configuration.get(key)));
+            } else if (key.startsWith("soapBatchSize.")) {
+                soapConnection.setBatchSize(key.substring("soapBatchSize.".length()),
+                                            Integer.parseInt(configuration.get(key)));
+            }
+        }
+        String soapMaxConcurrentBatches = configuration.get("soapMaxConcurrentBatches");
+        if (soapMaxConcurrentBatches != null) {
+            soapConnection.setMaxConcurrentBatches(
+                    Integer.parseInt(soapMaxConcurrentBatches));
+        }
+
         if (logger.isTraceEnabled()) {
             logger.trace("ETClient initialized:");
             logger.trace("  clientId = " + clientId);
@@ -563,6 +605,249 @@ public class ETClient {
         return response.getObjects();
     }
 
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> retrieveAsync(Class<T> type,
+                                                                                 ETFilter filter)
+        throws ETSdkException
+    {
+        return retrieveAsync(type, null, null, filter);
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> retrieveAsync(Class<T> type,
+                                                                                 String... filter)
+        throws ETSdkException
+    {
+        return retrieveAsync(type, null, null, ETFilter.parse(filter));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> retrieveAsync(Class<T> type,
+                                                                                 Integer page,
+                                                                                 Integer pageSize,
+                                                                                 ETFilter filter)
+        throws ETSdkException
+    {
+        //
+        // Get the retrieveAsync method from the superclass of
+        // T (only SOAP objects support asynchronous calls):
+        //
+
+        Class<T> superClass = (Class<T>) type.getSuperclass();
+
+        Method retrieveAsync = getMethod(superClass,
+                                         "retrieveAsync",
+                                         ETClient.class,  // client
+                                         Class.class,     // type
+                                         Integer.class,   // page
+                                         Integer.class,   // pageSize
+                                         ETFilter.class); // filter
+
+        CompletableFuture<ETResponse<T>> future = null;
+        try {
+            // first argument of null means method is static
+            future = (CompletableFuture<ETResponse<T>>) retrieveAsync.invoke(null,
+                                                                             this,
+                                                                             type,
+                                                                             page,
+                                                                             pageSize,
+                                                                             filter);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error invoking retrieveAsync method of type " + type, ex);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking retrieveAsync method of type " + type, ex);
+        }
+
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends ETApiObject> ETResponse<T> retrieve(Class<T> type,
+                                                          ETFilter filter,
+                                                          ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        //
+        // Get the streaming retrieve method from the superclass
+        // of T (only SOAP objects support streaming retrieves):
+        //
+
+        Class<T> superClass = (Class<T>) type.getSuperclass();
+
+        Method retrieve = getMethod(superClass,
+                                    "retrieve",
+                                    ETClient.class,          // client
+                                    Class.class,             // type
+                                    ETFilter.class,          // filter
+                                    ETObjectHandler.class);  // handler
+
+        ETResponse<T> response = null;
+        try {
+            // first argument of null means method is static
+            response = (ETResponse<T>) retrieve.invoke(null,
+                                                       this,
+                                                       type,
+                                                       filter,
+                                                       handler);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error invoking retrieve method of type " + type, ex);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking retrieve method of type " + type, ex);
+        }
+
+        return response;
+    }
+
+    /**
+     * Retrieves objects from all business units of an enterprise
+     * account with a single <code>QueryAllAccounts</code> retrieve,
+     * passing each object (tagged with its client ID) to the handler.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ETApiObject> ETResponse<T> retrieveAllAccounts(Class<T> type,
+                                                                     ETFilter filter,
+                                                                     ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        Class<T> superClass = (Class<T>) type.getSuperclass();
+
+        Method retrieveAllAccounts = getMethod(superClass,
+                                               "retrieveAllAccounts",
+                                               ETClient.class,          // client
+                                               Class.class,             // type
+                                               ETFilter.class,          // filter
+                                               ETObjectHandler.class);  // handler
+
+        ETResponse<T> response = null;
+        try {
+            // first argument of null means method is static
+            response = (ETResponse<T>) retrieveAllAccounts.invoke(null,
+                                                                  this,
+                                                                  type,
+                                                                  filter,
+                                                                  handler);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error invoking retrieveAllAccounts method of type " + type, ex);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking retrieveAllAccounts method of type " + type, ex);
+        }
+
+        return response;
+    }
+
+    /**
+     * Retrieves objects from the specified business units of an
+     * enterprise account, one concurrent retrieve per client ID,
+     * passing each object (tagged with its client ID) to the
+     * handler as results arrive.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ETApiObject> ETResponse<T> retrieve(Class<T> type,
+                                                          ETFilter filter,
+                                                          List<Integer> clientIds,
+                                                          ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        Class<T> superClass = (Class<T>) type.getSuperclass();
+
+        Method retrieve = getMethod(superClass,
+                                    "retrieve",
+                                    ETClient.class,          // client
+                                    Class.class,             // type
+                                    ETFilter.class,          // filter
+                                    List.class,              // clientIds
+                                    ETObjectHandler.class);  // handler
+
+        ETResponse<T> response = null;
+        try {
+            // first argument of null means method is static
+            response = (ETResponse<T>) retrieve.invoke(null,
+                                                       this,
+                                                       type,
+                                                       filter,
+                                                       clientIds,
+                                                       handler);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error invoking retrieve method of type " + type, ex);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking retrieve method of type " + type, ex);
+        }
+
+        return response;
+    }
+
+    public <T extends ETSoapObject> ETAsyncWrite<T> queueCreate(ETAsyncOptions options,
+                                                               T... objects)
+        throws ETSdkException
+    {
+        return queueCreateUpdate("queueCreate", options, Arrays.asList(objects));
+    }
+
+    public <T extends ETSoapObject> ETAsyncWrite<T> queueCreate(ETAsyncOptions options,
+                                                               List<T> objects)
+        throws ETSdkException
+    {
+        return queueCreateUpdate("queueCreate", options, objects);
+    }
+
+    public <T extends ETSoapObject> ETAsyncWrite<T> queueUpdate(ETAsyncOptions options,
+                                                               T... objects)
+        throws ETSdkException
+    {
+        return queueCreateUpdate("queueUpdate", options, Arrays.asList(objects));
+    }
+
+    public <T extends ETSoapObject> ETAsyncWrite<T> queueUpdate(ETAsyncOptions options,
+                                                               List<T> objects)
+        throws ETSdkException
+    {
+        return queueCreateUpdate("queueUpdate", options, objects);
+    }
+
+    /**
+     * Returns the tracker that completes the writes queued
+     * with <code>queueCreate</code> and <code>queueUpdate</code>.
+     */
+    public synchronized ETAsyncWriteTracker getAsyncWriteTracker() {
+        if (asyncWriteTracker == null) {
+            asyncWriteTracker = new ETAsyncWriteTracker(this);
+        }
+        return asyncWriteTracker;
+    }
+
+    /**
+     * Returns the cache of data extension columns shared
+     * by all <code>ETDataExtension</code> objects of
+     * this client.
+     */
+    public synchronized ETDataExtensionSchemaCache getDataExtensionSchemaCache() {
+        if (dataExtensionSchemaCache == null) {
+            dataExtensionSchemaCache = new ETDataExtensionSchemaCache(this);
+        }
+        return dataExtensionSchemaCache;
+    }
+
+    /**
+     * Returns the tracker that completes the export jobs
+     * started with <code>ETDataExtension.exportAsync</code>.
+     */
+    public synchronized ETExportJobTracker getExportJobTracker() {
+        if (exportJobTracker == null) {
+            exportJobTracker = new ETExportJobTracker(this);
+        }
+        return exportJobTracker;
+    }
+
     public <T extends ETApiObject> ETResponse<T> create(T... objects)
         throws ETSdkException
     {
@@ -587,6 +872,22 @@ public class ETClient {
         return createUpdateDelete("update", objects);
     }
 
+    public <T extends ETApiObject> ETResponse<T> upsert(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDelete("upsert", Arrays.asList(objects));
+    }
+
+    /**
+     * Updates the specified objects, adding the ones that
+     * don't exist yet (only SOAP objects support upserts).
+     */
+    public <T extends ETApiObject> ETResponse<T> upsert(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDelete("upsert", objects);
+    }
+
     public <T extends ETApiObject> ETResponse<T> delete(T... objects)
         throws ETSdkException
     {
@@ -599,6 +900,54 @@ public class ETClient {
         return createUpdateDelete("delete", objects);
     }
 
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> createAsync(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("createAsync", Arrays.asList(objects));
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> createAsync(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("createAsync", objects);
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> updateAsync(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("updateAsync", Arrays.asList(objects));
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> updateAsync(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("updateAsync", objects);
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> upsertAsync(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("upsertAsync", Arrays.asList(objects));
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> upsertAsync(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("upsertAsync", objects);
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> deleteAsync(T... objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("deleteAsync", Arrays.asList(objects));
+    }
+
+    public <T extends ETApiObject> CompletableFuture<ETResponse<T>> deleteAsync(List<T> objects)
+        throws ETSdkException
+    {
+        return createUpdateDeleteAsync("deleteAsync", objects);
+    }
+
     public <T extends ETApiObject> ETResponse<T> update(Class<T> type,
                                                         String filter,
                                                         String... values)
@@ -659,7 +1008,105 @@ public class ETClient {
 
         Method create = getMethod(superClass, method, ETClient.class, List.class);
 
-        return invokeMethod(create, objects);
+        try {
+            return invokeMethod(create, objects);
+        } finally {
+            invalidateSchemas(objects);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ETApiObject> CompletableFuture<ETResponse<T>> createUpdateDeleteAsync(String method,
+                                                                                            List<T> objects)
+        throws ETSdkException
+    {
+        Class<T> superClass = (Class<T>) objects.get(0).getClass().getSuperclass();
+
+        Method m = getMethod(superClass, method, ETClient.class, List.class);
+
+        invalidateSchemas(objects);
+
+        CompletableFuture<ETResponse<T>> future = null;
+        try {
+            future = (CompletableFuture<ETResponse<T>>) m.invoke(null, this, objects);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof ETSdkException) {
+                throw (ETSdkException) ex.getCause();
+            }
+            throw new ETSdkException("error invoking "
+                                     + m.getName()
+                                     + " method of object "
+                                     + objects, ex);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking "
+                                     + m.getName()
+                                     + " method of object "
+                                     + objects, ex);
+        }
+        invalidateSchemasOnCompletion(future, objects);
+
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ETSoapObject> ETAsyncWrite<T> queueCreateUpdate(String method,
+                                                                      ETAsyncOptions options,
+                                                                      List<T> objects)
+        throws ETSdkException
+    {
+        Class<T> superClass = (Class<T>) objects.get(0).getClass().getSuperclass();
+
+        Method m = getMethod(superClass,
+                             method,
+                             ETClient.class,
+                             List.class,
+                             ETAsyncOptions.class);
+
+        invalidateSchemas(objects);
+
+        ETAsyncWrite<T> write = null;
+        try {
+            write = (ETAsyncWrite<T>) m.invoke(null, this, objects, options);
+        } catch (Exception ex) {
+            throw new ETSdkException("error invoking "
+                                     + m.getName()
+                                     + " method of object "
+                                     + objects, ex);
+        }
+        invalidateSchemasOnCompletion(write.getResponse(), objects);
+
+        return write;
+    }
+
+    //
+    // The columns of data extensions created, updated or deleted
+    // may have changed, so they're dropped from the schema cache
+    // (when the call is sent, and again when it completes, in
+    // case they were hydrated in between):
+    //
+
+    private void invalidateSchemas(List<? extends ETApiObject> objects) {
+        for (ETApiObject object : objects) {
+            if (object instanceof ETDataExtension) {
+                String key = ((ETDataExtension) object).getKey();
+                if (key != null) {
+                    getDataExtensionSchemaCache().invalidate(key);
+                }
+            }
+        }
+    }
+
+    private <T> void invalidateSchemasOnCompletion(CompletableFuture<T> future,
+                                                   final List<? extends ETApiObject> objects)
+    {
+        if (objects.isEmpty() || !(objects.get(0) instanceof ETDataExtension)) {
+            return;
+        }
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T response, Throwable throwable) {
+                invalidateSchemas(objects);
+            }
+        });
     }
 
     private <T extends ETApiObject> Method getMethod(Class<T> type, String name, Class<?>... arguments)
@@ -40,6 +40,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -82,6 +83,10 @@ public class ETConfiguration {
         properties.setProperty(key, value);
     }
 
+    public Set<String> getKeys() {
+        return properties.stringPropertyNames();
+    }
+
     /**
      * @deprecated
      * Use <code>get("clientId")</code>.
@@ -34,11 +34,23 @@
 
 package com.exacttarget.fuelsdk;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -73,6 +85,12 @@ import com.exacttarget.fuelsdk.internal.DataExtensionObject;
 public class ETDataExtension extends ETSoapObject {
     private static Logger logger = Logger.getLogger(ETDataExtension.class);
 
+    /**
+     * The number of pages retrieved at a time when retrieving
+     * the rows to update or delete by filter.
+     */
+    public static final int DEFAULT_SELECT_PARALLELISM = 4;
+
     @ExternalName("id")
     @InternalName("objectID")
     private String id = null;
@@ -99,6 +117,10 @@ public class ETDataExtension extends ETSoapObject {
     private Boolean isTestable = null;
 
     private boolean isHydrated = false;
+    // the shared cache entry the columns were hydrated from:
+    private ETDataExtensionSchemaCache.Entry cacheEntry = null;
+
+    private ETDataExtensionSchema schema = null;
 
     public ETDataExtension() {}
 
@@ -165,14 +187,38 @@ public class ETDataExtension extends ETSoapObject {
     }
 
     public ETDataExtensionColumn getColumn(String name) {
+        if (isCacheEntryCurrent()) {
+            return cacheEntry.getColumn(name);
+        }
+        String lowerCaseName = name.toLowerCase();
         for (ETDataExtensionColumn column : columns) {
-            if (column.getName().equals(name.toLowerCase())) {
+            if (column.getName().equals(lowerCaseName)) {
                 return column;
             }
         }
         return null;
     }
 
+    /**
+     * Returns the schema of this data extension's columns
+     * (retrieving them if necessary), for creating rows that
+     * share it (see <code>ETDataExtensionRow</code>).
+     */
+    public ETDataExtensionSchema getSchema()
+        throws ETSdkException
+    {
+        if (columns.isEmpty()) {
+            hydrate();
+        }
+        if (isCacheEntryCurrent()) {
+            return cacheEntry.getSchema();
+        }
+        if (schema == null || schema.size() != columns.size()) {
+            schema = ETDataExtensionSchema.forColumns(columns);
+        }
+        return schema;
+    }
+
     public void addColumn(String name) {
         addColumn(name, null, null, null, null, null, null, null);
     }
@@ -332,6 +378,36 @@ public class ETDataExtension extends ETSoapObject {
                                      filter);
     }
 
+    public static ETResponse<ETDataExtensionRow> select(ETClient client,
+                                                        String dataExtension,
+                                                        ETFilter filter,
+                                                        ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        if (!filter.getOrderBy().isEmpty()) {
+            throw new ETSdkException("order by argument not supported when streaming rows");
+        }
+
+        String dataExtensionKey = null;
+
+        ETExpression e = ETExpression.parse(dataExtension);
+        if ((e.getProperty().toLowerCase().equals("key")
+                || e.getProperty().toLowerCase().equals("name"))
+                && e.getOperator() == ETExpression.Operator.EQUALS) {
+            dataExtensionKey = e.getValue();
+        } else {
+            throw new ETSdkException("invalid data extension filter string");
+        }
+
+        String object = "DataExtensionObject[" + dataExtensionKey + "]";
+
+        return ETSoapObject.retrieve(client,
+                                     object,
+                                     ETDataExtensionRow.class,
+                                     filter,
+                                     handler);
+    }
+
     public static ETResponse<ETDataExtensionRow> select(ETClient client,
                                                         String dataExtension,
                                                         String... filter)
@@ -406,14 +482,19 @@ public class ETDataExtension extends ETSoapObject {
                 for (JsonElement element : elements.getAsJsonArray()) {
                     JsonObject object = element.getAsJsonObject();
                     ETDataExtensionRow row = new ETDataExtensionRow();
+                    List<String> names = new ArrayList<String>();
+                    List<String> values = new ArrayList<String>();
                     JsonObject keys = object.get("keys").getAsJsonObject();
                     for (Map.Entry<String, JsonElement> entry : keys.entrySet()) {
-                        row.setColumn(entry.getKey(), entry.getValue().getAsString(), false);
+                        names.add(entry.getKey());
+                        values.add(entry.getValue().getAsString());
                     }
-                    JsonObject values = object.get("values").getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> entry : values.entrySet()) {
-                        row.setColumn(entry.getKey(), entry.getValue().getAsString(), false);
+                    JsonObject columnValues = object.get("values").getAsJsonObject();
+                    for (Map.Entry<String, JsonElement> entry : columnValues.entrySet()) {
+                        names.add(entry.getKey());
+                        values.add(entry.getValue().getAsString());
                     }
+                    row.setColumns(names, values, false);
                     row.setClient(client);
                     ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
                     result.setObject(row);
@@ -435,6 +516,256 @@ public class ETDataExtension extends ETSoapObject {
         return select(client, dataExtension, page, pageSize, ETFilter.parse(filter));
     }
 
+    /**
+     * Retrieves all matching rows via REST: after the first page
+     * (which tells us how many rows there are), up to
+     * <code>parallelism</code> of the remaining pages are
+     * retrieved at a time. Rows are returned in page order.
+     */
+    public static ETResponse<ETDataExtensionRow> selectAll(ETClient client,
+                                                           String dataExtension,
+                                                           Integer pageSize,
+                                                           int parallelism,
+                                                           ETFilter filter)
+        throws ETSdkException
+    {
+        final List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        ETResponse<ETDataExtensionRow> response =
+                selectAll(client, dataExtension, pageSize, parallelism, true, filter,
+                          new ETObjectHandler<ETDataExtensionRow>() {
+            public void handleObject(ETDataExtensionRow row) {
+                rows.add(row);
+            }
+        });
+        for (ETDataExtensionRow row : rows) {
+            ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+            result.setObject(row);
+            response.addResult(result);
+        }
+        return response;
+    }
+
+    /**
+     * Retrieves all matching rows as above, passing them to the
+     * handler (on the calling thread) in page order if
+     * <code>ordered</code> is true, or a page at a time as
+     * pages arrive if not. Ordered retrieves hold at most
+     * <code>2 * parallelism</code> pages waiting for an
+     * earlier one.
+     */
+    public static ETResponse<ETDataExtensionRow> selectAll(ETClient client,
+                                                           String dataExtension,
+                                                           Integer pageSize,
+                                                           int parallelism,
+                                                           boolean ordered,
+                                                           ETFilter filter,
+                                                           ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        return selectAll(client, dataExtension, pageSize, parallelism,
+                         ordered, filter, null, handler);
+    }
+
+    private static ETResponse<ETDataExtensionRow> selectAll(final ETClient client,
+                                                            final String dataExtension,
+                                                            Integer pageSize,
+                                                            int parallelism,
+                                                            boolean ordered,
+                                                            final ETFilter filter,
+                                                            final ETDataExtensionSchema schema,
+                                                            ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        return selectAll(dataExtension, pageSize, parallelism, ordered,
+                         withRetrievedSchema(schema, new PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize)
+                throws ETSdkException
+            {
+                return ETDataExtension.select(client, dataExtension,
+                                              page, pageSize, filter);
+            }
+        }), handler);
+    }
+
+    /**
+     * Retrieves all rows as above, a page at a time from
+     * <code>selector</code>.
+     */
+    static ETResponse<ETDataExtensionRow> selectAll(String dataExtension,
+                                                    Integer pageSize,
+                                                    int parallelism,
+                                                    boolean ordered,
+                                                    PageSelector selector,
+                                                    ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        ETResponse<ETDataExtensionRow> first = selector.select(1, pageSize);
+        for (ETDataExtensionRow row : first.getObjects()) {
+            handler.handleObject(row);
+        }
+
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setRequestId(first.getRequestId());
+        response.setStatus(first.getStatus());
+        response.setResponseCode(first.getResponseCode());
+        response.setResponseMessage(first.getResponseMessage());
+        response.setTotalCount(first.getTotalCount());
+
+        if (!first.hasMoreResults()) {
+            return response;
+        }
+
+        //
+        // The page range is fixed by the first page's count
+        // (rows added after it was retrieved may be missed):
+        //
+
+        int size = first.getPageSize();
+        int pages = (first.getTotalCount() + size - 1) / size;
+
+        logger.trace("retrieving pages 2-" + pages + " of " + dataExtension
+                + " (" + parallelism + " concurrent)");
+
+        selectPages(dataExtension, pages, size, parallelism, ordered,
+                    selector, response, handler);
+
+        return response;
+    }
+
+    /**
+     * Returns a selector matching the rows of every page it
+     * retrieves against <code>schema</code> (see
+     * <code>ETDataExtensionRow.setRetrievedSchema</code>).
+     */
+    static PageSelector withRetrievedSchema(final ETDataExtensionSchema schema,
+                                            final PageSelector selector)
+    {
+        return new PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize)
+                throws ETSdkException
+            {
+                ETDataExtensionRow.setRetrievedSchema(schema);
+                try {
+                    return selector.select(page, pageSize);
+                } finally {
+                    ETDataExtensionRow.setRetrievedSchema(null);
+                }
+            }
+        };
+    }
+
+    /**
+     * Retrieves pages 2 through <code>pages</code> (of
+     * <code>pageSize</code> rows) with up to
+     * <code>parallelism</code> in flight, passing their rows to
+     * the handler as described above. If a page fails, no more
+     * are started, <code>response</code> is marked as an error
+     * and the handler will have seen only some of the rows.
+     */
+    static void selectPages(String dataExtension,
+                            int pages,
+                            final int pageSize,
+                            int parallelism,
+                            boolean ordered,
+                            final PageSelector selector,
+                            ETResponse<ETDataExtensionRow> response,
+                            ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        if (pages < 2) {
+            return;
+        }
+
+        final BlockingQueue<RowPage> completed = new LinkedBlockingQueue<RowPage>();
+        Map<Integer, RowPage> waiting = new HashMap<Integer, RowPage>();
+        int next = 2;
+        int nextToHandle = 2;
+        int inFlight = 0;
+
+        ETSdkException exception = null;
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, pages - 1),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ETDataExtension-selectAll");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            while (next <= pages || inFlight > 0) {
+                while (next <= pages && inFlight < parallelism
+                        && (!ordered || next - nextToHandle < 2 * parallelism))
+                {
+                    final int page = next++;
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            RowPage rowPage = new RowPage(page);
+                            try {
+                                rowPage.response = selector.select(page, pageSize);
+                            } catch (Exception ex) {
+                                rowPage.exception = ex;
+                            }
+                            completed.add(rowPage);
+                        }
+                    });
+                    inFlight++;
+                }
+
+                RowPage rowPage = null;
+                try {
+                    rowPage = completed.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new ETSdkException("interrupted retrieving pages", ex);
+                }
+                inFlight--;
+
+                if (rowPage.exception != null
+                        || rowPage.response.getStatus() == ETResult.Status.ERROR)
+                {
+                    if (rowPage.exception != null && exception == null) {
+                        exception = new ETSdkException("error retrieving page "
+                                + rowPage.page + " of " + dataExtension,
+                                rowPage.exception);
+                    } else if (rowPage.exception == null) {
+                        response.setStatus(ETResult.Status.ERROR);
+                        response.setResponseCode(rowPage.response.getResponseCode());
+                        response.setResponseMessage(rowPage.response.getResponseMessage());
+                    }
+                    // don't start any more pages
+                    next = pages + 1;
+                    continue;
+                }
+
+                if (!ordered) {
+                    for (ETDataExtensionRow row : rowPage.response.getObjects()) {
+                        handler.handleObject(row);
+                    }
+                    continue;
+                }
+                waiting.put(rowPage.page, rowPage);
+                while ((rowPage = waiting.remove(nextToHandle)) != null) {
+                    for (ETDataExtensionRow row : rowPage.response.getObjects()) {
+                        handler.handleObject(row);
+                    }
+                    nextToHandle++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
     /**
      * @deprecated
      * Pass columns in <code>filter</code> argument.
@@ -506,7 +837,28 @@ public class ETDataExtension extends ETSoapObject {
         if (filter.getProperties().isEmpty()) {
             filter.setProperties(getColumnNames());
         }
-        return ETDataExtension.select(getClient(), "key=" + getKey(), filter);
+        setRetrievedSchema(filter);
+        try {
+            return ETDataExtension.select(getClient(), "key=" + getKey(), filter);
+        } finally {
+            ETDataExtensionRow.setRetrievedSchema(null);
+        }
+    }
+
+    public ETResponse<ETDataExtensionRow> select(ETFilter filter,
+                                                 ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        // if no columns are explicitly requested retrieve all columns
+        if (filter.getProperties().isEmpty()) {
+            filter.setProperties(getColumnNames());
+        }
+        setRetrievedSchema(filter);
+        try {
+            return ETDataExtension.select(getClient(), "key=" + getKey(), filter, handler);
+        } finally {
+            ETDataExtensionRow.setRetrievedSchema(null);
+        }
     }
 
     public ETResponse<ETDataExtensionRow> select(String... filter)
@@ -524,7 +876,24 @@ public class ETDataExtension extends ETSoapObject {
         if (filter.getProperties().isEmpty()) {
             filter.setProperties(getColumnNames());
         }
-        return ETDataExtension.select(getClient(), "key=" + getKey(), page, pageSize, filter);
+        setRetrievedSchema(filter);
+        try {
+            return ETDataExtension.select(getClient(), "key=" + getKey(), page, pageSize, filter);
+        } finally {
+            ETDataExtensionRow.setRetrievedSchema(null);
+        }
+    }
+
+    //
+    // Retrieved rows are matched against the schema of the
+    // selected columns, so they get this data extension's
+    // column types (see ETDataExtensionRow's typed accessors):
+    //
+
+    private void setRetrievedSchema(ETFilter filter)
+        throws ETSdkException
+    {
+        ETDataExtensionRow.setRetrievedSchema(getSchema().forColumnNames(filter.getProperties()));
     }
 
     public ETResponse<ETDataExtensionRow> select(Integer page,
@@ -535,6 +904,40 @@ public class ETDataExtension extends ETSoapObject {
         return select(page, pageSize, ETFilter.parse(filter));
     }
 
+    public ETResponse<ETDataExtensionRow> selectAll(int parallelism,
+                                                    ETFilter filter)
+        throws ETSdkException
+    {
+        final List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        ETResponse<ETDataExtensionRow> response =
+                selectAll(parallelism, true, filter, new ETObjectHandler<ETDataExtensionRow>() {
+            public void handleObject(ETDataExtensionRow row) {
+                rows.add(row);
+            }
+        });
+        for (ETDataExtensionRow row : rows) {
+            ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+            result.setObject(row);
+            response.addResult(result);
+        }
+        return response;
+    }
+
+    public ETResponse<ETDataExtensionRow> selectAll(int parallelism,
+                                                    boolean ordered,
+                                                    ETFilter filter,
+                                                    ETObjectHandler<ETDataExtensionRow> handler)
+        throws ETSdkException
+    {
+        // if no columns are explicitly requested retrieve all columns
+        if (filter.getProperties().isEmpty()) {
+            filter.setProperties(getColumnNames());
+        }
+        return selectAll(getClient(), "key=" + getKey(), null, parallelism, ordered,
+                         filter, getSchema().forColumnNames(filter.getProperties()),
+                         handler);
+    }
+
     /**
      * @deprecated
      * Pass columns in <code>filter</code> argument.
@@ -619,6 +1022,75 @@ public class ETDataExtension extends ETSoapObject {
         return super.update(getClient(), rows);
     }
 
+    public ETResponse<ETDataExtensionRow> upsert(ETDataExtensionRow... rows)
+        throws ETSdkException
+    {
+        return upsert(Arrays.asList(rows));
+    }
+
+    /**
+     * Updates the specified rows, inserting the ones that
+     * don't exist yet, in a single call (per batch).
+     */
+    public ETResponse<ETDataExtensionRow> upsert(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        for (ETDataExtensionRow row : rows) {
+            //
+            // Set the data extension name if it isn't already set:
+            //
+
+            if (row.getDataExtensionKey() == null) {
+                row.setDataExtensionKey(key);
+            }
+        }
+
+        return super.upsert(getClient(), rows);
+    }
+
+    public ETIngestProgress ingest(Iterator<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        return ingest(rows, new ETIngestOptions());
+    }
+
+    /**
+     * Inserts all rows produced by the iterator (which may be
+     * backed by a file, a <code>Stream</code>, etc.), pulling
+     * them only as fast as they can be sent. Batching, conversion,
+     * and sending run in parallel stages connected by bounded
+     * queues, so memory use stays flat however many rows there
+     * are. Rows that fail are passed to the options' listener and
+     * do not stop the job. Returns once every row has been sent.
+     */
+    public ETIngestProgress ingest(Iterator<ETDataExtensionRow> rows,
+                                   ETIngestOptions options)
+        throws ETSdkException
+    {
+        return new ETIngest(getClient(), key, options).run(rows);
+    }
+
+    public ETImportProgress importFile(Path path)
+        throws ETSdkException
+    {
+        return importFile(path, new ETImportOptions());
+    }
+
+    /**
+     * Inserts the rows of a delimited (CSV or TSV) file, whose
+     * header (or the options' column list) names the data extension
+     * columns its fields are loaded into. The file is memory-mapped
+     * and split into chunks that are parsed in parallel, and the
+     * rows are loaded as by <code>ingest</code>. Records that can't
+     * be parsed and rows that fail are reported per chunk (and to
+     * the options' listener, if any) and do not stop the job.
+     */
+    public ETImportProgress importFile(Path path, ETImportOptions options)
+        throws ETSdkException
+    {
+        return new ETImport(this, path, options).run();
+    }
+
     public ETResponse<ETDataExtensionRow> delete(ETDataExtensionRow... rows)
         throws ETSdkException
     {
@@ -630,52 +1102,83 @@ public class ETDataExtension extends ETSoapObject {
     {
         List<APIObject> internalRows = new ArrayList<APIObject>();
 
+        List<String> primaryKeyColumnNames = getPrimaryKeyColumnNames();
         for (ETDataExtensionRow row : rows) {
-            //
-            // We hand construct this one, since all we need
-            // to pass in are the primary keys, and we pass them
-            // in to DeleteRequest differently (in the Keys
-            // property) than we received it from
-            // RetrieveRequest (in the Properties property):
-            //
-
-            DataExtensionObject internalRow = new DataExtensionObject();
-            DataExtensionObject.Keys keys = new DataExtensionObject.Keys();
-            hydrate(); // make sure we've retrieved all columns
-            for (ETDataExtensionColumn column : columns) {
-                if (column.getIsPrimaryKey()) {
-                    APIProperty property = new APIProperty();
-                    property.setName(column.getName());
-                    property.setValue(row.getColumn(property.getName()));
-                    keys.getKey().add(property);
-                }
-            }
-            internalRow.setName(name);
-            internalRow.setKeys(keys);
-            internalRows.add(internalRow);
+            internalRows.add(toDeleteObject(row, primaryKeyColumnNames));
         }
 
         // call delete method that operates on internal objects
         return super.delete(getClient(), internalRows, true);
     }
 
+    DataExtensionObject toDeleteObject(ETDataExtensionRow row,
+                                       List<String> primaryKeyColumnNames)
+    {
+        //
+        // We hand construct this one, since all we need
+        // to pass in are the primary keys, and we pass them
+        // in to DeleteRequest differently (in the Keys
+        // property) than we received it from
+        // RetrieveRequest (in the Properties property):
+        //
+
+        DataExtensionObject internalRow = new DataExtensionObject();
+        DataExtensionObject.Keys keys = new DataExtensionObject.Keys();
+        for (String columnName : primaryKeyColumnNames) {
+            APIProperty property = new APIProperty();
+            property.setName(columnName);
+            property.setValue(row.getColumn(columnName));
+            keys.getKey().add(property);
+        }
+        internalRow.setName(name);
+        internalRow.setKeys(keys);
+        return internalRow;
+    }
+
     public ETResponse<ETDataExtensionRow> update(String filter, String... values)
         throws ETSdkException
     {
+        List<ETExpression> assignments = parseAssignments(values);
         List<ETDataExtensionRow> rows = getMatchingRows(filter);
         for (ETDataExtensionRow row : rows) {
-            for (String value : values) {
-                ETExpression expression = ETExpression.parse(value);
-                // must be an assign operation
-                if (expression.getOperator() != ETExpression.Operator.EQUALS) {
-                    throw new ETSdkException("must be an assign operation: " + expression);
-                }
-                row.setColumn(expression.getProperty(), expression.getValue());
+            for (ETExpression assignment : assignments) {
+                row.setColumn(assignment.getProperty(), assignment.getValue());
             }
         }
         return update(rows);
     }
 
+    /**
+     * Updates the rows matching the filter without collecting them
+     * first: the primary keys of the matching rows are streamed from
+     * the server and each batch is sent as soon as it fills, so
+     * memory use stays flat however many rows match. Rows that fail
+     * and periodic progress are reported to the options' listener.
+     * Returns once every batch has completed.
+     */
+    public ETIngestProgress update(ETFilter filter,
+                                   ETIngestOptions options,
+                                   String... values)
+        throws ETSdkException
+    {
+        return new ETFilteredWrite(this, filter, parseAssignments(values), options).run();
+    }
+
+    private static List<ETExpression> parseAssignments(String... values)
+        throws ETSdkException
+    {
+        List<ETExpression> assignments = new ArrayList<ETExpression>();
+        for (String value : values) {
+            ETExpression expression = ETExpression.parse(value);
+            // must be an assign operation
+            if (expression.getOperator() != ETExpression.Operator.EQUALS) {
+                throw new ETSdkException("must be an assign operation: " + expression);
+            }
+            assignments.add(expression);
+        }
+        return assignments;
+    }
+
     public ETResponse<ETDataExtensionRow> delete(String filter)
         throws ETSdkException
     {
@@ -683,6 +1186,44 @@ public class ETDataExtension extends ETSoapObject {
         return delete(rows);
     }
 
+    /**
+     * Deletes the rows matching the filter without collecting
+     * them first (see <code>update(ETFilter, ETIngestOptions,
+     * String...)</code>).
+     */
+    public ETIngestProgress delete(ETFilter filter, ETIngestOptions options)
+        throws ETSdkException
+    {
+        return new ETFilteredWrite(this, filter, null, options).run();
+    }
+
+    public ETHashSyncProgress sync(Iterator<ETDataExtensionRow> rows,
+                                   ETRowHashStore store)
+        throws ETSdkException
+    {
+        return sync(rows, store, new ETIngestOptions());
+    }
+
+    /**
+     * Makes the data extension match a full snapshot of its rows,
+     * sending only what changed since the last sync: the store
+     * holds a hash of each row as last sent, so rows that are new or
+     * changed are upserted, unchanged rows are skipped, and rows
+     * that were sent before but aren't in the snapshot are deleted.
+     * The first sync (with no store) upserts every row. The store
+     * is only replaced once every batch has completed, and rows that
+     * fail are sent again by the next sync. The store assumes it is
+     * the only writer of the data extension; to clear a column, set
+     * it to an empty string (null columns aren't sent).
+     */
+    public ETHashSyncProgress sync(Iterator<ETDataExtensionRow> rows,
+                                   ETRowHashStore store,
+                                   ETIngestOptions options)
+        throws ETSdkException
+    {
+        return new ETHashSync(this, store, options).run(rows);
+    }
+
     public ETResponse<ETDataExtensionRow> export(ETFilter filter,
                                                  String fileName)
         throws ETSdkException
@@ -697,10 +1238,101 @@ public class ETDataExtension extends ETSoapObject {
                                                  Integer encryptionKey)
         throws ETSdkException
     {
-        ETClient client = getClient();
-
         ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
 
+        ETRestConnection.Response r = postExport(filter,
+                                                 fileName,
+                                                 includeHeader,
+                                                 compress,
+                                                 encryptionKey);
+
+        response.setRequestId(r.getRequestId());
+        if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
+            response.setStatus(ETResult.Status.OK);
+        } else if (r.getResponseCode() >= 400 && r.getResponseCode() <= 599) {
+            response.setStatus(ETResult.Status.ERROR);
+        }
+        response.setResponseCode(r.getResponseCode().toString());
+        response.setResponseMessage(r.getResponseMessage());
+
+        return response;
+    }
+
+    /**
+     * Starts an export like <code>export</code>, returning a handle
+     * to the export job whose future completes once the server
+     * reports the export finished (see
+     * <code>ETExportJobTracker</code>).
+     */
+    public ETExportJob exportAsync(ETFilter filter,
+                                   String fileName,
+                                   Boolean includeHeader,
+                                   Boolean compress,
+                                   Integer encryptionKey)
+        throws ETSdkException
+    {
+        ETRestConnection.Response r = postExport(filter,
+                                                 fileName,
+                                                 includeHeader,
+                                                 compress,
+                                                 encryptionKey);
+        if (r.getResponseCode() < 200 || r.getResponseCode() > 299) {
+            throw new ETSdkException("could not export data extension "
+                    + getKey() + ": " + r.getResponseCode()
+                    + " " + r.getResponseMessage());
+        }
+
+        //
+        // The ID to poll the status with is returned as "id"
+        // (or, by some stacks, "requestId"):
+        //
+
+        String jobId = null;
+        try {
+            JsonObject jsonObject = new JsonParser().parse(r.getResponsePayload()).getAsJsonObject();
+            for (String name : new String[] { "id", "requestId" }) {
+                JsonElement element = jsonObject.get(name);
+                if (element != null && element.isJsonPrimitive()) {
+                    jobId = element.getAsString();
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // JsonParseException, IllegalStateException
+            throw new ETSdkException("could not parse export response: "
+                    + r.getResponsePayload(), ex);
+        }
+        if (jobId == null) {
+            throw new ETSdkException("export response has no job ID: "
+                    + r.getResponsePayload());
+        }
+
+        ETExportJob job = new ETExportJob(getKey(), fileName, jobId, r.getRequestId());
+        getClient().getExportJobTracker().track(job);
+        return job;
+    }
+
+    public ETExportJob exportAsync(ETFilter filter, String fileName)
+        throws ETSdkException
+    {
+        return exportAsync(filter, fileName, true, false, null);
+    }
+
+    public ETExportJob exportAsync(String filter, String fileName)
+        throws ETSdkException
+    {
+        return exportAsync(ETFilter.parse(filter), fileName);
+    }
+
+    private ETRestConnection.Response postExport(ETFilter filter,
+                                                 String fileName,
+                                                 Boolean includeHeader,
+                                                 Boolean compress,
+                                                 Integer encryptionKey)
+        throws ETSdkException
+    {
+        ETClient client = getClient();
+
         String path = "/data/v1/customobjectdata/export";
 
         StringBuilder stringBuilder = new StringBuilder(path);
@@ -728,18 +1360,7 @@ public class ETDataExtension extends ETSoapObject {
         Gson gson = connection.getGson();
         String json = gson.toJson(jsonObject);
 
-        ETRestConnection.Response r = connection.post(path, json);
-
-        response.setRequestId(r.getRequestId());
-        if (r.getResponseCode() >= 200 && r.getResponseCode() <= 299) {
-            response.setStatus(ETResult.Status.OK);
-        } else if (r.getResponseCode() >= 400 && r.getResponseCode() <= 599) {
-            response.setStatus(ETResult.Status.ERROR);
-        }
-        response.setResponseCode(r.getResponseCode().toString());
-        response.setResponseMessage(r.getResponseMessage());
-
-        return response;
+        return connection.post(path, json);
     }
 
     public ETResponse<ETDataExtensionRow> export(String filter,
@@ -763,6 +1384,59 @@ public class ETDataExtension extends ETSoapObject {
                       encryptionKey);
     }
 
+    public long exportTo(Path path, ExportFormat format, ETFilter filter)
+        throws ETSdkException
+    {
+        OutputStream out = null;
+        try {
+            out = Files.newOutputStream(path);
+            if (path.getFileName().toString().toLowerCase().endsWith(".gz")) {
+                out = new GZIPOutputStream(out, 64 * 1024);
+            }
+            long rows = exportTo(out, format, filter);
+            out.close();
+            out = null;
+            return rows;
+        } catch (IOException ex) {
+            throw new ETSdkException("error writing " + path, ex);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    logger.warn("error closing " + path, ex);
+                }
+            }
+        }
+    }
+
+    public long exportTo(Path path, ExportFormat format, String... filter)
+        throws ETSdkException
+    {
+        return exportTo(path, format, ETFilter.parse(filter));
+    }
+
+    /**
+     * Writes the rows matching the filter (all columns, unless the
+     * filter specifies them) to the stream, which is not closed.
+     * Rows are retrieved a page at a time, the next page while the
+     * current one is being written, so only about a page of rows
+     * is held in memory however many there are. Returns the
+     * number of rows written. (The <code>Path</code> versions
+     * gzip the file if its name ends with .gz.)
+     */
+    public long exportTo(OutputStream out, ExportFormat format, ETFilter filter)
+        throws ETSdkException
+    {
+        return new ETExport(this, filter).run(out, format);
+    }
+
+    public long exportTo(OutputStream out, ExportFormat format, String... filter)
+        throws ETSdkException
+    {
+        return exportTo(out, format, ETFilter.parse(filter));
+    }
+
     public void hydrate()
         throws ETSdkException
     {
@@ -770,38 +1444,56 @@ public class ETDataExtension extends ETSoapObject {
             return;
         }
 
-        ETClient client = getClient();
-
         //
-        // Automatically refresh the token if necessary:
+        // Columns are retrieved (with CustomerKey = this data
+        // extension) through the client's schema cache, so other
+        // objects for the same data extension share them:
         //
 
-        client.refreshToken();
+        ETDataExtensionSchemaCache.Entry entry =
+                getClient().getDataExtensionSchemaCache().get(getKey());
 
-        //
-        // Retrieve all columns with CustomerKey = this data extension:
-        //
+        columns = new ArrayList<ETDataExtensionColumn>(entry.getColumns());
+        cacheEntry = entry;
 
-        ETExpression expression = new ETExpression();
-        expression.setProperty("DataExtension.CustomerKey");
-        expression.setOperator(ETExpression.Operator.EQUALS);
-        expression.addValue(getKey());
-
-        ETFilter filter = new ETFilter();
-        filter.setExpression(expression);
+        // XXX deal with partially loaded DataExtension objects too
 
-        ETResponse<ETDataExtensionColumn> response =
-                ETDataExtensionColumn.retrieve(client,
-                                               ETDataExtensionColumn.class,
-                                               null, // page
-                                               null, // pageSize
-                                               filter);
+        isHydrated = true;
+    }
 
-        columns = response.getObjects();
+    /**
+     * Hydrates the specified data extensions, loading the
+     * columns of those not in the client's schema cache with
+     * as few retrieves as possible (see
+     * <code>ETDataExtensionSchemaCache.preload</code>).
+     */
+    public static void hydrate(ETClient client,
+                               List<ETDataExtension> dataExtensions)
+        throws ETSdkException
+    {
+        List<String> keys = new ArrayList<String>();
+        for (ETDataExtension dataExtension : dataExtensions) {
+            if (!dataExtension.isHydrated) {
+                keys.add(dataExtension.getKey());
+            }
+        }
+        client.getDataExtensionSchemaCache().preload(keys);
+        for (ETDataExtension dataExtension : dataExtensions) {
+            if (dataExtension.getClient() == null) {
+                dataExtension.setClient(client);
+            }
+            dataExtension.hydrate();
+        }
+    }
 
-        // XXX deal with partially loaded DataExtension objects too
+    //
+    // The cache entry only describes the columns as long as
+    // none have been added since hydrating:
+    //
 
-        isHydrated = true;
+    private boolean isCacheEntryCurrent() {
+        return cacheEntry != null
+                && cacheEntry.getColumns().size() == columns.size();
     }
 
     private List<ETDataExtensionRow> getMatchingRows(String filter)
@@ -809,31 +1501,40 @@ public class ETDataExtension extends ETSoapObject {
     {
         List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
 
-        hydrate(); // make sure we've retrieved all columns
-
         //
         // Only retrieve primary key columns:
         //
 
+        List<String> primaryKeyColumnNames = getPrimaryKeyColumnNames();
+
+        ETFilter parsedFilter = ETFilter.parse(filter);
+        parsedFilter.setProperties(primaryKeyColumnNames);
+        ETResponse<ETDataExtensionRow> response =
+                selectAll(getClient(), "key=" + getKey(), 2500,
+                          DEFAULT_SELECT_PARALLELISM, parsedFilter);
+        if (response.getStatus() == ETResult.Status.ERROR) {
+            throw new ETSdkException("error retrieving rows of " + getKey()
+                    + ": " + response.getResponseMessage());
+        }
+        rows.addAll(response.getObjects());
+
+        return rows;
+    }
+
+    List<String> getPrimaryKeyColumnNames()
+        throws ETSdkException
+    {
+        hydrate(); // make sure we've retrieved all columns
+        if (isCacheEntryCurrent()) {
+            return cacheEntry.getPrimaryKeyColumnNames();
+        }
         List<String> primaryKeyColumnNames = new ArrayList<String>();
         for (ETDataExtensionColumn column : columns) {
             if (column.getIsPrimaryKey()) {
                 primaryKeyColumnNames.add(column.getName());
             }
         }
-
-        int page = 1;
-        int page_size = 2500;
-
-        ETResponse<ETDataExtensionRow> response = null;
-        do {
-            ETFilter parsedFilter = ETFilter.parse(filter);
-            parsedFilter.setProperties(primaryKeyColumnNames);
-            response = select(page++, page_size, parsedFilter);
-            rows.addAll(response.getObjects());
-        } while (response.hasMoreResults() == true);
-
-        return rows;
+        return primaryKeyColumnNames;
     }
 
     private List<String> getColumnNames()
@@ -846,4 +1547,31 @@ public class ETDataExtension extends ETSoapObject {
         }
         return columnNames;
     }
+
+    /**
+     * Retrieves a single page of rows for <code>selectAll</code>.
+     */
+    interface PageSelector {
+        ETResponse<ETDataExtensionRow> select(int page, Integer pageSize)
+            throws ETSdkException;
+    }
+
+    private static class RowPage {
+        private int page = 0;
+        private ETResponse<ETDataExtensionRow> response = null;
+        private Exception exception = null;
+
+        private RowPage(int page) {
+            this.page = page;
+        }
+    }
+
+    /**
+     * The formats rows can be exported in by <code>exportTo</code>:
+     * CSV with a header record, or one JSON object per line.
+     */
+    public enum ExportFormat {
+        CSV,
+        NDJSON
+    }
 }
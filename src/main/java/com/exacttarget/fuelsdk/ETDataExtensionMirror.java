@@ -0,0 +1,393 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETDataExtensionMirror</code> holds a copy of the rows
+ * of a data extension in memory, indexed by primary key, so
+ * lookups in small, slowly changing data extensions (catalogs,
+ * store lists, and so on) don't cost a retrieve each.
+ *
+ * The rows are loaded with <code>refresh</code>, and reloaded
+ * periodically by a background thread once <code>start</code>
+ * has been called. Each load builds a new snapshot of the rows
+ * and their index off to the side and then swaps it in, so
+ * readers never block and always see a complete snapshot.
+ * Rows are shared between readers and must be treated as
+ * read only.
+ *
+ * Secondary indexes declared with <code>addIndex</code> are
+ * rebuilt with each snapshot and used by <code>select</code>
+ * (see <code>ETDataExtensionRowSet</code>).
+ */
+
+public class ETDataExtensionMirror {
+    private static Logger logger = Logger.getLogger(ETDataExtensionMirror.class);
+
+    private ETDataExtension dataExtension = null;
+    private ETFilter filter = null;
+    private RowLoader loader = null;
+    private List<String> primaryKeyColumnNames = null;
+    private Map<String, ETDataExtensionRowSet.IndexType> indexes =
+            new LinkedHashMap<String, ETDataExtensionRowSet.IndexType>();
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    private final Object refreshLock = new Object();
+
+    //
+    // Guards indexes and swapping in snapshots; only held while
+    // a snapshot is built, never during a load, so addIndex
+    // doesn't wait for a refresh:
+    //
+
+    private final Object snapshotLock = new Object();
+
+    private ScheduledExecutorService executor = null;
+
+    /**
+     * Loads the rows of the data extension matching the filter
+     * (by default, with <code>ETDataExtension.select</code>).
+     */
+    interface RowLoader {
+        ETResponse<ETDataExtensionRow> load(ETFilter filter,
+                                            ETObjectHandler<ETDataExtensionRow> handler)
+            throws ETSdkException;
+    }
+
+    public ETDataExtensionMirror(ETDataExtension dataExtension)
+        throws ETSdkException
+    {
+        this(dataExtension, new ETFilter());
+    }
+
+    /**
+     * Mirrors the rows of the data extension that match the
+     * filter. If the filter names the columns to retrieve,
+     * the primary key columns are always retrieved too.
+     */
+    public ETDataExtensionMirror(final ETDataExtension dataExtension, ETFilter filter)
+        throws ETSdkException
+    {
+        this(dataExtension,
+             dataExtension.getPrimaryKeyColumnNames(),
+             filter,
+             new RowLoader() {
+            public ETResponse<ETDataExtensionRow> load(ETFilter filter,
+                                                       ETObjectHandler<ETDataExtensionRow> handler)
+                throws ETSdkException
+            {
+                return dataExtension.select(filter, handler);
+            }
+        });
+    }
+
+    ETDataExtensionMirror(ETDataExtension dataExtension,
+                          List<String> primaryKeyColumnNames,
+                          ETFilter filter,
+                          RowLoader loader)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+        this.primaryKeyColumnNames = primaryKeyColumnNames;
+        this.loader = loader;
+
+        // copy the filter, so the caller's is left as it was
+        this.filter = new ETFilter();
+        this.filter.setExpression(filter.getExpression());
+        this.filter.setOrderBy(new ArrayList<String>(filter.getOrderBy()));
+        this.filter.setOrderByAsc(filter.getOrderByAsc());
+        this.filter.setProperties(new ArrayList<String>(filter.getProperties()));
+
+        if (primaryKeyColumnNames.isEmpty()) {
+            throw new ETSdkException("data extension "
+                    + dataExtension.getKey()
+                    + " has no primary key");
+        }
+
+        if (!this.filter.getProperties().isEmpty()) {
+            for (String columnName : primaryKeyColumnNames) {
+                if (!containsIgnoreCase(this.filter.getProperties(), columnName)) {
+                    this.filter.addProperty(columnName);
+                }
+            }
+        }
+    }
+
+    public ETDataExtension getDataExtension() {
+        return dataExtension;
+    }
+
+    public List<String> getPrimaryKeyColumnNames() {
+        return primaryKeyColumnNames;
+    }
+
+    /**
+     * Returns the row with the specified primary key values
+     * (in the order of <code>getPrimaryKeyColumnNames</code>),
+     * or <code>null</code> if there is none.
+     */
+    public ETDataExtensionRow get(String... key) {
+        if (key.length != primaryKeyColumnNames.size()) {
+            throw new IllegalArgumentException("expected "
+                    + primaryKeyColumnNames.size()
+                    + " primary key values, got " + key.length);
+        }
+        Snapshot snapshot = this.snapshot;
+        if (key.length == 1) {
+            return snapshot.rowsByKey.get(key[0]);
+        }
+        return snapshot.rowsByKey.get(Arrays.asList(key));
+    }
+
+    /**
+     * Returns all rows of the current snapshot.
+     */
+    public List<ETDataExtensionRow> getRows() {
+        return snapshot.rowSet.getRows();
+    }
+
+    public int size() {
+        return snapshot.rowSet.size();
+    }
+
+    /**
+     * Returns the current snapshot's rows and
+     * secondary indexes.
+     */
+    public ETDataExtensionRowSet getRowSet() {
+        return snapshot.rowSet;
+    }
+
+    /**
+     * Declares a secondary index on the specified column. If
+     * rows have already been loaded, the current snapshot is
+     * replaced by one with the index.
+     */
+    public void addIndex(String column, ETDataExtensionRowSet.IndexType type) {
+        synchronized (snapshotLock) {
+            indexes.put(column.toLowerCase(), type);
+            Snapshot current = snapshot;
+            if (current.loadTime != 0) {
+                snapshot = new Snapshot(current, indexes);
+            }
+        }
+    }
+
+    /**
+     * Returns the rows of the current snapshot matching the
+     * filter, answered from the secondary indexes where possible.
+     */
+    public List<ETDataExtensionRow> select(ETExpression expression)
+        throws ETSdkException
+    {
+        return snapshot.rowSet.select(expression);
+    }
+
+    public List<ETDataExtensionRow> select(String filter)
+        throws ETSdkException
+    {
+        return snapshot.rowSet.select(filter);
+    }
+
+    /**
+     * Returns the time (in milliseconds) the current snapshot
+     * was loaded, or zero if none has been loaded yet.
+     */
+    public long getLastRefreshTime() {
+        return snapshot.loadTime;
+    }
+
+    /**
+     * Loads the rows of the data extension and swaps them in
+     * once loaded. Concurrent refreshes are serialized; if a
+     * refresh fails, the previous snapshot stays in place.
+     */
+    public void refresh()
+        throws ETSdkException
+    {
+        synchronized (refreshLock) {
+            long start = System.currentTimeMillis();
+
+            final List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+            ETResponse<ETDataExtensionRow> response =
+                    loader.load(filter, new ETObjectHandler<ETDataExtensionRow>() {
+                @Override
+                public void handleObject(ETDataExtensionRow row) {
+                    rows.add(row);
+                }
+            });
+            if (response.getStatus() == ETResult.Status.ERROR) {
+                throw new ETSdkException("could not retrieve rows of data extension "
+                        + dataExtension.getKey() + ": " + response.getResponseMessage());
+            }
+
+            // built with the indexes as of now, including any
+            // added while the rows were loading:
+            synchronized (snapshotLock) {
+                snapshot = new Snapshot(rows, primaryKeyColumnNames, indexes, start);
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("loaded " + rows.size()
+                        + " rows of data extension " + dataExtension.getKey()
+                        + " in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+    }
+
+    /**
+     * Loads the rows (if they haven't been loaded yet) and
+     * starts reloading them every <code>refreshInterval</code>
+     * milliseconds on a background thread.
+     */
+    public synchronized void start(long refreshInterval)
+        throws ETSdkException
+    {
+        if (executor != null) {
+            return;
+        }
+        if (snapshot.loadTime == 0) {
+            refresh();
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ETDataExtensionMirror-"
+                        + dataExtension.getKey());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    refresh();
+                } catch (Throwable t) {
+                    // keep serving the previous snapshot
+                    logger.warn("error refreshing data extension "
+                            + dataExtension.getKey(), t);
+                }
+            }
+        }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reloading the rows. The current snapshot
+     * remains available.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String n : names) {
+            if (n.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //
+    // An immutable set of rows, their secondary indexes, and
+    // their primary key index. Single column keys are indexed
+    // by the value itself, multiple column keys by the list
+    // of values:
+    //
+
+    private static class Snapshot {
+        private ETDataExtensionRowSet rowSet = null;
+        private Map<Object, ETDataExtensionRow> rowsByKey = null;
+        private long loadTime = 0;
+
+        private Snapshot() {
+            rowSet = new ETDataExtensionRowSet(
+                    Collections.<ETDataExtensionRow>emptyList());
+            rowsByKey = Collections.emptyMap();
+        }
+
+        // the same rows with different secondary indexes:
+        private Snapshot(Snapshot snapshot,
+                         Map<String, ETDataExtensionRowSet.IndexType> indexes)
+        {
+            this.rowSet = new ETDataExtensionRowSet(snapshot.rowSet.getRows(), indexes);
+            this.rowsByKey = snapshot.rowsByKey;
+            this.loadTime = snapshot.loadTime;
+        }
+
+        private Snapshot(List<ETDataExtensionRow> rows,
+                         List<String> primaryKeyColumnNames,
+                         Map<String, ETDataExtensionRowSet.IndexType> indexes,
+                         long loadTime)
+        {
+            this.rowSet = new ETDataExtensionRowSet(rows, indexes);
+            this.loadTime = loadTime;
+
+            int keyColumnCount = primaryKeyColumnNames.size();
+            // sized so the index never has to be rehashed:
+            rowsByKey = new HashMap<Object, ETDataExtensionRow>(rows.size() * 4 / 3 + 1);
+            for (ETDataExtensionRow row : rows) {
+                Object key = null;
+                if (keyColumnCount == 1) {
+                    key = row.getColumn(primaryKeyColumnNames.get(0));
+                } else {
+                    String[] values = new String[keyColumnCount];
+                    for (int i = 0; i < keyColumnCount; i++) {
+                        values[i] = row.getColumn(primaryKeyColumnNames.get(i));
+                    }
+                    key = Arrays.asList(values);
+                }
+                rowsByKey.put(key, row);
+            }
+        }
+    }
+}
@@ -34,30 +34,110 @@
 
 package com.exacttarget.fuelsdk;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
 import com.exacttarget.fuelsdk.annotations.ExternalName;
 import com.exacttarget.fuelsdk.annotations.InternalName;
 import com.exacttarget.fuelsdk.annotations.SoapObject;
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.APIProperty;
 import com.exacttarget.fuelsdk.internal.DataExtensionObject;
 
 /**
  * An <code>ETDataExtensionRow</code> object represents a
  * data extension row in the Salesforce Marketing Cloud.
+ *
+ * A row created with an <code>ETDataExtensionSchema</code> (as
+ * rows retrieved from a data extension are) stores its values in
+ * an array indexed by the schema's column ordinals rather than in
+ * a map of its own; the API is the same either way.
+ *
+ * The typed accessors (<code>getLong</code>, <code>getDecimal</code>,
+ * <code>getDate</code>, etc.) read values parsed when they were set
+ * for columns typed in the row's schema, and parse the string value
+ * otherwise. Null (or empty) values read as zero, false, or
+ * <code>null</code>; use <code>isNull</code> to tell them apart.
+ * Dates are read in the formats returned by the SOAP and REST APIs,
+ * in the default time zone, and written in the SOAP format.
  */
 
 @SoapObject(internalType = DataExtensionObject.class)
 public class ETDataExtensionRow extends ETSoapObject {
+    // marks a column that is present with a null value
+    // (a null array element means the column isn't set):
+    private static final String NULL_VALUE = new String("null");
+
+    // the schema of the last row retrieved on each thread, so
+    // consecutive rows with the same columns share a schema:
+    private static final ThreadLocal<ETDataExtensionSchema> lastSchema =
+            new ThreadLocal<ETDataExtensionSchema>();
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("M/d/yyyy h:mm:ss a", Locale.US);
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+
     @ExternalName("dataExtensionKey")
     @InternalName("customerKey")
     private String dataExtensionKey = null;
     @ExternalName("columns")
     @InternalName("properties")
-    private Map<String, String> columns = new HashMap<String, String>();
+    private Map<String, String> columns = null;
+
+    private ETDataExtensionSchema schema = null;
+    private String[] values = null;
+    private long[] modifiedColumns = null;
+    // parsed values of typed columns (indexed by the schema's
+    // slots), and which of them parsed successfully:
+    private long[] longValues = null;
+    private BigDecimal[] decimalValues = null;
+    private long[] parsedColumns = null;
+    // columns set that aren't in the schema:
+    private Map<String, String> extraColumns = null;
+
+    public ETDataExtensionRow() {
+        columns = new HashMap<String, String>();
+    }
+
+    public ETDataExtensionRow(ETDataExtensionSchema schema) {
+        setSchema(schema);
+    }
 
-    public ETDataExtensionRow() {}
+    private void setSchema(ETDataExtensionSchema schema) {
+        this.schema = schema;
+        values = new String[schema.size()];
+        columns = new SchemaColumns();
+        if (schema.hasTypes()) {
+            if (schema.getLongSlotCount() > 0) {
+                longValues = new long[schema.getLongSlotCount()];
+            }
+            if (schema.getDecimalSlotCount() > 0) {
+                decimalValues = new BigDecimal[schema.getDecimalSlotCount()];
+            }
+            parsedColumns = new long[(schema.size() + 63) >> 6];
+        }
+    }
 
     @Override
     public String getId() {
@@ -78,7 +158,26 @@ public class ETDataExtensionRow extends ETSoapObject {
         this.dataExtensionKey = dataExtensionKey;
     }
 
+    /**
+     * Returns the schema the row's values are stored by,
+     * or <code>null</code> if the row has none.
+     */
+    public ETDataExtensionSchema getSchema() {
+        return schema;
+    }
+
     public String getColumn(String name) {
+        if (schema != null) {
+            int ordinal = schema.getOrdinal(name);
+            if (ordinal != -1) {
+                String value = values[ordinal];
+                return value == NULL_VALUE ? null : value;
+            }
+            if (extraColumns == null) {
+                return null;
+            }
+            return extraColumns.get(name.toLowerCase());
+        }
         return columns.get(name.toLowerCase());
     }
 
@@ -87,16 +186,531 @@ public class ETDataExtensionRow extends ETSoapObject {
     }
 
     public void setColumn(String name, String value, boolean setModified) {
+        int ordinal = setString(name, value, setModified);
+        if (ordinal != -1 && schema.getSlot(ordinal) != -1) {
+            parse(ordinal, value);
+        }
+    }
+
+    //
+    // Sets the string value of a column, returning its
+    // ordinal, or -1 if it isn't in the row's schema:
+    //
+
+    private int setString(String name, String value, boolean setModified) {
+        if (schema != null) {
+            int ordinal = schema.getOrdinal(name);
+            if (ordinal != -1) {
+                if (setModified) {
+                    setColumnModified(ordinal, true);
+                }
+                values[ordinal] = value == null ? NULL_VALUE : value;
+                return ordinal;
+            }
+            if (extraColumns == null) {
+                extraColumns = new HashMap<String, String>();
+            }
+            if (setModified) {
+                setModified(name, true);
+            }
+            extraColumns.put(name.toLowerCase(), value);
+            return -1;
+        }
         if (setModified) {
             setModified(name, true);
         }
         columns.put(name.toLowerCase(), value);
+        return -1;
+    }
+
+    /**
+     * Returns true if the column is not set, or
+     * is set to <code>null</code> or an empty string.
+     */
+    public boolean isNull(String name) {
+        String value = getColumn(name);
+        return value == null || value.length() == 0;
+    }
+
+    public long getLong(String name) {
+        int ordinal = getParsedOrdinal(name);
+        if (ordinal != -1) {
+            Type type = schema.getType(ordinal);
+            if (type == Type.NUMBER) {
+                return longValues[schema.getSlot(ordinal)];
+            }
+            if (type == Type.DECIMAL) {
+                BigDecimal value = decimalValues[schema.getSlot(ordinal)];
+                try {
+                    return value.longValueExact();
+                } catch (ArithmeticException ex) {
+                    // (fail as parsing the string value would)
+                    throw new NumberFormatException("value of column " + name
+                            + " not a long: " + value);
+                }
+            }
+        }
+        String value = getColumn(name);
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    public int getInt(String name) {
+        long value = getLong(name);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("value of column " + name
+                    + " out of range for int: " + value);
+        }
+        return (int) value;
+    }
+
+    public double getDouble(String name) {
+        int ordinal = getParsedOrdinal(name);
+        if (ordinal != -1) {
+            Type type = schema.getType(ordinal);
+            if (type == Type.DECIMAL) {
+                return decimalValues[schema.getSlot(ordinal)].doubleValue();
+            }
+            if (type == Type.NUMBER) {
+                return longValues[schema.getSlot(ordinal)];
+            }
+        }
+        String value = getColumn(name);
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        return Double.parseDouble(value.trim());
+    }
+
+    public BigDecimal getDecimal(String name) {
+        int ordinal = getParsedOrdinal(name);
+        if (ordinal != -1) {
+            Type type = schema.getType(ordinal);
+            if (type == Type.DECIMAL) {
+                return decimalValues[schema.getSlot(ordinal)];
+            }
+            if (type == Type.NUMBER) {
+                return BigDecimal.valueOf(longValues[schema.getSlot(ordinal)]);
+            }
+        }
+        String value = getColumn(name);
+        if (value == null || value.length() == 0) {
+            return null;
+        }
+        return new BigDecimal(value.trim());
+    }
+
+    public boolean getBoolean(String name) {
+        int ordinal = getParsedOrdinal(name);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.BOOLEAN) {
+            return longValues[schema.getSlot(ordinal)] != 0;
+        }
+        String value = getColumn(name);
+        if (value == null || value.length() == 0) {
+            return false;
+        }
+        Boolean b = parseBoolean(value);
+        if (b == null) {
+            throw new IllegalArgumentException("value of column " + name
+                    + " is not a boolean: " + value);
+        }
+        return b;
+    }
+
+    public Date getDate(String name) {
+        int ordinal = getParsedOrdinal(name);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.DATE) {
+            return new Date(longValues[schema.getSlot(ordinal)]);
+        }
+        String value = getColumn(name);
+        if (value == null || value.length() == 0) {
+            return null;
+        }
+        return new Date(parseDate(value));
+    }
+
+    public void setLong(String name, long value) {
+        int ordinal = setString(name, Long.toString(value), true);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.NUMBER) {
+            longValues[schema.getSlot(ordinal)] = value;
+            setColumnParsed(ordinal, true);
+        } else if (ordinal != -1 && schema.getSlot(ordinal) != -1) {
+            parse(ordinal, values[ordinal]);
+        }
+    }
+
+    public void setInt(String name, int value) {
+        setLong(name, value);
+    }
+
+    public void setDecimal(String name, BigDecimal value) {
+        if (value == null) {
+            setColumn(name, null);
+            return;
+        }
+        int ordinal = setString(name, value.toPlainString(), true);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.DECIMAL) {
+            decimalValues[schema.getSlot(ordinal)] = value;
+            setColumnParsed(ordinal, true);
+        } else if (ordinal != -1 && schema.getSlot(ordinal) != -1) {
+            parse(ordinal, values[ordinal]);
+        }
+    }
+
+    public void setBoolean(String name, boolean value) {
+        int ordinal = setString(name, Boolean.toString(value), true);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.BOOLEAN) {
+            longValues[schema.getSlot(ordinal)] = value ? 1 : 0;
+            setColumnParsed(ordinal, true);
+        } else if (ordinal != -1 && schema.getSlot(ordinal) != -1) {
+            parse(ordinal, values[ordinal]);
+        }
+    }
+
+    public void setDate(String name, Date value) {
+        if (value == null) {
+            setColumn(name, null);
+            return;
+        }
+        int ordinal = setString(name, formatDate(value.getTime()), true);
+        if (ordinal != -1 && schema.getType(ordinal) == Type.DATE) {
+            // keep the milliseconds the format drops:
+            longValues[schema.getSlot(ordinal)] = value.getTime();
+            setColumnParsed(ordinal, true);
+        } else if (ordinal != -1 && schema.getSlot(ordinal) != -1) {
+            parse(ordinal, values[ordinal]);
+        }
+    }
+
+    //
+    // Returns the ordinal of the column if it's typed
+    // and its value parsed successfully, or -1 if not:
+    //
+
+    private int getParsedOrdinal(String name) {
+        if (parsedColumns == null) {
+            return -1;
+        }
+        int ordinal = schema.getOrdinal(name);
+        if (ordinal == -1
+                || (parsedColumns[ordinal >> 6] & (1L << ordinal)) == 0)
+        {
+            return -1;
+        }
+        return ordinal;
+    }
+
+    private void setColumnParsed(int ordinal, boolean value) {
+        if (value) {
+            parsedColumns[ordinal >> 6] |= 1L << ordinal;
+        } else {
+            parsedColumns[ordinal >> 6] &= ~(1L << ordinal);
+        }
+    }
+
+    private void parse(int ordinal, String value) {
+        boolean parsed = false;
+        if (value != null && value.length() > 0) {
+            int slot = schema.getSlot(ordinal);
+            try {
+                switch (schema.getType(ordinal)) {
+                  case NUMBER:
+                    longValues[slot] = Long.parseLong(value.trim());
+                    parsed = true;
+                    break;
+                  case DECIMAL:
+                    decimalValues[slot] = new BigDecimal(value.trim());
+                    parsed = true;
+                    break;
+                  case BOOLEAN:
+                    Boolean b = parseBoolean(value);
+                    if (b != null) {
+                        longValues[slot] = b ? 1 : 0;
+                        parsed = true;
+                    }
+                    break;
+                  case DATE:
+                    longValues[slot] = parseDate(value);
+                    parsed = true;
+                    break;
+                  default:
+                    break;
+                }
+            } catch (NumberFormatException ex) {
+                // left unparsed; the typed accessors will report it
+            } catch (DateTimeParseException ex) {
+                // left unparsed; the typed accessors will report it
+            }
+        }
+        setColumnParsed(ordinal, parsed);
+    }
+
+    static Boolean parseBoolean(String value) {
+        value = value.trim();
+        if (value.equalsIgnoreCase("true") || value.equals("1")
+                || value.equalsIgnoreCase("Y"))
+        {
+            return Boolean.TRUE;
+        }
+        if (value.equalsIgnoreCase("false") || value.equals("0")
+                || value.equalsIgnoreCase("N"))
+        {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    //
+    // Parses dates as returned by the SOAP API (e.g.,
+    // 1/15/2014 3:04:05 PM) and by the REST API (ISO 8601):
+    //
+
+    static long parseDate(String value) {
+        value = value.trim();
+        LocalDateTime dateTime = null;
+        if (value.indexOf('/') != -1) {
+            dateTime = parseSoapDate(value);
+            if (dateTime != null) {
+                // the common case, parsed without the formatter
+            } else if (value.indexOf(':') != -1) {
+                dateTime = LocalDateTime.parse(value, DATE_TIME_FORMAT);
+            } else {
+                dateTime = LocalDate.parse(value, DATE_FORMAT).atStartOfDay();
+            }
+        } else if (value.indexOf('T') != -1) {
+            if (value.endsWith("Z") || value.lastIndexOf('+') > value.indexOf('T')
+                    || value.lastIndexOf('-') > value.indexOf('T'))
+            {
+                return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+            }
+            dateTime = LocalDateTime.parse(value);
+        } else {
+            dateTime = LocalDate.parse(value).atStartOfDay();
+        }
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    //
+    // Parses M/d/yyyy h:mm:ss AM|PM (or just M/d/yyyy) by hand,
+    // returning null if the value is in any other form:
+    //
+
+    private static LocalDateTime parseSoapDate(String value) {
+        int[] fields = new int[6];
+        int field = 0;
+        int digits = 0;
+        int i = 0;
+        for (; i < value.length() && field < fields.length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                fields[field] = fields[field] * 10 + (c - '0');
+                if (++digits > 4) {
+                    return null;
+                }
+                continue;
+            }
+            char separator = field < 2 ? '/' : field == 2 ? ' ' : field < 5 ? ':' : ' ';
+            if (c != separator || digits == 0) {
+                return null;
+            }
+            field++;
+            digits = 0;
+        }
+        int hour = fields[3];
+        if (field == 6) {
+            String marker = value.substring(i).trim();
+            if (marker.equalsIgnoreCase("PM")) {
+                hour = hour % 12 + 12;
+            } else if (marker.equalsIgnoreCase("AM")) {
+                hour = hour % 12;
+            } else {
+                return null;
+            }
+        } else if (field != 2 || digits == 0 || i != value.length()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(fields[2], fields[0], fields[1],
+                                    hour, fields[4], fields[5]);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    static String formatDate(long time) {
+        return DATE_TIME_FORMAT.format(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(time), ZoneId.systemDefault()));
     }
 
     public Set<String> getColumnNames() {
+        if (schema != null) {
+            Set<String> names = new LinkedHashSet<String>();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    names.add(schema.getLowerCaseColumnName(i));
+                }
+            }
+            if (extraColumns != null) {
+                names.addAll(extraColumns.keySet());
+            }
+            return names;
+        }
         return columns.keySet();
     }
 
+    @Override
+    public Boolean getModified(String property) {
+        if (schema != null) {
+            int ordinal = schema.getOrdinal(property);
+            if (ordinal != -1) {
+                return isColumnModified(ordinal) ? Boolean.TRUE : null;
+            }
+        }
+        return super.getModified(property);
+    }
+
+    @Override
+    public Boolean setModified(String property, Boolean value) {
+        if (schema != null) {
+            int ordinal = schema.getOrdinal(property);
+            if (ordinal != -1) {
+                Boolean previous = isColumnModified(ordinal) ? Boolean.TRUE : null;
+                setColumnModified(ordinal, value != null && value);
+                return previous;
+            }
+        }
+        return super.setModified(property, value);
+    }
+
+    @Override
+    public List<String> getAllModified() {
+        List<String> modified = super.getAllModified();
+        if (schema != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (isColumnModified(i)) {
+                    modified.add(schema.getColumnName(i));
+                }
+            }
+        }
+        return modified;
+    }
+
+    private boolean isColumnModified(int ordinal) {
+        return modifiedColumns != null
+                && (modifiedColumns[ordinal >> 6] & (1L << ordinal)) != 0;
+    }
+
+    private void setColumnModified(int ordinal, boolean value) {
+        if (modifiedColumns == null) {
+            if (!value) {
+                return;
+            }
+            modifiedColumns = new long[(values.length + 63) >> 6];
+        }
+        if (value) {
+            modifiedColumns[ordinal >> 6] |= 1L << ordinal;
+        } else {
+            modifiedColumns[ordinal >> 6] &= ~(1L << ordinal);
+        }
+    }
+
+    //
+    // Rows retrieved from a data extension are converted here
+    // directly (rather than via a map of columns), sharing the
+    // schema of the previous row when the columns are the same:
+    //
+
+    @Override
+    public ETSoapObject fromInternal(APIObject internalObject)
+        throws ETSdkException
+    {
+        if (!(internalObject instanceof DataExtensionObject) || schema != null) {
+            return super.fromInternal(internalObject);
+        }
+
+        DataExtensionObject internalRow = (DataExtensionObject) internalObject;
+
+        if (internalRow.getClient() != null
+                && internalRow.getClient().getID() != null)
+        {
+            setClientId(internalRow.getClient().getID());
+        }
+        if (internalRow.getCustomerKey() != null) {
+            dataExtensionKey = internalRow.getCustomerKey();
+        }
+
+        if (internalRow.getProperties() != null) {
+            List<APIProperty> properties = internalRow.getProperties().getProperty();
+            List<String> names = new ArrayList<String>(properties.size());
+            List<String> values = new ArrayList<String>(properties.size());
+            for (APIProperty property : properties) {
+                names.add(property.getName());
+                values.add(property.getValue());
+            }
+            setColumns(names, values, true);
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the specified columns, switching the row to a schema
+     * shared with the previous row set this way on the same thread
+     * if it has the same columns (or a new one if not). The row
+     * must not have any columns set yet.
+     */
+    void setColumns(List<String> names, List<String> values, boolean setModified) {
+        ETDataExtensionSchema schema = lastSchema.get();
+        if (schema == null || !schema.matches(names)) {
+            try {
+                if (schema != null && schema.hasTypes()) {
+                    // same data extension, different columns (or order)
+                    schema = schema.forColumnNames(names);
+                } else {
+                    schema = new ETDataExtensionSchema(names);
+                }
+            } catch (IllegalArgumentException ex) {
+                // duplicate column names; fall back to a map
+                for (int i = 0; i < names.size(); i++) {
+                    setColumn(names.get(i), values.get(i), setModified);
+                }
+                return;
+            }
+            lastSchema.set(schema);
+        }
+
+        setSchema(schema);
+        for (int i = 0; i < this.values.length; i++) {
+            String value = values.get(i);
+            this.values[i] = value == null ? NULL_VALUE : value;
+            if (schema.getSlot(i) != -1) {
+                parse(i, value);
+            }
+        }
+        if (setModified && this.values.length > 0) {
+            modifiedColumns = new long[(this.values.length + 63) >> 6];
+            for (int i = 0; i < this.values.length; i++) {
+                modifiedColumns[i >> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Sets the schema the next rows retrieved on this thread are
+     * matched against (typically, that of the data extension being
+     * selected from, so retrieved rows get its column types), or
+     * clears it if <code>null</code>.
+     */
+    static void setRetrievedSchema(ETDataExtensionSchema schema) {
+        if (schema != null) {
+            lastSchema.set(schema);
+        } else {
+            lastSchema.remove();
+        }
+    }
+
     /**
      * @deprecated
      * Use <code>getColumn</code> and <code>setColumn</code>.
@@ -117,4 +731,107 @@ public class ETDataExtensionRow extends ETSoapObject {
             setColumn(column.getKey(), column.getValue());
         }
     }
+
+    //
+    // A live map view of the columns of a row with a schema, so
+    // getColumns (and the conversion to the internal object,
+    // which uses it) works the same as for rows without one:
+    //
+
+    private class SchemaColumns extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            return getColumn((String) key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+            int ordinal = schema.getOrdinal((String) key);
+            if (ordinal != -1) {
+                return values[ordinal] != null;
+            }
+            return extraColumns != null
+                    && extraColumns.containsKey(((String) key).toLowerCase());
+        }
+
+        @Override
+        public String put(String key, String value) {
+            String previous = getColumn(key);
+            setColumn(key, value, false);
+            return previous;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    return new SchemaColumnIterator();
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (String value : values) {
+                        if (value != null) {
+                            size++;
+                        }
+                    }
+                    if (extraColumns != null) {
+                        size += extraColumns.size();
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+
+    private class SchemaColumnIterator implements Iterator<Map.Entry<String, String>> {
+        private int next = -1;
+        private Iterator<Map.Entry<String, String>> extraIterator = null;
+
+        private SchemaColumnIterator() {
+            advance();
+        }
+
+        private void advance() {
+            next++;
+            while (next < values.length && values[next] == null) {
+                next++;
+            }
+            if (next >= values.length && extraIterator == null && extraColumns != null) {
+                extraIterator = extraColumns.entrySet().iterator();
+            }
+        }
+
+        public boolean hasNext() {
+            return next < values.length
+                    || (extraIterator != null && extraIterator.hasNext());
+        }
+
+        public Map.Entry<String, String> next() {
+            if (next < values.length) {
+                final int ordinal = next;
+                advance();
+                String value = values[ordinal];
+                return new AbstractMap.SimpleEntry<String, String>(
+                        schema.getLowerCaseColumnName(ordinal),
+                        value == NULL_VALUE ? null : value);
+            }
+            if (extraIterator != null) {
+                return extraIterator.next();
+            }
+            throw new NoSuchElementException();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,597 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+
+/**
+ * An <code>ETDataExtensionRowSet</code> is an immutable set of
+ * data extension rows held in memory, with secondary indexes on
+ * the columns they're most often filtered by. Hash indexes answer
+ * equality (<code>=</code>, <code>in</code>) and sorted indexes
+ * also answer ranges (<code>&lt;</code>, <code>&lt;=</code>,
+ * <code>&gt;</code>, <code>&gt;=</code>, <code>between</code>).
+ *
+ * <code>select</code> answers an expression from the indexes
+ * where it can, intersecting the results of the indexed operands
+ * of an <code>and</code> (and checking the rest against the
+ * remaining rows) and merging those of an <code>or</code>;
+ * anything else is answered by scanning the rows. Rows are
+ * returned in their original order either way.
+ *
+ * Values are compared by the column types of the rows' schema
+ * (numbers numerically, dates chronologically, and so on), and
+ * as case sensitive strings if the column is untyped. Values that
+ * don't parse as the column's type never match and aren't indexed.
+ * A comparison with a null value is false, and <code>not</code>
+ * simply negates it.
+ */
+
+public class ETDataExtensionRowSet {
+    public enum IndexType {
+        HASH,
+        SORTED
+    }
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private List<ETDataExtensionRow> rows = null;
+    private ETDataExtensionSchema schema = null;
+    private Map<String, Index> indexes = new HashMap<String, Index>();
+
+    public ETDataExtensionRowSet(List<ETDataExtensionRow> rows) {
+        this(rows, Collections.<String, IndexType>emptyMap());
+    }
+
+    /**
+     * Creates a row set with an index of the specified
+     * type on each of the specified columns.
+     */
+    public ETDataExtensionRowSet(List<ETDataExtensionRow> rows,
+                                 Map<String, IndexType> indexes)
+    {
+        this.rows = Collections.unmodifiableList(
+                new ArrayList<ETDataExtensionRow>(rows));
+        // rows retrieved together share their schema:
+        if (!rows.isEmpty()) {
+            schema = rows.get(0).getSchema();
+        }
+        for (Map.Entry<String, IndexType> entry : indexes.entrySet()) {
+            String column = entry.getKey().toLowerCase();
+            Type type = getType(column);
+            if (entry.getValue() == IndexType.HASH) {
+                this.indexes.put(column, new HashIndex(column, type));
+            } else {
+                this.indexes.put(column, new SortedIndex(column, type));
+            }
+        }
+    }
+
+    public List<ETDataExtensionRow> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Returns the type of index on the specified
+     * column, or <code>null</code> if there is none.
+     */
+    public IndexType getIndexType(String column) {
+        Index index = indexes.get(column.toLowerCase());
+        if (index == null) {
+            return null;
+        }
+        return index instanceof HashIndex ? IndexType.HASH : IndexType.SORTED;
+    }
+
+    public List<ETDataExtensionRow> select(String filter)
+        throws ETSdkException
+    {
+        return select(ETExpression.parse(filter));
+    }
+
+    /**
+     * Returns the rows matching the expression (all rows
+     * if the expression has no operator).
+     */
+    public List<ETDataExtensionRow> select(ETExpression expression)
+        throws ETSdkException
+    {
+        if (expression == null || expression.getOperator() == null) {
+            return rows;
+        }
+        List<ETDataExtensionRow> matches = new ArrayList<ETDataExtensionRow>();
+        int[] positions = lookup(expression);
+        if (positions != null) {
+            for (int position : positions) {
+                matches.add(rows.get(position));
+            }
+        } else {
+            for (ETDataExtensionRow row : rows) {
+                if (matches(row, expression)) {
+                    matches.add(row);
+                }
+            }
+        }
+        return matches;
+    }
+
+    //
+    // Returns the (ascending) positions of the rows matching the
+    // expression, or null if it can't be answered from the indexes:
+    //
+
+    private int[] lookup(ETExpression expression)
+        throws ETSdkException
+    {
+        int[] positions = null;
+        switch (expression.getOperator()) {
+          case AND:
+            List<ETExpression> residual = new ArrayList<ETExpression>();
+            for (ETExpression subexpression : expression.getSubexpressions()) {
+                int[] p = lookup(subexpression);
+                if (p == null) {
+                    residual.add(subexpression);
+                } else {
+                    positions = positions == null ? p : intersect(positions, p);
+                }
+            }
+            if (positions == null) {
+                return null;
+            }
+            if (residual.isEmpty()) {
+                return positions;
+            }
+            // check the rest against the rows the indexes left
+            // (into a new array, since positions may be an index's):
+            int[] matches = new int[positions.length];
+            int count = 0;
+            for (int position : positions) {
+                boolean match = true;
+                for (ETExpression subexpression : residual) {
+                    if (!matches(rows.get(position), subexpression)) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    matches[count++] = position;
+                }
+            }
+            return Arrays.copyOf(matches, count);
+          case OR:
+            positions = NO_POSITIONS;
+            for (ETExpression subexpression : expression.getSubexpressions()) {
+                int[] p = lookup(subexpression);
+                if (p == null) {
+                    return null;
+                }
+                positions = union(positions, p);
+            }
+            return positions;
+          default:
+            break;
+        }
+
+        if (expression.getProperty() == null) {
+            return null; // NOT
+        }
+        Index index = indexes.get(expression.getProperty().toLowerCase());
+        if (index == null) {
+            return null;
+        }
+        List<String> values = expression.getValues();
+        switch (expression.getOperator()) {
+          case EQUALS:
+            return index.get(index.toKey(values.get(0)));
+          case IN:
+            positions = NO_POSITIONS;
+            for (String value : values) {
+                positions = union(positions, index.get(index.toKey(value)));
+            }
+            return positions;
+          default:
+            break;
+        }
+        if (!(index instanceof SortedIndex)) {
+            return null;
+        }
+        SortedIndex sortedIndex = (SortedIndex) index;
+        Comparable<Object> key = index.toKey(values.get(0));
+        if (key == null) {
+            return NO_POSITIONS; // nothing compares to an unparseable value
+        }
+        switch (expression.getOperator()) {
+          case LESS_THAN:
+            return sortedIndex.range(null, false, key, false);
+          case LESS_THAN_OR_EQUALS:
+            return sortedIndex.range(null, false, key, true);
+          case GREATER_THAN:
+            return sortedIndex.range(key, false, null, false);
+          case GREATER_THAN_OR_EQUALS:
+            return sortedIndex.range(key, true, null, false);
+          case BETWEEN:
+            Comparable<Object> to = index.toKey(values.get(1));
+            if (to == null) {
+                return NO_POSITIONS;
+            }
+            return sortedIndex.range(key, true, to, true);
+          default:
+            return null;
+        }
+    }
+
+    private boolean matches(ETDataExtensionRow row, ETExpression expression)
+        throws ETSdkException
+    {
+        switch (expression.getOperator()) {
+          case AND:
+            for (ETExpression subexpression : expression.getSubexpressions()) {
+                if (!matches(row, subexpression)) {
+                    return false;
+                }
+            }
+            return true;
+          case OR:
+            for (ETExpression subexpression : expression.getSubexpressions()) {
+                if (matches(row, subexpression)) {
+                    return true;
+                }
+            }
+            return false;
+          case NOT:
+            return !matches(row, expression.getSubexpressions().get(0));
+          case IS_NULL:
+            return row.isNull(expression.getProperty());
+          case IS_NOT_NULL:
+            return !row.isNull(expression.getProperty());
+          default:
+            break;
+        }
+
+        String column = expression.getProperty().toLowerCase();
+        Type type = getType(column);
+        Comparable<Object> value = toKey(type, row.getColumn(column));
+        if (value == null) {
+            return false;
+        }
+        List<String> values = expression.getValues();
+        switch (expression.getOperator()) {
+          case EQUALS:
+            return value.equals(toKey(type, values.get(0)));
+          case NOT_EQUALS:
+            return !value.equals(toKey(type, values.get(0)));
+          case IN:
+            for (String v : values) {
+                if (value.equals(toKey(type, v))) {
+                    return true;
+                }
+            }
+            return false;
+          case LIKE:
+            return toPattern(values.get(0)).matcher(row.getColumn(column)).matches();
+          default:
+            break;
+        }
+        Comparable<Object> key = toKey(type, values.get(0));
+        if (key == null) {
+            return false;
+        }
+        switch (expression.getOperator()) {
+          case LESS_THAN:
+            return value.compareTo(key) < 0;
+          case LESS_THAN_OR_EQUALS:
+            return value.compareTo(key) <= 0;
+          case GREATER_THAN:
+            return value.compareTo(key) > 0;
+          case GREATER_THAN_OR_EQUALS:
+            return value.compareTo(key) >= 0;
+          case BETWEEN:
+            Comparable<Object> to = toKey(type, values.get(1));
+            return to != null && value.compareTo(key) >= 0 && value.compareTo(to) <= 0;
+          default:
+            throw new ETSdkException("unsupported operator: " + expression.getOperator());
+        }
+    }
+
+    private Type getType(String column) {
+        if (schema == null) {
+            return null;
+        }
+        int ordinal = schema.getOrdinal(column);
+        return ordinal == -1 ? null : schema.getType(ordinal);
+    }
+
+    //
+    // Converts a value to the (comparable) type it's indexed
+    // and compared by, or null if it's null or doesn't parse:
+    //
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> toKey(Type type, String value) {
+        if (value == null || value.length() == 0) {
+            return null;
+        }
+        Comparable<?> key = value;
+        if (type != null) {
+            try {
+                switch (type) {
+                  case NUMBER:
+                    key = Long.parseLong(value.trim());
+                    break;
+                  case DECIMAL:
+                    // so 1.5 and 1.50 are equal (and hash alike):
+                    key = new BigDecimal(value.trim()).stripTrailingZeros();
+                    break;
+                  case BOOLEAN:
+                    key = ETDataExtensionRow.parseBoolean(value);
+                    break;
+                  case DATE:
+                    key = ETDataExtensionRow.parseDate(value);
+                    break;
+                  default:
+                    break;
+                }
+            } catch (RuntimeException ex) {
+                // NumberFormatException, DateTimeParseException
+                return null;
+            }
+        }
+        return (Comparable<Object>) key;
+    }
+
+    //
+    // LIKE patterns: % matches any characters, _ any one:
+    //
+
+    private static Pattern toPattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '%' || c == '_') {
+                if (i > start) {
+                    regex.append(Pattern.quote(like.substring(start, i)));
+                }
+                regex.append(c == '%' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < like.length()) {
+            regex.append(Pattern.quote(like.substring(start)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private abstract class Index {
+        protected String column = null;
+        protected Type type = null;
+
+        Index(String column, Type type) {
+            this.column = column;
+            this.type = type;
+        }
+
+        Comparable<Object> toKey(String value) {
+            return ETDataExtensionRowSet.toKey(type, value);
+        }
+
+        abstract int[] get(Comparable<Object> key);
+    }
+
+    //
+    // Maps each value to the positions of the rows having it:
+    //
+
+    private class HashIndex extends Index {
+        private Map<Object, int[]> positions = new HashMap<Object, int[]>();
+
+        HashIndex(String column, Type type) {
+            super(column, type);
+            Map<Object, int[]> counts = new HashMap<Object, int[]>();
+            Comparable<?>[] keys = new Comparable<?>[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                keys[i] = toKey(rows.get(i).getColumn(column));
+                if (keys[i] != null) {
+                    int[] count = counts.get(keys[i]);
+                    if (count == null) {
+                        counts.put(keys[i], new int[] { 1 });
+                    } else {
+                        count[0]++;
+                    }
+                }
+            }
+            for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+                positions.put(entry.getKey(), new int[entry.getValue()[0]]);
+                entry.getValue()[0] = 0;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    int[] count = counts.get(keys[i]);
+                    positions.get(keys[i])[count[0]++] = i;
+                }
+            }
+        }
+
+        int[] get(Comparable<Object> key) {
+            if (key == null) {
+                return NO_POSITIONS;
+            }
+            int[] p = positions.get(key);
+            return p != null ? p : NO_POSITIONS;
+        }
+    }
+
+    //
+    // The non-null values in ascending order, with the positions
+    // of the rows having them (ascending among equal values):
+    //
+
+    private class SortedIndex extends Index {
+        private Comparable<Object>[] keys = null;
+        private int[] positions = null;
+
+        @SuppressWarnings("unchecked")
+        SortedIndex(String column, Type type) {
+            super(column, type);
+            final Comparable<Object>[] rowKeys = new Comparable[rows.size()];
+            List<Integer> order = new ArrayList<Integer>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                rowKeys[i] = toKey(rows.get(i).getColumn(column));
+                if (rowKeys[i] != null) {
+                    order.add(i);
+                }
+            }
+            // stable, so equal values keep their positions ascending:
+            Collections.sort(order, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return rowKeys[a].compareTo(rowKeys[b]);
+                }
+            });
+            keys = new Comparable[order.size()];
+            positions = new int[order.size()];
+            for (int i = 0; i < order.size(); i++) {
+                positions[i] = order.get(i);
+                keys[i] = rowKeys[positions[i]];
+            }
+        }
+
+        int[] get(Comparable<Object> key) {
+            if (key == null) {
+                return NO_POSITIONS;
+            }
+            return range(key, true, key, true);
+        }
+
+        //
+        // Returns the positions of the rows with values between
+        // from and to (null meaning unbounded), in ascending order:
+        //
+
+        int[] range(Comparable<Object> from, boolean fromInclusive,
+                    Comparable<Object> to, boolean toInclusive)
+        {
+            int start = from == null ? 0 : bound(from, !fromInclusive);
+            int end = to == null ? keys.length : bound(to, toInclusive);
+            if (start >= end) {
+                return NO_POSITIONS;
+            }
+            int[] p = Arrays.copyOfRange(positions, start, end);
+            Arrays.sort(p);
+            return p;
+        }
+
+        //
+        // Returns the index of the first key greater than (if
+        // after is true) or greater than or equal to the key:
+        //
+
+        private int bound(Comparable<Object> key, boolean after) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int c = keys[middle].compareTo(key);
+                if (c < 0 || (after && c == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+
+/**
+ * An <code>ETDataExtensionSchema</code> maps the column names of a
+ * data extension to ordinals. Rows created with a schema (see
+ * <code>ETDataExtension.getSchema</code>) share it and store their
+ * values in a plain array indexed by ordinal, instead of each row
+ * holding a map of column names to values. Rows retrieved from
+ * a data extension share a schema automatically.
+ *
+ * A schema may also carry the column types; rows then parse the
+ * values of number, decimal, boolean, and date columns once, when
+ * they are set, into primitive storage read by the typed accessors
+ * of <code>ETDataExtensionRow</code>.
+ *
+ * Column names are case insensitive. Schemas are immutable,
+ * so they can be shared between threads.
+ */
+
+public class ETDataExtensionSchema {
+    private List<String> names = null;
+    private String[] lowerCaseNames = null;
+    // keyed by both the names as given and their lower case form,
+    // so the usual lookups don't have to lower case the name:
+    private Map<String, Integer> ordinals = null;
+
+    private Type[] types = null;
+    // index of each typed column's value in the row's long
+    // (number, boolean, date) or decimal array, -1 if untyped:
+    private int[] slots = null;
+    private int longSlotCount = 0;
+    private int decimalSlotCount = 0;
+
+    public ETDataExtensionSchema(List<String> names) {
+        this(names, null);
+    }
+
+    /**
+     * Creates a schema with the specified column names and types
+     * (<code>null</code> types, or a <code>null</code> list, for
+     * columns whose values are only kept as strings).
+     */
+    public ETDataExtensionSchema(List<String> names, List<Type> types) {
+        if (types != null && types.size() != names.size()) {
+            throw new IllegalArgumentException("expected " + names.size()
+                    + " column types, got " + types.size());
+        }
+        this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+        lowerCaseNames = new String[names.size()];
+        ordinals = new HashMap<String, Integer>(names.size() * 4);
+        this.types = new Type[names.size()];
+        slots = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            String lowerCaseName = name.toLowerCase();
+            if (ordinals.containsKey(lowerCaseName)) {
+                throw new IllegalArgumentException("duplicate column name: " + name);
+            }
+            lowerCaseNames[i] = lowerCaseName;
+            ordinals.put(name, i);
+            ordinals.put(lowerCaseName, i);
+
+            Type type = types != null ? types.get(i) : null;
+            this.types[i] = type;
+            if (type == Type.NUMBER || type == Type.BOOLEAN || type == Type.DATE) {
+                slots[i] = longSlotCount++;
+            } else if (type == Type.DECIMAL) {
+                slots[i] = decimalSlotCount++;
+            } else {
+                slots[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns a schema for the specified data extension columns.
+     */
+    public static ETDataExtensionSchema forColumns(List<ETDataExtensionColumn> columns) {
+        List<String> names = new ArrayList<String>(columns.size());
+        List<Type> types = new ArrayList<Type>(columns.size());
+        for (ETDataExtensionColumn column : columns) {
+            names.add(column.getName());
+            types.add(column.getType());
+        }
+        return new ETDataExtensionSchema(names, types);
+    }
+
+    /**
+     * Returns a schema with the specified columns, typed
+     * as in this schema (untyped if not in this schema).
+     */
+    public ETDataExtensionSchema forColumnNames(List<String> names) {
+        List<Type> types = new ArrayList<Type>(names.size());
+        for (String name : names) {
+            int ordinal = getOrdinal(name);
+            types.add(ordinal != -1 ? this.types[ordinal] : null);
+        }
+        return new ETDataExtensionSchema(names, types);
+    }
+
+    public int size() {
+        return lowerCaseNames.length;
+    }
+
+    /**
+     * Returns the column names, as specified when
+     * the schema was created.
+     */
+    public List<String> getColumnNames() {
+        return names;
+    }
+
+    public String getColumnName(int ordinal) {
+        return names.get(ordinal);
+    }
+
+    String getLowerCaseColumnName(int ordinal) {
+        return lowerCaseNames[ordinal];
+    }
+
+    /**
+     * Returns the type of the specified column,
+     * or <code>null</code> if it is untyped.
+     */
+    public Type getType(int ordinal) {
+        return types[ordinal];
+    }
+
+    boolean hasTypes() {
+        return longSlotCount > 0 || decimalSlotCount > 0;
+    }
+
+    int getSlot(int ordinal) {
+        return slots[ordinal];
+    }
+
+    int getLongSlotCount() {
+        return longSlotCount;
+    }
+
+    int getDecimalSlotCount() {
+        return decimalSlotCount;
+    }
+
+    /**
+     * Returns the ordinal of the specified column,
+     * or -1 if the schema has no such column.
+     */
+    public int getOrdinal(String name) {
+        Integer ordinal = ordinals.get(name);
+        if (ordinal == null) {
+            ordinal = ordinals.get(name.toLowerCase());
+            if (ordinal == null) {
+                return -1;
+            }
+        }
+        return ordinal;
+    }
+
+    /**
+     * Returns true if the schema has exactly the specified
+     * columns, in the specified order.
+     */
+    boolean matches(List<String> names) {
+        if (names == this.names) {
+            return true;
+        }
+        if (names.size() != this.names.size()) {
+            return false;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (!names.get(i).equals(this.names.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,353 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETDataExtensionSchemaCache</code> caches the columns of
+ * data extensions, keyed by data extension customer key, for all
+ * <code>ETDataExtension</code> objects of an <code>ETClient</code>.
+ * Each entry holds the columns, an index of the columns by name,
+ * the primary key column names, and the row schema, so hydrating
+ * another object for the same data extension costs no retrieve.
+ *
+ * Entries expire <code>ttl</code> milliseconds after they were
+ * loaded, and can be invalidated explicitly (the client
+ * invalidates the data extensions it creates, updates or
+ * deletes). Data extensions with no columns (i.e., that don't
+ * exist) aren't cached. Keys are case insensitive, like
+ * customer keys. Use
+ * <code>preload</code> to load the columns of many data
+ * extensions with a single retrieve.
+ */
+
+public class ETDataExtensionSchemaCache {
+    private static Logger logger = Logger.getLogger(ETDataExtensionSchemaCache.class);
+
+    public static final long DEFAULT_TTL = 10 * 60 * 1000;
+    // keys per DataExtension.CustomerKey IN (...) retrieve:
+    public static final int MAX_KEYS_PER_RETRIEVE = 100;
+
+    private ETClient client = null;
+
+    private Map<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+
+    private volatile long ttl = DEFAULT_TTL;
+
+    public ETDataExtensionSchemaCache(ETClient client) {
+        this.client = client;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Sets the time (in milliseconds) after which entries expire.
+     * Zero or less means entries never expire.
+     */
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the entry for the specified data extension,
+     * retrieving its columns if they aren't cached (or the
+     * cached entry has expired).
+     */
+    public Entry get(String key)
+        throws ETSdkException
+    {
+        Entry entry = getIfPresent(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        //
+        // Two threads missing on the same key at the same time
+        // both retrieve; the later entry simply replaces the
+        // earlier one:
+        //
+
+        ETExpression expression = new ETExpression();
+        expression.setProperty("DataExtension.CustomerKey");
+        expression.setOperator(ETExpression.Operator.EQUALS);
+        expression.addValue(key);
+
+        ETFilter filter = new ETFilter();
+        filter.setExpression(expression);
+
+        ETResponse<ETDataExtensionColumn> response =
+                ETDataExtensionColumn.retrieve(client,
+                                               ETDataExtensionColumn.class,
+                                               null, // page
+                                               null, // pageSize
+                                               filter);
+        if (response.getStatus() == ETResult.Status.ERROR) {
+            throw new ETSdkException("could not retrieve columns of data extension "
+                    + key + ": " + response.getResponseMessage());
+        }
+
+        entry = new Entry(key, response.getObjects(), System.currentTimeMillis());
+        if (!entry.getColumns().isEmpty()) {
+            entries.put(toMapKey(key), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the entry for the specified data extension, or
+     * <code>null</code> if it isn't cached or has expired.
+     */
+    public Entry getIfPresent(String key) {
+        Entry entry = entries.get(toMapKey(key));
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(toMapKey(key), entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Loads the columns of the specified data extensions that
+     * aren't already cached, retrieving the columns of up to
+     * <code>MAX_KEYS_PER_RETRIEVE</code> data extensions with
+     * one <code>DataExtension.CustomerKey IN (...)</code>
+     * retrieve. Data extensions that don't exist aren't
+     * cached, as by <code>get</code>.
+     */
+    public void preload(Collection<String> keys)
+        throws ETSdkException
+    {
+        List<String> missing = new ArrayList<String>();
+        Set<String> seen = new HashSet<String>();
+        for (String key : keys) {
+            if (seen.add(toMapKey(key)) && getIfPresent(key) == null) {
+                missing.add(key);
+            }
+        }
+
+        for (int i = 0; i < missing.size(); i += MAX_KEYS_PER_RETRIEVE) {
+            List<String> batch =
+                    missing.subList(i, Math.min(i + MAX_KEYS_PER_RETRIEVE,
+                                                missing.size()));
+            preloadBatch(batch);
+        }
+    }
+
+    private void preloadBatch(List<String> keys)
+        throws ETSdkException
+    {
+        //
+        // Customer keys are case insensitive, and the server
+        // may not return them as we sent them:
+        //
+
+        final Map<String, List<ETDataExtensionColumn>> columnsByKey =
+                new HashMap<String, List<ETDataExtensionColumn>>();
+        for (String key : keys) {
+            columnsByKey.put(toMapKey(key), new ArrayList<ETDataExtensionColumn>());
+        }
+
+        ETExpression expression = new ETExpression();
+        expression.setProperty("DataExtension.CustomerKey");
+        expression.setOperator(ETExpression.Operator.IN);
+        for (String key : keys) {
+            expression.addValue(key);
+        }
+
+        //
+        // The columns of all data extensions come back in one
+        // result set, so also retrieve the customer key of the
+        // data extension each column belongs to:
+        //
+
+        ETFilter filter = new ETFilter();
+        filter.setExpression(expression);
+        ETSoapObjectMetadata metadata =
+                ETSoapObjectMetadata.getMetadata(ETDataExtensionColumn.class);
+        for (String property : metadata.getRetrievableProperties()) {
+            filter.addProperty(property);
+        }
+        filter.addProperty("DataExtension.CustomerKey");
+
+        ETResponse<ETDataExtensionColumn> response =
+                ETSoapObject.retrieve(client,
+                                      ETDataExtensionColumn.class,
+                                      filter,
+                                      new ETObjectHandler<ETDataExtensionColumn>() {
+            @Override
+            public void handleObject(ETDataExtensionColumn column)
+                throws ETSdkException
+            {
+                ETDataExtension dataExtension = column.getDataExtension();
+                List<ETDataExtensionColumn> columns =
+                        (dataExtension != null && dataExtension.getKey() != null)
+                        ? columnsByKey.get(toMapKey(dataExtension.getKey()))
+                        : null;
+                if (columns == null) {
+                    logger.warn("ignoring column " + column.getName()
+                            + " of unrequested data extension "
+                            + (dataExtension != null ? dataExtension.getKey() : null));
+                    return;
+                }
+                // don't hold on to the partial data extension object:
+                column.setDataExtension(null);
+                columns.add(column);
+            }
+        });
+        if (response.getStatus() == ETResult.Status.ERROR) {
+            throw new ETSdkException("could not retrieve columns of data extensions "
+                    + keys + ": " + response.getResponseMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            List<ETDataExtensionColumn> columns = columnsByKey.get(toMapKey(key));
+            if (!columns.isEmpty()) {
+                entries.put(toMapKey(key), new Entry(key, columns, now));
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        entries.remove(toMapKey(key));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    void put(Entry entry) {
+        entries.put(toMapKey(entry.getKey()), entry);
+    }
+
+    private static String toMapKey(String key) {
+        return key.toLowerCase();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        long ttl = this.ttl;
+        return ttl > 0 && now - entry.getLoadTime() >= ttl;
+    }
+
+    /**
+     * The cached columns of one data extension. Entries are
+     * immutable and shared by every <code>ETDataExtension</code>
+     * hydrated from them, so the column objects must be treated
+     * as read only.
+     */
+    public static class Entry {
+        private String key = null;
+        private List<ETDataExtensionColumn> columns = null;
+        private Map<String, ETDataExtensionColumn> columnsByName = null;
+        private List<String> primaryKeyColumnNames = null;
+        private ETDataExtensionSchema schema = null;
+        private long loadTime = 0;
+
+        Entry(String key, List<ETDataExtensionColumn> columns, long loadTime) {
+            this.key = key;
+            this.columns = Collections.unmodifiableList(
+                    new ArrayList<ETDataExtensionColumn>(columns));
+            this.loadTime = loadTime;
+
+            Map<String, ETDataExtensionColumn> columnsByName =
+                    new HashMap<String, ETDataExtensionColumn>();
+            List<String> primaryKeyColumnNames = new ArrayList<String>();
+            for (ETDataExtensionColumn column : columns) {
+                // column names are lower case (see setName):
+                columnsByName.put(column.getName(), column);
+                if (column.getIsPrimaryKey() != null && column.getIsPrimaryKey()) {
+                    primaryKeyColumnNames.add(column.getName());
+                }
+            }
+            this.columnsByName = columnsByName;
+            this.primaryKeyColumnNames =
+                    Collections.unmodifiableList(primaryKeyColumnNames);
+            this.schema = ETDataExtensionSchema.forColumns(this.columns);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public List<ETDataExtensionColumn> getColumns() {
+            return columns;
+        }
+
+        /**
+         * Returns the column with the specified (case
+         * insensitive) name, or <code>null</code>.
+         */
+        public ETDataExtensionColumn getColumn(String name) {
+            ETDataExtensionColumn column = columnsByName.get(name);
+            if (column == null) {
+                column = columnsByName.get(name.toLowerCase());
+            }
+            return column;
+        }
+
+        public List<String> getPrimaryKeyColumnNames() {
+            return primaryKeyColumnNames;
+        }
+
+        public ETDataExtensionSchema getSchema() {
+            return schema;
+        }
+
+        public long getLoadTime() {
+            return loadTime;
+        }
+    }
+}
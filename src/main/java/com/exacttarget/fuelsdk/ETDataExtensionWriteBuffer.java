@@ -0,0 +1,496 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETDataExtensionWriteBuffer</code> coalesces the inserts
+ * and updates of a data extension's rows: writes to the same
+ * primary key are merged into a single row (the columns set by
+ * each write are unioned, and later values win), which is sent
+ * <code>flushInterval</code> milliseconds after the first buffered
+ * write at the latest, or as soon as <code>maxRows</code> rows are
+ * buffered. Rows that are updated many times in quick succession
+ * (counters, last seen timestamps, and so on) thus cost one row in
+ * one batch per interval rather than a call per write.
+ *
+ * Each write returns a future completed with the result of the
+ * merged row it went into. Batches are sent by a background
+ * thread, so writes don't block; <code>close</code> sends what's
+ * left and waits for every batch to complete.
+ *
+ * Writes to a row are sent in the order they were made: while a
+ * batch with the row is in flight, later writes to it are held
+ * back (and merged) until the batch completes. An insert after
+ * an update of the same row can't be merged into it, so it is
+ * held back until the update has been sent and completed.
+ */
+
+public class ETDataExtensionWriteBuffer {
+    private static Logger logger = Logger.getLogger(ETDataExtensionWriteBuffer.class);
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 500;
+
+    private ETDataExtension dataExtension = null;
+
+    private List<String> primaryKeyColumnNames = null;
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private int maxRows = 0;
+    private ETBatchDispatcher dispatcher = null;
+    private ETBatchDispatcher.Sender<Entry> sender = null;
+
+    // the rows buffered, by primary key, in the order first written:
+    private Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>();
+    private int bufferedRowCount = 0;
+    // the keys of the rows sent whose batch hasn't completed:
+    private Set<Object> keysInFlight = new HashSet<Object>();
+    private ScheduledFuture<?> scheduledFlush = null;
+    private boolean closed = false;
+
+    private ScheduledExecutorService executor = null;
+
+    private AtomicLong writes = new AtomicLong();
+    private AtomicLong rowsSucceeded = new AtomicLong();
+    private long startTime = System.currentTimeMillis();
+
+    //
+    // A buffered row, with the future shared by the writes
+    // merged into it, and the row to send after it (an insert
+    // after an update) if any:
+    //
+
+    private static class Entry {
+        Object key = null;
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        boolean inserting = false;
+        CompletableFuture<ETResult<ETDataExtensionRow>> future =
+                new CompletableFuture<ETResult<ETDataExtensionRow>>();
+        Entry next = null;
+    }
+
+    public ETDataExtensionWriteBuffer(ETDataExtension dataExtension)
+        throws ETSdkException
+    {
+        this(dataExtension, new ETIngestOptions());
+    }
+
+    /**
+     * Creates a buffer sending batches of (at most) the options'
+     * batch size, with up to the options' number of dispatcher
+     * threads batches in flight. Rows that fail are passed to
+     * the options' listener (which gets no progress reports).
+     */
+    public ETDataExtensionWriteBuffer(ETDataExtension dataExtension,
+                                      ETIngestOptions options)
+        throws ETSdkException
+    {
+        this(dataExtension,
+             dataExtension.getPrimaryKeyColumnNames(),
+             new ETBatchDispatcher(dataExtension, options));
+    }
+
+    ETDataExtensionWriteBuffer(ETDataExtension dataExtension,
+                               List<String> primaryKeyColumnNames,
+                               ETBatchDispatcher dispatcher)
+    {
+        this.dataExtension = dataExtension;
+        this.primaryKeyColumnNames = primaryKeyColumnNames;
+        this.dispatcher = dispatcher;
+        maxRows = dispatcher.getBatchSize();
+
+        sender = new ETBatchDispatcher.Sender<Entry>() {
+            public CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<Entry> batch)
+                throws ETSdkException
+            {
+                List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>(batch.size());
+                for (Entry entry : batch) {
+                    rows.add(entry.row);
+                }
+                return ETDataExtensionWriteBuffer.this.send(rows, batch.get(0).inserting);
+            }
+
+            public ETDataExtensionRow getRow(Entry entry) {
+                return entry.row;
+            }
+
+            public void completed(Entry entry, ETResult<ETDataExtensionRow> result) {
+                if (result.getStatus() == ETResult.Status.OK) {
+                    rowsSucceeded.incrementAndGet();
+                }
+                entry.future.complete(result);
+                released(entry.key);
+            }
+        };
+    }
+
+    public synchronized long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the longest time (in milliseconds) a write is
+     * buffered before it is sent.
+     */
+    public synchronized void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public synchronized int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Sets the number of (distinct) rows buffered at which the
+     * buffer is flushed, which is also the largest batch sent.
+     */
+    public synchronized void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Returns the number of rows buffered and not yet sent.
+     */
+    public synchronized int getBufferedRowCount() {
+        return bufferedRowCount;
+    }
+
+    /**
+     * Returns the progress so far: rows read are the writes
+     * accepted, while rows succeeded and failed are the merged
+     * rows sent.
+     */
+    public ETIngestProgress getProgress() {
+        boolean done;
+        synchronized (this) {
+            done = closed;
+        }
+        return new ETIngestProgress(writes.get(),
+                                    rowsSucceeded.get(),
+                                    dispatcher.getRowsFailed(),
+                                    dispatcher.getBatchesSent(),
+                                    System.currentTimeMillis() - startTime,
+                                    done);
+    }
+
+    public CompletableFuture<ETResult<ETDataExtensionRow>> insert(ETDataExtensionRow row)
+        throws ETSdkException
+    {
+        return write(row, true);
+    }
+
+    public CompletableFuture<ETResult<ETDataExtensionRow>> update(ETDataExtensionRow row)
+        throws ETSdkException
+    {
+        return write(row, false);
+    }
+
+    private synchronized CompletableFuture<ETResult<ETDataExtensionRow>> write(ETDataExtensionRow row,
+                                                                               boolean inserting)
+        throws ETSdkException
+    {
+        if (closed) {
+            throw new ETSdkException("write buffer for "
+                    + dataExtension.getKey() + " is closed");
+        }
+
+        //
+        // Rows without a (complete) primary key can't be
+        // merged, so they are buffered under a key of their own:
+        //
+
+        Object key = getKey(row);
+        if (key == null) {
+            key = new Object();
+        }
+
+        //
+        // Writes are merged into the last row buffered
+        // under the key, unless it's an update and this
+        // is an insert:
+        //
+
+        Entry last = entries.get(key);
+        while (last != null && last.next != null) {
+            last = last.next;
+        }
+        Entry entry = last;
+        if (entry == null || (inserting && !entry.inserting)) {
+            entry = new Entry();
+            entry.key = key;
+            entry.inserting = inserting;
+            entry.row.setDataExtensionKey(dataExtension.getKey());
+            if (last == null) {
+                entries.put(key, entry);
+            } else {
+                last.next = entry;
+            }
+            bufferedRowCount++;
+        }
+        for (String name : row.getColumnNames()) {
+            entry.row.setColumn(name, row.getColumn(name));
+        }
+        writes.incrementAndGet();
+
+        if (bufferedRowCount >= maxRows) {
+            flush();
+        } else {
+            scheduleFlush();
+        }
+
+        return entry.future;
+    }
+
+    private Object getKey(ETDataExtensionRow row) {
+        if (primaryKeyColumnNames.isEmpty()) {
+            return null;
+        }
+        if (primaryKeyColumnNames.size() == 1) {
+            return row.getColumn(primaryKeyColumnNames.get(0));
+        }
+        String[] values = new String[primaryKeyColumnNames.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.getColumn(primaryKeyColumnNames.get(i));
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush == null) {
+            scheduledFlush = getExecutor().schedule(new Runnable() {
+                public void run() {
+                    flushScheduled();
+                }
+            }, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void flushScheduled() {
+        scheduledFlush = null;
+        flush();
+    }
+
+    /**
+     * Sends the rows buffered (in the background), other than
+     * those held back behind a batch in flight.
+     */
+    public synchronized void flush() {
+        final List<Entry> flushed = new ArrayList<Entry>();
+        Iterator<Map.Entry<Object, Entry>> i = entries.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Object, Entry> mapEntry = i.next();
+            if (keysInFlight.contains(mapEntry.getKey())) {
+                continue;
+            }
+            Entry entry = mapEntry.getValue();
+            flushed.add(entry);
+            keysInFlight.add(entry.key);
+            if (entry.next != null) {
+                mapEntry.setValue(entry.next);
+                entry.next = null;
+            } else {
+                i.remove();
+            }
+        }
+        if (flushed.isEmpty()) {
+            return;
+        }
+        bufferedRowCount -= flushed.size();
+        final int batchSize = maxRows;
+        getExecutor().execute(new Runnable() {
+            public void run() {
+                send(flushed, batchSize);
+            }
+        });
+    }
+
+    //
+    // Called when the batch with the row buffered under the
+    // key completes; rows held back behind it can now be sent:
+    //
+
+    private synchronized void released(Object key) {
+        keysInFlight.remove(key);
+        if (entries.containsKey(key)) {
+            if (closed) {
+                flush();
+            } else {
+                scheduleFlush();
+            }
+        }
+        if (keysInFlight.isEmpty()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sends the rows buffered and waits for every batch to
+     * complete. Writes after <code>close</code> throw
+     * <code>ETSdkException</code>.
+     */
+    public void close()
+        throws ETSdkException
+    {
+        ScheduledExecutorService executor = null;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (scheduledFlush != null) {
+                // (flushed below)
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            flush();
+
+            //
+            // Wait for the rows in flight; rows held back behind
+            // them are sent as they complete (see released):
+            //
+
+            try {
+                while (!keysInFlight.isEmpty()) {
+                    wait(1000);
+                    if (!keysInFlight.isEmpty()) {
+                        logger.debug("waiting for " + keysInFlight.size()
+                                + " rows to " + dataExtension.getKey());
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted closing write buffer for "
+                        + dataExtension.getKey(), ex);
+            }
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        logger.debug("closed write buffer for " + dataExtension.getKey() + ": "
+                + writes.get() + " writes sent as " + rowsSucceeded.get()
+                + " rows (" + dispatcher.getRowsFailed() + " failed) in "
+                + dispatcher.getBatchesSent() + " batches");
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            // (daemon, so an unclosed buffer doesn't keep the JVM alive)
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ETDataExtensionWriteBuffer-"
+                            + dataExtension.getKey());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    //
+    // Called on the background thread; inserts and updates
+    // go in separate batches (a flush never has more than
+    // one row per key, so their order doesn't matter):
+    //
+
+    private void send(List<Entry> flushed, int batchSize) {
+        List<Entry> inserts = new ArrayList<Entry>();
+        List<Entry> updates = new ArrayList<Entry>();
+        for (Entry entry : flushed) {
+            List<Entry> batch = entry.inserting ? inserts : updates;
+            batch.add(entry);
+            if (batch.size() >= batchSize) {
+                send(batch);
+                if (entry.inserting) {
+                    inserts = new ArrayList<Entry>();
+                } else {
+                    updates = new ArrayList<Entry>();
+                }
+            }
+        }
+        if (inserts.size() > 0) {
+            send(inserts);
+        }
+        if (updates.size() > 0) {
+            send(updates);
+        }
+    }
+
+    private void send(List<Entry> batch) {
+        try {
+            dispatcher.send(batch, sender);
+        } catch (ETSdkException ex) {
+            dispatcher.handleResults(batch, sender, null, ex);
+        } catch (RuntimeException ex) {
+            dispatcher.handleResults(batch, sender, null, ex);
+        }
+    }
+
+    /**
+     * Sends a batch of rows to be inserted or updated.
+     */
+    CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<ETDataExtensionRow> rows,
+                                                          boolean inserting)
+        throws ETSdkException
+    {
+        ETClient client = dataExtension.getClient();
+        if (inserting) {
+            return ETSoapObject.createAsync(client, rows);
+        }
+        return ETSoapObject.updateAsync(client, rows);
+    }
+}
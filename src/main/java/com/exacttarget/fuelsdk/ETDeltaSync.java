@@ -0,0 +1,201 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Date;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETDeltaSync</code> retrieves only the objects of a SOAP
+ * object type that have been modified since the last sync. It keeps
+ * a high-water mark per sync key (by default, the type's class name)
+ * in an <code>ETWatermarkStore</code>: the latest
+ * <code>ModifiedDate</code> seen. Each sync retrieves objects
+ * modified after the watermark minus the overlap, following
+ * continuation, and the new watermark is only stored once all
+ * results have been passed to the handler. The first sync for a
+ * key retrieves everything.
+ *
+ * The overlap covers objects committed on the server with a
+ * <code>ModifiedDate</code> slightly earlier than ones already
+ * seen, so objects near the watermark may be passed to the handler
+ * more than once; handlers must be idempotent. For types (or
+ * filters) that do not return <code>ModifiedDate</code> (e.g.,
+ * <code>ETSubscriber</code>), the watermark is the local time the
+ * sync started, and the overlap must also cover any clock skew
+ * between this machine and the server.
+ */
+
+public class ETDeltaSync {
+    private static Logger logger = Logger.getLogger(ETDeltaSync.class);
+
+    public static final long DEFAULT_OVERLAP = 5 * 60 * 1000;
+
+    private static final String MODIFIED_DATE_PROPERTY = "modifiedDate";
+
+    private ETClient client = null;
+    private ETWatermarkStore store = null;
+
+    private long overlap = DEFAULT_OVERLAP;
+
+    public ETDeltaSync(ETClient client, ETWatermarkStore store) {
+        this.client = client;
+        this.store = store;
+    }
+
+    public ETWatermarkStore getStore() {
+        return store;
+    }
+
+    public synchronized long getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * Sets the time (in milliseconds) subtracted from the watermark
+     * when retrieving, to allow for late commits and clock skew.
+     */
+    public synchronized void setOverlap(long overlap) {
+        this.overlap = overlap;
+    }
+
+    public <T extends ETSoapObject> ETResponse<T> sync(Class<T> type,
+                                                       ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        return sync(type.getName(), type, new ETFilter(), handler);
+    }
+
+    /**
+     * Passes all objects of the specified type that match the filter
+     * and have been modified since the last sync with the same key
+     * to the handler, then advances the watermark for that key.
+     * If the retrieve fails (or the handler throws an exception)
+     * the watermark is left unchanged.
+     */
+    public <T extends ETSoapObject> ETResponse<T> sync(String key,
+                                                       Class<T> type,
+                                                       ETFilter filter,
+                                                       final ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        final ETSoapMapping.Property modifiedDateProperty =
+                getModifiedDateProperty(type);
+
+        Date started = new Date();
+
+        Date watermark = store.getWatermark(key);
+        Date since = null;
+        if (watermark != null) {
+            since = new Date(watermark.getTime() - getOverlap());
+        }
+
+        logger.debug("syncing " + key + " modified since " + since);
+
+        final Date[] latest = new Date[1];
+        final int[] count = new int[1];
+        ETResponse<T> response = ETSoapObject.retrieveModifiedSince(client,
+                type,
+                filter,
+                since,
+                new ETObjectHandler<T>() {
+                    public void handleObject(T object)
+                        throws ETSdkException
+                    {
+                        Date modifiedDate = (Date)
+                                modifiedDateProperty.getExternalValue(object);
+                        if (modifiedDate != null
+                                && (latest[0] == null || modifiedDate.after(latest[0])))
+                        {
+                            latest[0] = modifiedDate;
+                        }
+                        count[0]++;
+                        handler.handleObject(object);
+                    }
+                });
+
+        if (response.getStatus() != ETResult.Status.OK) {
+            logger.warn("sync of " + key + " failed ("
+                    + response.getResponseMessage()
+                    + "), watermark left at " + watermark);
+            return response;
+        }
+
+        //
+        // Advance the watermark to the latest ModifiedDate seen
+        // (server time); if the type doesn't return ModifiedDate,
+        // fall back to the time the sync started (local time):
+        //
+
+        Date updated = watermark;
+        if (latest[0] != null) {
+            updated = latest[0];
+        } else if (!returnsModifiedDate(type, filter)) {
+            updated = started;
+        }
+        if (updated != null && (watermark == null || updated.after(watermark))) {
+            store.setWatermark(key, updated);
+        }
+
+        logger.debug("synced " + count[0] + " " + type.getSimpleName()
+                + " objects, watermark " + updated);
+
+        return response;
+    }
+
+    private static boolean returnsModifiedDate(Class<? extends ETSoapObject> type,
+                                               ETFilter filter)
+        throws ETSdkException
+    {
+        if (filter.getProperties().size() > 0) {
+            return filter.getProperties().contains(MODIFIED_DATE_PROPERTY);
+        }
+        return ETSoapObjectMetadata.getMetadata(type)
+                .getRetrievableProperties().contains("ModifiedDate");
+    }
+
+    private static ETSoapMapping.Property getModifiedDateProperty(Class<? extends ETSoapObject> type)
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata metadata = ETSoapObjectMetadata.getMetadata(type);
+        for (ETSoapMapping.Property property : metadata.getMapping().getProperties()) {
+            if (property.getInternalName().equals(MODIFIED_DATE_PROPERTY)) {
+                return property;
+            }
+        }
+        throw new ETSdkException(type.getName() + " does not have a modifiedDate property");
+    }
+}
@@ -0,0 +1,331 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.ETDataExtension.ExportFormat;
+
+/**
+ * An <code>ETExport</code> is a running
+ * <code>ETDataExtension.exportTo</code> job. A fetcher thread
+ * retrieves the rows a page at a time while the calling thread
+ * writes the previous page, so no more than a page of rows is
+ * retrieved ahead of those being written.
+ */
+
+class ETExport {
+    private static Logger logger = Logger.getLogger(ETExport.class);
+
+    static final int PAGE_SIZE = 2500;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // signals the end of the rows to the writer:
+    private static final List<ETDataExtensionRow> END =
+            new ArrayList<ETDataExtensionRow>();
+
+    private ETDataExtension dataExtension = null;
+    private ETFilter filter = null;
+    private List<String> columnNames = null;
+
+    private BlockingQueue<List<ETDataExtensionRow>> pages =
+            new ArrayBlockingQueue<List<ETDataExtensionRow>>(1);
+    // set by the fetcher before it signals the end:
+    private ETSdkException fetchException = null;
+
+    ETExport(ETDataExtension dataExtension, ETFilter filter)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+
+        // copy the filter, so the caller's is left as it was
+        this.filter = new ETFilter();
+        this.filter.setExpression(filter.getExpression());
+        this.filter.setOrderBy(new ArrayList<String>(filter.getOrderBy()));
+        this.filter.setOrderByAsc(filter.getOrderByAsc());
+
+        // if no columns are explicitly requested export all columns
+        if (filter.getProperties().isEmpty()) {
+            this.filter.setProperties(new ArrayList<String>(dataExtension.getSchema().getColumnNames()));
+        } else {
+            this.filter.setProperties(new ArrayList<String>(filter.getProperties()));
+        }
+        columnNames = new ArrayList<String>(this.filter.getProperties());
+    }
+
+    long run(OutputStream out, ExportFormat format)
+        throws ETSdkException
+    {
+        long startTime = System.currentTimeMillis();
+
+        Thread fetcher = new Thread(new Runnable() {
+            public void run() {
+                fetch();
+            }
+        }, "ETExport-fetch");
+        fetcher.setDaemon(true);
+        fetcher.start();
+
+        long rows = 0;
+        try {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(out, Charset.forName("UTF-8")),
+                    BUFFER_SIZE);
+            if (format == ExportFormat.CSV) {
+                writeCsv(writer, columnNames);
+            }
+            while (true) {
+                List<ETDataExtensionRow> page = pages.take();
+                if (page == END) {
+                    break;
+                }
+                for (ETDataExtensionRow row : page) {
+                    if (format == ExportFormat.CSV) {
+                        List<String> values = new ArrayList<String>(columnNames.size());
+                        for (String columnName : columnNames) {
+                            values.add(row.getColumn(columnName));
+                        }
+                        writeCsv(writer, values);
+                    } else {
+                        writeJson(writer, row);
+                    }
+                    rows++;
+                }
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            throw new ETSdkException("error exporting " + dataExtension.getKey()
+                    + " after " + rows + " rows", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted exporting "
+                    + dataExtension.getKey(), ex);
+        } finally {
+            fetcher.interrupt();
+        }
+
+        if (fetchException != null) {
+            throw new ETSdkException("error exporting " + dataExtension.getKey()
+                    + " after " + rows + " rows", fetchException);
+        }
+
+        logger.debug("exported " + rows + " rows from " + dataExtension.getKey()
+                + " in " + (System.currentTimeMillis() - startTime) + " ms");
+
+        return rows;
+    }
+
+    //
+    // Fetcher thread: retrieve the rows a page at a time. SOAP
+    // retrieves are streamed (and continued) and cut into pages;
+    // REST is only used if the rows must be sorted, since SOAP
+    // can't sort them:
+    //
+
+    private void fetch() {
+        try {
+            if (filter.getOrderBy().isEmpty()) {
+                final List<List<ETDataExtensionRow>> page =
+                        new ArrayList<List<ETDataExtensionRow>>(1);
+                page.add(new ArrayList<ETDataExtensionRow>(PAGE_SIZE));
+                ETResponse<ETDataExtensionRow> response =
+                        dataExtension.select(filter, new ETObjectHandler<ETDataExtensionRow>() {
+                    public void handleObject(ETDataExtensionRow row)
+                        throws ETSdkException
+                    {
+                        page.get(0).add(row);
+                        if (page.get(0).size() >= PAGE_SIZE) {
+                            put(page.get(0));
+                            page.set(0, new ArrayList<ETDataExtensionRow>(PAGE_SIZE));
+                        }
+                    }
+                });
+                checkResponse(response);
+                if (page.get(0).size() > 0) {
+                    put(page.get(0));
+                }
+            } else {
+                int page = 1;
+                ETResponse<ETDataExtensionRow> response = null;
+                do {
+                    response = dataExtension.select(page++, PAGE_SIZE, filter);
+                    checkResponse(response);
+                    put(response.getObjects());
+                } while (response.hasMoreResults());
+            }
+        } catch (ETSdkException ex) {
+            fetchException = ex;
+        } catch (RuntimeException ex) {
+            fetchException = new ETSdkException("error retrieving rows", ex);
+        }
+        if (!Thread.currentThread().isInterrupted()) {
+            try {
+                pages.put(END);
+            } catch (InterruptedException ex) {
+                // the writer has stopped
+            }
+        }
+    }
+
+    private void put(List<ETDataExtensionRow> page)
+        throws ETSdkException
+    {
+        try {
+            pages.put(page);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted retrieving rows", ex);
+        }
+    }
+
+    private static void checkResponse(ETResponse<ETDataExtensionRow> response)
+        throws ETSdkException
+    {
+        if (response.getStatus() == ETResult.Status.ERROR) {
+            throw new ETSdkException("error retrieving rows: "
+                    + response.getResponseCode() + " "
+                    + response.getResponseMessage());
+        }
+    }
+
+    //
+    // Writes a CSV record (RFC 4180), quoting values
+    // that contain commas, quotes, or line breaks:
+    //
+
+    static void writeCsv(Writer writer, List<String> values)
+        throws IOException
+    {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            boolean quote = false;
+            for (int j = 0; j < value.length() && !quote; j++) {
+                char c = value.charAt(j);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(value);
+                continue;
+            }
+            writer.write('"');
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+        writer.write("\r\n");
+    }
+
+    //
+    // Writes the row as a JSON object on a line of its own:
+    //
+
+    private void writeJson(Writer writer, ETDataExtensionRow row)
+        throws IOException
+    {
+        writer.write('{');
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String columnName = columnNames.get(i);
+            writeJsonString(writer, columnName);
+            writer.write(':');
+            String value = row.getColumn(columnName);
+            if (value == null) {
+                writer.write("null");
+            } else {
+                writeJsonString(writer, value);
+            }
+        }
+        writer.write("}\n");
+    }
+
+    static void writeJsonString(Writer writer, String value)
+        throws IOException
+    {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+              case '"':
+                writer.write("\\\"");
+                break;
+              case '\\':
+                writer.write("\\\\");
+                break;
+              case '\n':
+                writer.write("\\n");
+                break;
+              case '\r':
+                writer.write("\\r");
+                break;
+              case '\t':
+                writer.write("\\t");
+                break;
+              default:
+                // (line and paragraph separators too, for JavaScript)
+                if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    writer.write(String.format("\\u%04x", (int) c));
+                } else {
+                    writer.write(c);
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
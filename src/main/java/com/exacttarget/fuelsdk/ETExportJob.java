@@ -0,0 +1,159 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An <code>ETExportJob</code> is the handle to a data extension
+ * export running on the server (see
+ * <code>ETDataExtension.exportAsync</code>). Its future is
+ * completed by the client's <code>ETExportJobTracker</code> once
+ * the server reports the export finished, or completed
+ * exceptionally if it reports the export failed.
+ */
+
+public class ETExportJob {
+    private final String dataExtensionKey;
+    private final String fileName;
+    private final String jobId;
+    private final String requestId;
+    private final CompletableFuture<ETExportJob> future =
+            new CompletableFuture<ETExportJob>();
+    private final long submittedTime = System.currentTimeMillis();
+
+    private volatile String status = null;
+    private volatile String statusMessage = null;
+
+    // managed by the tracker:
+    private long nextPollTime = 0;
+    private long pollInterval = 0;
+    private int pollCount = 0;
+
+    ETExportJob(String dataExtensionKey,
+                String fileName,
+                String jobId,
+                String requestId)
+    {
+        this.dataExtensionKey = dataExtensionKey;
+        this.fileName = fileName;
+        this.jobId = jobId;
+        this.requestId = requestId;
+    }
+
+    public String getDataExtensionKey() {
+        return dataExtensionKey;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the ID the server assigned the export,
+     * used to poll for its status.
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Returns the last status the server reported
+     * (e.g., <code>Pending</code> or <code>Complete</code>),
+     * or <code>null</code> if it hasn't been polled yet.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    /**
+     * Returns a future that is completed (with this job)
+     * once the export has finished.
+     */
+    public CompletableFuture<ETExportJob> getFuture() {
+        return future;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Returns the number of times the
+     * status has been polled.
+     */
+    public synchronized int getPollCount() {
+        return pollCount;
+    }
+
+    long getSubmittedTime() {
+        return submittedTime;
+    }
+
+    synchronized long getNextPollTime() {
+        return nextPollTime;
+    }
+
+    synchronized long getPollInterval() {
+        return pollInterval;
+    }
+
+    synchronized void schedule(long nextPollTime, long pollInterval) {
+        this.nextPollTime = nextPollTime;
+        this.pollInterval = pollInterval;
+    }
+
+    void update(String status, String statusMessage) {
+        synchronized (this) {
+            pollCount++;
+        }
+        this.status = status;
+        this.statusMessage = statusMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "ETExportJob[" + dataExtensionKey + " -> " + fileName
+                + ", jobId=" + jobId + ", status=" + status + "]";
+    }
+}
@@ -0,0 +1,355 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETExportJobTracker</code> tracks the data extension
+ * exports an <code>ETClient</code> has started, completing the
+ * future of each job once the server reports it finished. All
+ * jobs share a single background thread.
+ *
+ * Polling is adaptive: each job's status is first polled
+ * <code>initialPollInterval</code> milliseconds after it was
+ * started, and the interval is multiplied by
+ * <code>backoffFactor</code> after every poll that finds the
+ * job still running, up to <code>maxPollInterval</code>. Short
+ * exports are noticed quickly, while long ones cost few calls.
+ */
+
+public class ETExportJobTracker {
+    private static Logger logger = Logger.getLogger(ETExportJobTracker.class);
+
+    public static final long DEFAULT_INITIAL_POLL_INTERVAL = 1000;
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 30000;
+    public static final double DEFAULT_BACKOFF_FACTOR = 2.0;
+
+    // how often the background thread checks for jobs due:
+    private static final long TICK = 100;
+
+    private static final String PATH_STATUS = "/data/v1/async/{id}/status";
+
+    private ETClient client = null;
+
+    private List<ETExportJob> jobs = new ArrayList<ETExportJob>();
+
+    private long initialPollInterval = DEFAULT_INITIAL_POLL_INTERVAL;
+    private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+    private double backoffFactor = DEFAULT_BACKOFF_FACTOR;
+    private long timeout = 0;
+
+    private ScheduledExecutorService executor = null;
+
+    public ETExportJobTracker(ETClient client) {
+        this.client = client;
+    }
+
+    public synchronized long getInitialPollInterval() {
+        return initialPollInterval;
+    }
+
+    /**
+     * Sets the time (in milliseconds) between starting
+     * a job and the first poll of its status.
+     */
+    public synchronized void setInitialPollInterval(long initialPollInterval) {
+        this.initialPollInterval = initialPollInterval;
+    }
+
+    public synchronized long getMaxPollInterval() {
+        return maxPollInterval;
+    }
+
+    public synchronized void setMaxPollInterval(long maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    public synchronized double getBackoffFactor() {
+        return backoffFactor;
+    }
+
+    public synchronized void setBackoffFactor(double backoffFactor) {
+        this.backoffFactor = backoffFactor;
+    }
+
+    public synchronized long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the time (in milliseconds) after which jobs that
+     * haven't finished are completed exceptionally. Zero
+     * (the default) means never.
+     */
+    public synchronized void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized int getPendingJobCount() {
+        return jobs.size();
+    }
+
+    public synchronized void track(ETExportJob job) {
+        if (job.isDone()) {
+            return;
+        }
+        job.schedule(System.currentTimeMillis() + initialPollInterval,
+                     initialPollInterval);
+        jobs.add(job);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ETExportJobTracker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        poll();
+                    } catch (Throwable t) {
+                        // don't let an exception stop the poller
+                        logger.warn("error polling export jobs", t);
+                    }
+                }
+            }, TICK, TICK, TimeUnit.MILLISECONDS);
+            logger.debug("started polling export jobs");
+        }
+    }
+
+    /**
+     * Stops the poller. Jobs still being tracked
+     * are completed exceptionally.
+     */
+    public void shutdown() {
+        List<ETExportJob> remaining = null;
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            remaining = new ArrayList<ETExportJob>(jobs);
+            jobs.clear();
+        }
+        for (ETExportJob job : remaining) {
+            job.getFuture().completeExceptionally(new ETSdkException("tracker shut down "
+                    + "before export job " + job.getJobId() + " completed"));
+        }
+    }
+
+    /**
+     * Polls the status of the jobs that are due (called
+     * periodically by the background thread).
+     */
+    public void poll()
+        throws ETSdkException
+    {
+        long now = System.currentTimeMillis();
+        List<ETExportJob> due = new ArrayList<ETExportJob>();
+        long timeout = 0;
+        synchronized (this) {
+            timeout = this.timeout;
+            for (Iterator<ETExportJob> i = jobs.iterator(); i.hasNext();) {
+                ETExportJob job = i.next();
+                if (job.isDone()) {
+                    // completed (or cancelled) by the caller
+                    i.remove();
+                } else if (job.getNextPollTime() <= now) {
+                    due.add(job);
+                }
+            }
+            if (due.isEmpty()) {
+                stopIfIdle();
+                return;
+            }
+        }
+
+        logger.trace("polling " + due.size() + " export jobs");
+
+        client.refreshToken();
+
+        ETRestConnection connection = client.getRestConnection();
+        for (ETExportJob job : due) {
+            try {
+                ETRestConnection.Response r =
+                        connection.get(PATH_STATUS.replace("{id}", job.getJobId()));
+                update(job, r.getResponseCode(), r.getResponseMessage(),
+                       r.getResponsePayload());
+            } catch (ETSdkException ex) {
+                // transport errors are retried at the next poll
+                logger.warn("error polling export job " + job.getJobId(), ex);
+            }
+            now = System.currentTimeMillis();
+            if (!job.isDone() && timeout > 0
+                    && now - job.getSubmittedTime() > timeout) {
+                job.getFuture().completeExceptionally(new ETSdkException("export job "
+                        + job.getJobId() + " timed out"));
+            }
+            if (!job.isDone()) {
+                synchronized (this) {
+                    long interval = Math.min((long) (job.getPollInterval() * backoffFactor),
+                                             maxPollInterval);
+                    job.schedule(now + interval, interval);
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (ETExportJob job : due) {
+                if (job.isDone()) {
+                    jobs.remove(job);
+                }
+            }
+            stopIfIdle();
+        }
+    }
+
+    //
+    // Stops the background thread once there are no jobs
+    // left to poll, so an idle tracker doesn't keep waking
+    // up every TICK; track restarts it. Callers must hold
+    // the lock:
+    //
+
+    private void stopIfIdle() {
+        if (jobs.isEmpty() && executor != null) {
+            executor.shutdown();
+            executor = null;
+            logger.debug("stopped polling export jobs");
+        }
+    }
+
+    synchronized boolean isPolling() {
+        return executor != null;
+    }
+
+    //
+    // Updates the job from a status response, completing it if
+    // the export has finished. Rate limiting and server errors
+    // are retried; other client errors fail the job:
+    //
+
+    static void update(ETExportJob job,
+                       Integer responseCode,
+                       String responseMessage,
+                       String responsePayload)
+    {
+        if (responseCode == null || responseCode == 429 || responseCode >= 500) {
+            job.update(job.getStatus(), responseCode + " " + responseMessage);
+            return;
+        }
+        if (responseCode >= 400) {
+            job.update("Error", responseCode + " " + responseMessage);
+            job.getFuture().completeExceptionally(new ETSdkException("could not get status of export job "
+                    + job.getJobId() + ": " + responseCode + " " + responseMessage));
+            return;
+        }
+
+        //
+        // The status is reported as
+        //
+        //   { "status": { "requestStatus": "Complete",
+        //                 "hasErrors": false, ... }, ... }
+        //
+        // Plain { "status": "Complete" } is accepted too:
+        //
+
+        String status = null;
+        String message = null;
+        boolean hasErrors = false;
+        try {
+            JsonObject object = new JsonParser().parse(responsePayload).getAsJsonObject();
+            JsonElement element = object.get("status");
+            if (element != null && element.isJsonObject()) {
+                JsonObject statusObject = element.getAsJsonObject();
+                status = getString(statusObject, "requestStatus");
+                message = getString(statusObject, "resultStatus");
+                JsonElement errors = statusObject.get("hasErrors");
+                hasErrors = errors != null && !errors.isJsonNull() && errors.getAsBoolean();
+            } else if (element != null && !element.isJsonNull()) {
+                status = element.getAsString();
+            }
+            if (message == null) {
+                message = getString(object, "message");
+            }
+        } catch (JsonParseException ex) {
+            logger.warn("could not parse status of export job " + job.getJobId()
+                    + ": " + responsePayload);
+        } catch (IllegalStateException ex) {
+            logger.warn("could not parse status of export job " + job.getJobId()
+                    + ": " + responsePayload);
+        }
+        job.update(status, message);
+
+        if (status == null) {
+            return;
+        }
+        if (hasErrors || status.equalsIgnoreCase("Error")
+                || status.equalsIgnoreCase("Failed")
+                || status.equalsIgnoreCase("Canceled")
+                || status.equalsIgnoreCase("Cancelled"))
+        {
+            job.getFuture().completeExceptionally(new ETSdkException("export job "
+                    + job.getJobId() + " failed: " + status
+                    + (message != null ? " (" + message + ")" : "")));
+        } else if (status.equalsIgnoreCase("Complete")
+                || status.equalsIgnoreCase("Completed"))
+        {
+            job.getFuture().complete(job);
+        }
+    }
+
+    private static String getString(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        if (element == null || element.isJsonNull() || !element.isJsonPrimitive()) {
+            return null;
+        }
+        return element.getAsString();
+    }
+}
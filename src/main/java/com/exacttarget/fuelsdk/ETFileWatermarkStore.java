@@ -0,0 +1,161 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETFileWatermarkStore</code> keeps watermarks in a
+ * properties file (key = milliseconds since the epoch). Each
+ * update writes the whole file to a temporary file in the same
+ * directory and renames it over the original, so readers (and
+ * the next run after a crash) always see either the old or the
+ * new set of watermarks, never a partially written file.
+ */
+
+public class ETFileWatermarkStore implements ETWatermarkStore {
+    private static Logger logger = Logger.getLogger(ETFileWatermarkStore.class);
+
+    private Path path = null;
+
+    private Properties watermarks = null;
+
+    public ETFileWatermarkStore(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized Date getWatermark(String key)
+        throws ETSdkException
+    {
+        String value = load().getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new Date(Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            throw new ETSdkException("invalid watermark for " + key
+                    + " in " + path + ": " + value, ex);
+        }
+    }
+
+    public synchronized void setWatermark(String key, Date watermark)
+        throws ETSdkException
+    {
+        Properties updated = new Properties();
+        updated.putAll(load());
+        if (watermark != null) {
+            updated.setProperty(key, Long.toString(watermark.getTime()));
+        } else {
+            updated.remove(key);
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory,
+                                             path.getFileName().toString(),
+                                             ".tmp");
+            OutputStream out = Files.newOutputStream(temporary);
+            try {
+                updated.store(out, "ETDeltaSync watermarks");
+            } finally {
+                out.close();
+            }
+            try {
+                Files.move(temporary, path,
+                           StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                logger.warn("atomic rename not supported for " + path
+                        + ", replacing non-atomically");
+                Files.move(temporary, path,
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporary = null;
+        } catch (IOException ex) {
+            throw new ETSdkException("could not write watermarks to " + path, ex);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ex) {
+                    logger.warn("could not delete " + temporary, ex);
+                }
+            }
+        }
+
+        watermarks = updated;
+
+        logger.debug("watermark for " + key + " set to " + watermark);
+    }
+
+    private Properties load()
+        throws ETSdkException
+    {
+        if (watermarks == null) {
+            Properties loaded = new Properties();
+            if (Files.exists(path)) {
+                try {
+                    InputStream in = Files.newInputStream(path);
+                    try {
+                        loaded.load(in);
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException ex) {
+                    throw new ETSdkException("could not read watermarks from " + path, ex);
+                }
+            }
+            watermarks = loaded;
+        }
+        return watermarks;
+    }
+}
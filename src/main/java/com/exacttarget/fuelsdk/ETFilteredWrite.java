@@ -0,0 +1,240 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETFilteredWrite</code> is a running update or delete of
+ * the data extension rows matching a filter. The primary keys of
+ * the matching rows are streamed from a (continued) SOAP retrieve,
+ * and each batch is sent as soon as it fills, while the retrieve
+ * goes on; when the maximum number of batches is in flight, the
+ * retrieve waits. Only the batches in flight are held in memory,
+ * however many rows match.
+ */
+
+class ETFilteredWrite {
+    private static Logger logger = Logger.getLogger(ETFilteredWrite.class);
+
+    private ETDataExtension dataExtension = null;
+    private ETClient client = null;
+    private ETFilter filter = null;
+    // the column values to set, or null if deleting:
+    private List<ETExpression> assignments = null;
+    private ETIngestOptions options = null;
+    private ETIngestListener listener = null;
+
+    private List<String> primaryKeyColumnNames = null;
+    private int batchSize = 0;
+    private ETBatchDispatcher dispatcher = null;
+    private ETBatchDispatcher.Sender<ETDataExtensionRow> sender = null;
+
+    private AtomicLong rowsRead = new AtomicLong();
+    private AtomicLong rowsSucceeded = new AtomicLong();
+
+    private long startTime = 0;
+    private long lastProgressTime = 0;
+
+    ETFilteredWrite(ETDataExtension dataExtension,
+                    ETFilter filter,
+                    List<ETExpression> assignments,
+                    ETIngestOptions options)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+        this.client = dataExtension.getClient();
+        this.filter = filter;
+        this.assignments = assignments;
+        this.options = options;
+        this.listener = options.getListener();
+
+        primaryKeyColumnNames = dataExtension.getPrimaryKeyColumnNames();
+        if (primaryKeyColumnNames.isEmpty()) {
+            throw new ETSdkException("data extension " + dataExtension.getKey()
+                    + " has no primary key");
+        }
+
+        dispatcher = new ETBatchDispatcher(dataExtension, options);
+        batchSize = dispatcher.getBatchSize();
+        sender = new ETBatchDispatcher.Sender<ETDataExtensionRow>() {
+            public CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<ETDataExtensionRow> rows)
+                throws ETSdkException
+            {
+                return ETFilteredWrite.this.send(rows);
+            }
+
+            public ETDataExtensionRow getRow(ETDataExtensionRow row) {
+                return row;
+            }
+
+            public void completed(ETDataExtensionRow row,
+                                  ETResult<ETDataExtensionRow> result)
+            {
+                if (result.getStatus() == ETResult.Status.OK) {
+                    rowsSucceeded.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    ETIngestProgress run()
+        throws ETSdkException
+    {
+        startTime = System.currentTimeMillis();
+        lastProgressTime = startTime;
+
+        String operation = assignments != null ? "updating" : "deleting";
+
+        logger.debug(operation + " rows of " + dataExtension.getKey()
+                + " matching " + filter.getExpression() + " in batches of "
+                + batchSize + " (" + dispatcher.getMaxBatchesInFlight()
+                + " concurrent)");
+
+        ETFilter keyFilter = new ETFilter();
+        keyFilter.setExpression(filter.getExpression());
+        keyFilter.setProperties(primaryKeyColumnNames);
+
+        final List<List<ETDataExtensionRow>> batch =
+                new ArrayList<List<ETDataExtensionRow>>(1);
+        batch.add(new ArrayList<ETDataExtensionRow>(batchSize));
+
+        ETResponse<ETDataExtensionRow> response = null;
+        ETSdkException exception = null;
+        try {
+            response = ETDataExtension.select(client,
+                                              "key=" + dataExtension.getKey(),
+                                              keyFilter,
+                                              new ETObjectHandler<ETDataExtensionRow>() {
+                public void handleObject(ETDataExtensionRow row)
+                    throws ETSdkException
+                {
+                    rowsRead.incrementAndGet();
+                    batch.get(0).add(row);
+                    if (batch.get(0).size() >= batchSize) {
+                        dispatcher.send(batch.get(0), sender);
+                        batch.set(0, new ArrayList<ETDataExtensionRow>(batchSize));
+                    }
+                    if (System.currentTimeMillis() - lastProgressTime
+                            >= options.getProgressInterval())
+                    {
+                        reportProgress(false);
+                    }
+                }
+            });
+            if (batch.get(0).size() > 0) {
+                dispatcher.send(batch.get(0), sender);
+            }
+        } catch (ETSdkException ex) {
+            // let the batches already sent finish
+            exception = ex;
+        }
+
+        //
+        // Wait for the batches in flight:
+        //
+
+        try {
+            while (!dispatcher.awaitBatches(options.getProgressInterval())) {
+                reportProgress(false);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted " + operation + " rows of "
+                    + dataExtension.getKey(), ex);
+        }
+
+        if (exception != null) {
+            throw new ETSdkException("error " + operation + " rows of "
+                    + dataExtension.getKey() + " after " + rowsRead.get()
+                    + " rows", exception);
+        }
+        if (response.getStatus() == ETResult.Status.ERROR) {
+            throw new ETSdkException("error retrieving rows of "
+                    + dataExtension.getKey() + " after " + rowsRead.get()
+                    + " rows: " + response.getResponseMessage());
+        }
+
+        ETIngestProgress progress = reportProgress(true);
+
+        logger.debug(operation + " rows of " + dataExtension.getKey() + ": "
+                + progress.getRowsSucceeded() + " succeeded, "
+                + progress.getRowsFailed() + " failed in "
+                + progress.getElapsedTime() + " ms");
+
+        return progress;
+    }
+
+    private CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        if (assignments != null) {
+            for (ETDataExtensionRow row : rows) {
+                row.setDataExtensionKey(dataExtension.getKey());
+                for (ETExpression assignment : assignments) {
+                    row.setColumn(assignment.getProperty(), assignment.getValue());
+                }
+            }
+            return ETSoapObject.updateAsync(client, rows);
+        }
+        List<APIObject> internalRows = new ArrayList<APIObject>(rows.size());
+        for (ETDataExtensionRow row : rows) {
+            internalRows.add(dataExtension.toDeleteObject(row, primaryKeyColumnNames));
+        }
+        return ETSoapObject.<ETDataExtensionRow>deleteAsync(client, internalRows, true);
+    }
+
+    private ETIngestProgress reportProgress(boolean done) {
+        long now = System.currentTimeMillis();
+        lastProgressTime = now;
+        ETIngestProgress progress = new ETIngestProgress(rowsRead.get(),
+                                                         rowsSucceeded.get(),
+                                                         dispatcher.getRowsFailed(),
+                                                         dispatcher.getBatchesSent(),
+                                                         now - startTime,
+                                                         done);
+        if (listener != null) {
+            listener.progress(progress);
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,439 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETHashSync</code> is a running sync of a snapshot of
+ * rows into a data extension. Each row's primary key and content
+ * are hashed and compared with the hashes in an
+ * <code>ETRowHashStore</code>: rows that are new or whose content
+ * changed are upserted, unchanged rows are skipped, and rows in the
+ * store that aren't in the snapshot are deleted. Batches are sent
+ * while the snapshot is read, as in <code>ETFilteredWrite</code>.
+ * The new store is written as the results come back (keeping the
+ * old hash of rows that failed, so that they are sent again next
+ * time) and replaces the old one only when every batch has
+ * completed.
+ */
+
+class ETHashSync {
+    private static Logger logger = Logger.getLogger(ETHashSync.class);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETDataExtension dataExtension = null;
+    private ETClient client = null;
+    private ETRowHashStore store = null;
+    private ETIngestOptions options = null;
+    private ETIngestListener listener = null;
+
+    private List<String> primaryKeyColumnNames = null;
+    private int batchSize = 0;
+    private ETBatchDispatcher dispatcher = null;
+
+    private ETRowHashStore.Table table = null;
+    private ETRowHashStore.Writer writer = null;
+    private volatile ETSdkException writeException = null;
+
+    private AtomicLong rowsRead = new AtomicLong();
+    private AtomicLong rowsInserted = new AtomicLong();
+    private AtomicLong rowsUpdated = new AtomicLong();
+    private AtomicLong rowsDeleted = new AtomicLong();
+    private AtomicLong rowsUnchanged = new AtomicLong();
+
+    private long startTime = 0;
+    private long lastProgressTime = 0;
+
+    //
+    // A row sent (or to be sent), with the hashes it is recorded
+    // with in the new store depending on the outcome:
+    //
+
+    private static class Pending {
+        ETDataExtensionRow row = null;
+        String[] keyValues = null;
+        long keyHash = 0;
+        long rowHash = 0;
+        // 0 if the row isn't in the old store:
+        long oldRowHash = 0;
+    }
+
+    ETHashSync(ETDataExtension dataExtension,
+               ETRowHashStore store,
+               ETIngestOptions options)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+        this.client = dataExtension.getClient();
+        this.store = store;
+        this.options = options;
+        this.listener = options.getListener();
+
+        primaryKeyColumnNames = dataExtension.getPrimaryKeyColumnNames();
+        if (primaryKeyColumnNames.isEmpty()) {
+            throw new ETSdkException("data extension " + dataExtension.getKey()
+                    + " has no primary key");
+        }
+
+        dispatcher = new ETBatchDispatcher(dataExtension, options);
+        batchSize = dispatcher.getBatchSize();
+    }
+
+    ETHashSyncProgress run(Iterator<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        startTime = System.currentTimeMillis();
+        lastProgressTime = startTime;
+
+        boolean hadStore = store.exists();
+        table = store.load(primaryKeyColumnNames);
+        int storedRows = table.size();
+
+        logger.debug("syncing rows of " + dataExtension.getKey() + " against "
+                + storedRows + " row hashes in " + store.getPath()
+                + " in batches of " + batchSize + " ("
+                + dispatcher.getMaxBatchesInFlight() + " concurrent)");
+
+        writer = store.openWriter(primaryKeyColumnNames);
+        ETSdkException exception = null;
+        try {
+            //
+            // Upsert the rows of the snapshot that are new or changed:
+            //
+
+            List<Pending> batch = new ArrayList<Pending>(batchSize);
+            while (rows.hasNext()) {
+                ETDataExtensionRow row = rows.next();
+                rowsRead.incrementAndGet();
+                Pending pending = compare(row);
+                if (pending != null) {
+                    batch.add(pending);
+                    if (batch.size() >= batchSize) {
+                        send(batch, false);
+                        batch = new ArrayList<Pending>(batchSize);
+                    }
+                }
+                if (System.currentTimeMillis() - lastProgressTime
+                        >= options.getProgressInterval())
+                {
+                    reportProgress(false);
+                }
+            }
+            if (batch.size() > 0) {
+                send(batch, false);
+            }
+
+            //
+            // Delete the rows in the old store that weren't in the
+            // snapshot (their primary key values are read back from
+            // the file, so they're never all held in memory):
+            //
+
+            if (hadStore && storedRows > 0) {
+                batch = new ArrayList<Pending>(batchSize);
+                ETRowHashStore.Reader reader = store.openReader(primaryKeyColumnNames);
+                try {
+                    while (reader.next()) {
+                        int slot = table.find(reader.getKeyHash());
+                        if (slot != -1 && table.markSeen(slot)) {
+                            batch.add(toDelete(reader));
+                            if (batch.size() >= batchSize) {
+                                send(batch, true);
+                                batch = new ArrayList<Pending>(batchSize);
+                            }
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+                if (batch.size() > 0) {
+                    send(batch, true);
+                }
+            }
+        } catch (ETSdkException ex) {
+            // let the batches already sent finish
+            exception = ex;
+        } catch (RuntimeException ex) {
+            // (e.g. thrown by the snapshot's iterator)
+            exception = new ETSdkException("error reading snapshot", ex);
+        }
+
+        //
+        // Wait for the batches in flight:
+        //
+
+        try {
+            while (!dispatcher.awaitBatches(options.getProgressInterval())) {
+                reportProgress(false);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            writer.abort();
+            throw new ETSdkException("interrupted syncing rows of "
+                    + dataExtension.getKey(), ex);
+        }
+
+        if (exception == null) {
+            exception = writeException;
+        }
+        if (exception != null) {
+            // leave the old store as it was
+            writer.abort();
+            throw new ETSdkException("error syncing rows of "
+                    + dataExtension.getKey() + " after " + rowsRead.get()
+                    + " rows", exception);
+        }
+        writer.commit();
+
+        ETHashSyncProgress progress = reportProgress(true);
+
+        logger.debug("synced rows of " + dataExtension.getKey() + ": "
+                + progress.getRowsInserted() + " inserted, "
+                + progress.getRowsUpdated() + " updated, "
+                + progress.getRowsDeleted() + " deleted, "
+                + progress.getRowsUnchanged() + " unchanged, "
+                + progress.getRowsFailed() + " failed in "
+                + progress.getElapsedTime() + " ms");
+
+        return progress;
+    }
+
+    //
+    // Compares a row of the snapshot with the store, returning
+    // the row to send, or null if there's nothing to send:
+    //
+
+    private Pending compare(ETDataExtensionRow row)
+        throws ETSdkException
+    {
+        String[] keyValues = new String[primaryKeyColumnNames.size()];
+        for (int i = 0; i < keyValues.length; i++) {
+            keyValues[i] = row.getColumn(primaryKeyColumnNames.get(i));
+            if (keyValues[i] == null) {
+                dispatcher.rowFailed(row, "Error", "primary key column "
+                        + primaryKeyColumnNames.get(i) + " not set");
+                return null;
+            }
+        }
+        long keyHash = hashKey(keyValues);
+        long rowHash = hashRow(row);
+
+        int slot = table.find(keyHash);
+        if (slot == -1) {
+            table.put(keyHash, rowHash);
+            table.markSeen(table.find(keyHash));
+        } else if (!table.markSeen(slot)) {
+            dispatcher.rowFailed(row, "Error", "duplicate primary key "
+                    + Arrays.toString(keyValues) + " in snapshot");
+            return null;
+        } else if (table.getValue(slot) == rowHash) {
+            writer.write(keyHash, rowHash, keyValues);
+            rowsUnchanged.incrementAndGet();
+            return null;
+        }
+
+        Pending pending = new Pending();
+        pending.row = row;
+        pending.keyValues = keyValues;
+        pending.keyHash = keyHash;
+        pending.rowHash = rowHash;
+        if (slot != -1) {
+            pending.oldRowHash = table.getValue(slot);
+        }
+        return pending;
+    }
+
+    private Pending toDelete(ETRowHashStore.Reader reader) {
+        Pending pending = new Pending();
+        pending.keyValues = reader.getKeyValues();
+        pending.keyHash = reader.getKeyHash();
+        pending.oldRowHash = reader.getRowHash();
+        pending.row = new ETDataExtensionRow();
+        for (int i = 0; i < pending.keyValues.length; i++) {
+            pending.row.setColumn(primaryKeyColumnNames.get(i), pending.keyValues[i]);
+        }
+        return pending;
+    }
+
+    private void send(List<Pending> batch, final boolean deleting)
+        throws ETSdkException
+    {
+        dispatcher.send(batch, new ETBatchDispatcher.Sender<Pending>() {
+            public CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<Pending> pendings)
+                throws ETSdkException
+            {
+                if (deleting) {
+                    List<APIObject> internalRows = new ArrayList<APIObject>(pendings.size());
+                    for (Pending pending : pendings) {
+                        internalRows.add(dataExtension.toDeleteObject(pending.row,
+                                                                      primaryKeyColumnNames));
+                    }
+                    return ETSoapObject.<ETDataExtensionRow>deleteAsync(client, internalRows, true);
+                }
+                List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>(pendings.size());
+                for (Pending pending : pendings) {
+                    if (pending.row.getDataExtensionKey() == null) {
+                        pending.row.setDataExtensionKey(dataExtension.getKey());
+                    }
+                    rows.add(pending.row);
+                }
+                return ETSoapObject.upsertAsync(client, rows);
+            }
+
+            public ETDataExtensionRow getRow(Pending pending) {
+                return pending.row;
+            }
+
+            public void completed(Pending pending, ETResult<ETDataExtensionRow> result) {
+                if (result.getStatus() == ETResult.Status.OK) {
+                    succeeded(pending, deleting);
+                } else if (pending.oldRowHash != 0) {
+                    //
+                    // Keep the row as it was in the old store (if it
+                    // was there), so the next sync tries again:
+                    //
+
+                    record(pending.keyHash, pending.oldRowHash, pending.keyValues);
+                }
+            }
+        });
+    }
+
+    private void succeeded(Pending pending, boolean deleting) {
+        if (deleting) {
+            rowsDeleted.incrementAndGet();
+            return;
+        }
+        record(pending.keyHash, pending.rowHash, pending.keyValues);
+        if (pending.oldRowHash != 0) {
+            rowsUpdated.incrementAndGet();
+        } else {
+            rowsInserted.incrementAndGet();
+        }
+    }
+
+    private void record(long keyHash, long rowHash, String[] keyValues) {
+        try {
+            writer.write(keyHash, rowHash, keyValues);
+        } catch (ETSdkException ex) {
+            if (writeException == null) {
+                writeException = ex;
+            }
+        }
+    }
+
+    private ETHashSyncProgress reportProgress(boolean done) {
+        long now = System.currentTimeMillis();
+        lastProgressTime = now;
+        ETHashSyncProgress progress = new ETHashSyncProgress(rowsRead.get(),
+                                                             rowsInserted.get(),
+                                                             rowsUpdated.get(),
+                                                             rowsDeleted.get(),
+                                                             rowsUnchanged.get(),
+                                                             dispatcher.getRowsFailed(),
+                                                             dispatcher.getBatchesSent(),
+                                                             now - startTime,
+                                                             done);
+        if (listener != null) {
+            listener.progress(progress);
+        }
+        return progress;
+    }
+
+    //
+    // Hashes are 64-bit FNV-1a over the characters of each value
+    // (prefixed by its length, so that values can't run into each
+    // other), finished with the MurmurHash3 mixing function. 0 is
+    // reserved (for "not in the store"), so is never returned.
+    //
+
+    static long hashKey(String[] keyValues) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String keyValue : keyValues) {
+            hash = hash(hash, keyValue);
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Hashes the non-null columns of a row by (lower case) name,
+     * independent of the order they were set in.
+     */
+    static long hashRow(ETDataExtensionRow row) {
+        Set<String> columnNames = row.getColumnNames();
+        String[] names = columnNames.toArray(new String[columnNames.size()]);
+        Arrays.sort(names);
+        long hash = FNV_OFFSET_BASIS;
+        for (String name : names) {
+            String value = row.getColumn(name);
+            if (value != null) {
+                hash = hash(hash, name);
+                hash = hash(hash, value);
+            }
+        }
+        return finish(hash);
+    }
+
+    private static long hash(long hash, String value) {
+        int length = value.length();
+        hash = (hash ^ length) * FNV_PRIME;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
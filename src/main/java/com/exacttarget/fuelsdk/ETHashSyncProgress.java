@@ -0,0 +1,108 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import com.exacttarget.fuelsdk.annotations.PrettyPrint;
+
+/**
+ * An <code>ETHashSyncProgress</code> object is a snapshot of the
+ * status of an <code>ETDataExtension.sync</code> job. Rows read are
+ * the rows of the snapshot; rows succeeded and failed count only
+ * the inserts, updates, and deletes that were sent.
+ */
+
+public class ETHashSyncProgress extends ETIngestProgress {
+    @PrettyPrint
+    private long rowsInserted = 0;
+    @PrettyPrint
+    private long rowsUpdated = 0;
+    @PrettyPrint
+    private long rowsDeleted = 0;
+    @PrettyPrint
+    private long rowsUnchanged = 0;
+
+    public ETHashSyncProgress(long rowsRead,
+                              long rowsInserted,
+                              long rowsUpdated,
+                              long rowsDeleted,
+                              long rowsUnchanged,
+                              long rowsFailed,
+                              long batchesSent,
+                              long elapsedTime,
+                              boolean done)
+    {
+        super(rowsRead,
+              rowsInserted + rowsUpdated + rowsDeleted,
+              rowsFailed,
+              batchesSent,
+              elapsedTime,
+              done);
+        this.rowsInserted = rowsInserted;
+        this.rowsUpdated = rowsUpdated;
+        this.rowsDeleted = rowsDeleted;
+        this.rowsUnchanged = rowsUnchanged;
+    }
+
+    /**
+     * Returns the number of rows sent that weren't in the store.
+     */
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    /**
+     * Returns the number of rows sent whose content changed since
+     * they were last sent.
+     */
+    public long getRowsUpdated() {
+        return rowsUpdated;
+    }
+
+    /**
+     * Returns the number of rows deleted because they were in the
+     * store but not in the snapshot.
+     */
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /**
+     * Returns the number of rows skipped because their content
+     * hasn't changed since they were last sent.
+     */
+    public long getRowsUnchanged() {
+        return rowsUnchanged;
+    }
+}
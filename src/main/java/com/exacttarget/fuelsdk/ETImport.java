@@ -0,0 +1,612 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETImport</code> is a running
+ * <code>ETDataExtension.importFile</code> job. The file is
+ * memory-mapped and split, at record boundaries, into chunks
+ * that are parsed into rows in parallel; the rows of each chunk
+ * are then fed, in file order, to an <code>ETIngest</code> job.
+ * Only a few chunks are parsed ahead of the rows being loaded,
+ * so memory use stays flat however large the file is.
+ */
+
+class ETImport {
+    private static Logger logger = Logger.getLogger(ETImport.class);
+
+    // the quote character if fields aren't quoted (never equal to a byte):
+    static final int NO_QUOTE = Integer.MIN_VALUE;
+
+    // size of the windows mapped when looking for record boundaries:
+    private static final int SCAN_WINDOW = 16 * 1024 * 1024;
+
+    // signals the end of the chunks to the ingest job:
+    private static final Future<Chunk> END =
+            new FutureTask<Chunk>(new Callable<Chunk>() {
+                public Chunk call() {
+                    return null;
+                }
+            });
+
+    private ETDataExtension dataExtension = null;
+    private Path path = null;
+    private ETImportOptions options = null;
+    private ETImportListener listener = null;
+
+    private byte delimiter = 0;
+    private int quote = NO_QUOTE;
+    private Charset charset = null;
+
+    private FileChannel channel = null;
+    private long fileSize = 0;
+
+    // the columns the rows are loaded into, and the position of
+    // each of the file's fields in them (-1 if not loaded):
+    private ETDataExtensionSchema schema = null;
+    private int[] columnIndexes = null;
+
+    private BlockingQueue<Future<Chunk>> chunks = null;
+    private List<ETImportChunk> results = new ArrayList<ETImportChunk>();
+
+    ETImport(ETDataExtension dataExtension, Path path, ETImportOptions options)
+        throws ETSdkException
+    {
+        this.dataExtension = dataExtension;
+        this.path = path;
+        this.options = options;
+        if (options.getListener() instanceof ETImportListener) {
+            this.listener = (ETImportListener) options.getListener();
+        }
+
+        Character delimiter = options.getDelimiter();
+        if (delimiter == null) {
+            String fileName = path.getFileName().toString().toLowerCase();
+            if (fileName.endsWith(".tsv") || fileName.endsWith(".tab")) {
+                delimiter = '\t';
+            } else {
+                delimiter = ',';
+            }
+        }
+        Character quote = options.getQuote();
+        charset = options.getCharset();
+
+        //
+        // Records are split on the encoded delimiters, quotes, and
+        // line breaks, so they must be the ASCII bytes:
+        //
+
+        String special = "\r\n" + delimiter + (quote != null ? quote : "");
+        if (!Arrays.equals(special.getBytes(charset), special.getBytes(Charset.forName("US-ASCII")))) {
+            throw new ETSdkException("unsupported delimiter, quote, or character set "
+                    + charset + " importing " + path);
+        }
+        this.delimiter = (byte) delimiter.charValue();
+        this.quote = quote != null ? quote : NO_QUOTE;
+
+        chunks = new ArrayBlockingQueue<Future<Chunk>>(2 * options.getParserThreads());
+    }
+
+    ETImportProgress run()
+        throws ETSdkException
+    {
+        ExecutorService parsers = null;
+        Thread splitter = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileSize = channel.size();
+
+            final long dataOffset = readHeader();
+
+            logger.debug("importing " + path + " (" + fileSize + " bytes) into "
+                    + dataExtension.getKey() + " in chunks of "
+                    + options.getChunkSize() + " bytes ("
+                    + options.getParserThreads() + " parsers)");
+
+            final ExecutorService executor =
+                    Executors.newFixedThreadPool(options.getParserThreads(),
+                                                 newThreadFactory("ETImport-parse"));
+            parsers = executor;
+            splitter = newThreadFactory("ETImport-split").newThread(new Runnable() {
+                public void run() {
+                    split(dataOffset, executor);
+                }
+            });
+            splitter.start();
+
+            ETIngestProgress progress =
+                    new ETIngest(dataExtension.getClient(), dataExtension.getKey(), options)
+                            .run(new ChunkIterator());
+
+            logger.debug("imported " + path + " in " + results.size() + " chunks");
+
+            return new ETImportProgress(progress, fileSize, results);
+        } catch (IOException ex) {
+            throw new ETSdkException("error reading " + path, ex);
+        } finally {
+            if (splitter != null) {
+                splitter.interrupt();
+            }
+            if (parsers != null) {
+                parsers.shutdownNow();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    logger.warn("error closing " + path, ex);
+                }
+            }
+        }
+    }
+
+    //
+    // Reads the header (if any) and maps the file's columns to the
+    // data extension's; returns the offset of the first record:
+    //
+
+    private long readHeader()
+        throws ETSdkException, IOException
+    {
+        long offset = 0;
+
+        // skip the UTF-8 byte order mark, if any:
+        if (fileSize >= 3) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3);
+            if (buffer.get(0) == (byte) 0xEF
+                    && buffer.get(1) == (byte) 0xBB
+                    && buffer.get(2) == (byte) 0xBF)
+            {
+                offset = 3;
+            }
+        }
+
+        List<String> names = options.getColumns();
+        if (options.isHeader()) {
+            long end = findRecordEnd(channel, offset, offset, fileSize, quote);
+            List<String> header = null;
+            if (end > offset) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                offset, end - offset);
+                header = new RecordParser(buffer, delimiter, quote, charset).next();
+            }
+            if (header == null) {
+                throw new ETSdkException("no header in " + path);
+            }
+            if (names == null) {
+                names = header;
+            }
+            offset = end;
+        }
+        if (names == null) {
+            throw new ETSdkException("no columns specified importing "
+                    + path + " (which has no header)");
+        }
+
+        ETDataExtensionSchema dataExtensionSchema = dataExtension.getSchema();
+        List<String> columnNames = new ArrayList<String>();
+        columnIndexes = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            int ordinal = dataExtensionSchema.getOrdinal(name);
+            if (ordinal == -1) {
+                if (options.getIgnoreUnknownColumns()) {
+                    columnIndexes[i] = -1;
+                    continue;
+                }
+                throw new ETSdkException("column " + name + " of " + path
+                        + " not in data extension " + dataExtension.getKey());
+            }
+            String columnName = dataExtensionSchema.getColumnName(ordinal);
+            if (columnNames.contains(columnName)) {
+                throw new ETSdkException("duplicate column " + name + " in " + path);
+            }
+            columnIndexes[i] = columnNames.size();
+            columnNames.add(columnName);
+        }
+        schema = dataExtensionSchema.forColumnNames(columnNames);
+
+        return offset;
+    }
+
+    //
+    // Splitter thread: cut the file into chunks at record
+    // boundaries and queue them, in order, for parsing:
+    //
+
+    private void split(long offset, ExecutorService parsers) {
+        try {
+            int index = 0;
+            while (offset < fileSize) {
+                long end = findRecordEnd(channel, offset,
+                                         offset + options.getChunkSize(),
+                                         fileSize, quote);
+                if (end - offset > Integer.MAX_VALUE) {
+                    throw new IOException("record at offset " + offset
+                            + " of " + path + " too long");
+                }
+                final ETImportChunk chunk = new ETImportChunk(index++, offset, end - offset);
+                chunks.put(parsers.submit(new Callable<Chunk>() {
+                    public Chunk call()
+                        throws IOException
+                    {
+                        return parse(chunk);
+                    }
+                }));
+                offset = end;
+            }
+            chunks.put(END);
+        } catch (final IOException ex) {
+            FutureTask<Chunk> failed = new FutureTask<Chunk>(new Callable<Chunk>() {
+                public Chunk call()
+                    throws IOException
+                {
+                    throw ex;
+                }
+            });
+            failed.run();
+            try {
+                chunks.put(failed);
+            } catch (InterruptedException e) {
+                // the job was stopped
+            }
+        } catch (InterruptedException ex) {
+            // the job was stopped
+        }
+    }
+
+    //
+    // Parser threads: parse the records of a chunk into rows
+    // (which share the schema of the columns being loaded):
+    //
+
+    private Chunk parse(ETImportChunk result)
+        throws IOException
+    {
+        long startTime = System.currentTimeMillis();
+
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        result.getOffset(),
+                                        result.getLength());
+        RecordParser parser = new RecordParser(buffer, delimiter, quote, charset);
+        List<String> columnNames = schema.getColumnNames();
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+
+        ETDataExtensionRow.setRetrievedSchema(schema);
+        try {
+            List<String> fields = null;
+            while ((fields = parser.next()) != null) {
+                if (fields.size() == 1 && fields.get(0).length() == 0) {
+                    // skip blank lines
+                    continue;
+                }
+                if (fields.size() != columnIndexes.length) {
+                    result.parseError("record at offset "
+                            + (result.getOffset() + parser.getRecordOffset())
+                            + " has " + fields.size() + " fields (expected "
+                            + columnIndexes.length + ")");
+                    continue;
+                }
+                String[] values = new String[columnNames.size()];
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    if (columnIndexes[i] != -1) {
+                        values[columnIndexes[i]] = fields.get(i);
+                    }
+                }
+                ETDataExtensionRow row = new ETDataExtensionRow();
+                row.setColumns(columnNames, Arrays.asList(values), true);
+                rows.add(row);
+            }
+        } finally {
+            ETDataExtensionRow.setRetrievedSchema(null);
+        }
+
+        result.setRowsParsed(rows.size());
+        result.setParseTime(System.currentTimeMillis() - startTime);
+        return new Chunk(result, rows, startTime);
+    }
+
+    /**
+     * Returns the offset just past the first line break at or after
+     * <code>minEnd - 1</code> that isn't in a quoted field (i.e., the
+     * end of the record containing byte <code>minEnd - 1</code>), or
+     * the end of the file if there is none.
+     */
+    static long findRecordEnd(FileChannel channel,
+                              long offset,
+                              long minEnd,
+                              long fileSize,
+                              int quote)
+        throws IOException
+    {
+        // if fields can't be quoted, there's no need to track quotes
+        // (and so no need to scan the bytes before minEnd):
+        long position = quote == NO_QUOTE ? Math.max(offset, minEnd - 1) : offset;
+        boolean quoted = false;
+        while (position < fileSize) {
+            int length = (int) Math.min(SCAN_WINDOW, fileSize - position);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                                            position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == quote) {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && position + i >= minEnd - 1) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return fileSize;
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Parses delimited records from a buffer. Fields may be quoted,
+     * with quotes inside them doubled; line breaks are \n or \r\n.
+     */
+    static class RecordParser {
+        private ByteBuffer buffer = null;
+        private int limit = 0;
+        private byte delimiter = 0;
+        private int quote = NO_QUOTE;
+        private Charset charset = null;
+
+        private int position = 0;
+        private int recordOffset = 0;
+        private byte[] field = new byte[256];
+
+        RecordParser(ByteBuffer buffer, byte delimiter, int quote, Charset charset) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.delimiter = delimiter;
+            this.quote = quote;
+            this.charset = charset;
+        }
+
+        /**
+         * Returns the fields of the next record,
+         * or <code>null</code> if there are no more.
+         */
+        List<String> next() {
+            if (position >= limit) {
+                return null;
+            }
+            recordOffset = position;
+            List<String> fields = new ArrayList<String>();
+            while (true) {
+                int length = 0;
+                if (position < limit && buffer.get(position) == quote) {
+                    position++;
+                    while (position < limit) {
+                        byte b = buffer.get(position++);
+                        if (b == quote) {
+                            if (position < limit && buffer.get(position) == quote) {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        }
+                        length = append(length, b);
+                    }
+                }
+                // the field, or (if malformed) what follows its closing quote:
+                int unquoted = length;
+                while (position < limit) {
+                    byte b = buffer.get(position);
+                    if (b == delimiter || b == '\n') {
+                        break;
+                    }
+                    length = append(length, b);
+                    position++;
+                }
+                boolean endOfRecord = position >= limit || buffer.get(position) == '\n';
+                if (endOfRecord && length > unquoted && field[length - 1] == '\r') {
+                    length--;
+                }
+                fields.add(new String(field, 0, length, charset));
+                if (position >= limit) {
+                    break;
+                }
+                position++;
+                if (endOfRecord) {
+                    break;
+                }
+            }
+            return fields;
+        }
+
+        /**
+         * Returns the offset in the buffer of the
+         * record last returned by <code>next</code>.
+         */
+        int getRecordOffset() {
+            return recordOffset;
+        }
+
+        private int append(int length, byte b) {
+            if (length == field.length) {
+                field = Arrays.copyOf(field, field.length * 2);
+            }
+            field[length] = b;
+            return length + 1;
+        }
+    }
+
+    //
+    // A parsed chunk, tracking how many of its rows are
+    // still to be loaded:
+    //
+
+    private class Chunk implements ETIngest.Group {
+        private ETImportChunk result = null;
+        private ETDataExtensionRow[] rows = null;
+        private long startTime = 0;
+        private long rowsPending = 0;
+
+        private Chunk(ETImportChunk result,
+                      List<ETDataExtensionRow> rows,
+                      long startTime)
+        {
+            this.result = result;
+            this.rows = rows.toArray(new ETDataExtensionRow[rows.size()]);
+            this.startTime = startTime;
+            this.rowsPending = this.rows.length;
+        }
+
+        public void batchDone(int rowsSucceeded, int rowsFailed) {
+            boolean completed = false;
+            synchronized (this) {
+                result.addRows(rowsSucceeded, rowsFailed);
+                rowsPending -= rowsSucceeded + rowsFailed;
+                completed = rowsPending <= 0;
+            }
+            if (completed) {
+                completed();
+            }
+        }
+
+        private void completed() {
+            result.setElapsedTime(System.currentTimeMillis() - startTime);
+            if (logger.isDebugEnabled()) {
+                logger.debug("imported chunk " + result.getIndex() + " of "
+                        + path + ": " + result.getRowsSucceeded() + " rows loaded, "
+                        + result.getRowsFailed() + " failed, "
+                        + result.getParseErrors() + " parse errors in "
+                        + result.getElapsedTime() + " ms");
+            }
+            if (listener != null) {
+                try {
+                    listener.chunkCompleted(result);
+                } catch (RuntimeException ex) {
+                    // don't let the listener stop the job
+                    logger.warn("error reporting completed chunk", ex);
+                }
+            }
+        }
+    }
+
+    //
+    // Feeds the rows of the parsed chunks, in file order,
+    // to the ingest job:
+    //
+
+    private class ChunkIterator implements ETIngest.GroupedIterator {
+        private Chunk chunk = null;
+        private int next = 0;
+        private boolean ended = false;
+
+        public boolean hasNext() {
+            while (chunk == null || next >= chunk.rows.length) {
+                if (ended) {
+                    return false;
+                }
+                Future<Chunk> future = null;
+                try {
+                    future = chunks.take();
+                    if (future == END) {
+                        ended = true;
+                        chunk = null;
+                        return false;
+                    }
+                    chunk = future.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted importing " + path, ex);
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("error parsing " + path, ex.getCause());
+                }
+                next = 0;
+                results.add(chunk.result);
+                if (chunk.rows.length == 0) {
+                    chunk.completed();
+                }
+            }
+            return true;
+        }
+
+        public ETDataExtensionRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // let the row go once it's been loaded:
+            ETDataExtensionRow row = chunk.rows[next];
+            chunk.rows[next++] = null;
+            return row;
+        }
+
+        public ETIngest.Group getGroup() {
+            return chunk;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
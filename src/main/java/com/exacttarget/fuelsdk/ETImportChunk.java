@@ -0,0 +1,186 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.exacttarget.fuelsdk.annotations.PrettyPrint;
+
+/**
+ * An <code>ETImportChunk</code> object holds the results of loading
+ * one chunk of a file with <code>ETDataExtension.importFile</code>:
+ * the records that could not be parsed, the rows loaded and
+ * failed, and how long it took.
+ */
+
+public class ETImportChunk extends ETObject {
+    /**
+     * The maximum number of parse error messages kept per chunk.
+     */
+    public static final int MAX_ERROR_MESSAGES = 10;
+
+    @PrettyPrint
+    private int index = 0;
+    @PrettyPrint
+    private long offset = 0;
+    @PrettyPrint
+    private long length = 0;
+    @PrettyPrint
+    private long rowsParsed = 0;
+    @PrettyPrint
+    private long parseErrors = 0;
+    private List<String> errorMessages = new ArrayList<String>();
+    @PrettyPrint
+    private long rowsSucceeded = 0;
+    @PrettyPrint
+    private long rowsFailed = 0;
+    @PrettyPrint
+    private long parseTime = 0;
+    @PrettyPrint
+    private long elapsedTime = 0;
+
+    ETImportChunk(int index, long offset, long length) {
+        this.index = index;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the position of the chunk in the file (0 for the first).
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the byte offset of the chunk in the file.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    /**
+     * Returns the number of records that could not be parsed
+     * (e.g., because they have the wrong number of fields).
+     */
+    public long getParseErrors() {
+        return parseErrors;
+    }
+
+    /**
+     * Returns the messages for the first
+     * <code>MAX_ERROR_MESSAGES</code> parse errors.
+     */
+    public List<String> getErrorMessages() {
+        return Collections.unmodifiableList(errorMessages);
+    }
+
+    public long getRowsSucceeded() {
+        return rowsSucceeded;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    /**
+     * Returns the time (in milliseconds) taken to parse the chunk.
+     */
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Returns the time (in milliseconds) from when the chunk
+     * started parsing until all of its rows were loaded.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the number of bytes parsed per second.
+     */
+    public double getParseBytesPerSecond() {
+        if (parseTime == 0) {
+            return 0;
+        }
+        return length * 1000.0 / parseTime;
+    }
+
+    /**
+     * Returns the number of rows loaded (or rejected) per second.
+     */
+    public double getRowsPerSecond() {
+        if (elapsedTime == 0) {
+            return 0;
+        }
+        return (rowsSucceeded + rowsFailed) * 1000.0 / elapsedTime;
+    }
+
+    void parseError(String message) {
+        parseErrors++;
+        if (errorMessages.size() < MAX_ERROR_MESSAGES) {
+            errorMessages.add(message);
+        }
+    }
+
+    void setRowsParsed(long rowsParsed) {
+        this.rowsParsed = rowsParsed;
+    }
+
+    void setParseTime(long parseTime) {
+        this.parseTime = parseTime;
+    }
+
+    void addRows(long rowsSucceeded, long rowsFailed) {
+        this.rowsSucceeded += rowsSucceeded;
+        this.rowsFailed += rowsFailed;
+    }
+
+    void setElapsedTime(long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+}
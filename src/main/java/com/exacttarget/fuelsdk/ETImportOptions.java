@@ -0,0 +1,157 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * An <code>ETImportOptions</code> object holds the options for
+ * loading a delimited (CSV or TSV) file into a data extension with
+ * <code>ETDataExtension.importFile</code>, in addition to those
+ * of the <code>ETDataExtension.ingest</code> job that loads the
+ * parsed rows.
+ */
+
+public class ETImportOptions extends ETIngestOptions {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private Character delimiter = null;
+    private Character quote = '"';
+    private Charset charset = Charset.forName("UTF-8");
+    private boolean header = true;
+    private List<String> columns = null;
+    private boolean ignoreUnknownColumns = false;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+
+    public ETImportOptions() {}
+
+    public Character getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Sets the field delimiter (by default, tab for files
+     * named *.tsv or *.tab and comma otherwise).
+     */
+    public void setDelimiter(Character delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public Character getQuote() {
+        return quote;
+    }
+
+    /**
+     * Sets the character fields containing delimiters, quotes,
+     * or line breaks are quoted with (quotes inside quoted fields
+     * are doubled), or <code>null</code> if fields are never quoted.
+     */
+    public void setQuote(Character quote) {
+        this.quote = quote;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Sets the file's character set, which must encode the
+     * delimiters and line breaks as ASCII does (e.g., UTF-8
+     * or ISO-8859-1, but not UTF-16).
+     */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    /**
+     * Sets whether the first record of the file is a header
+     * naming its columns (true by default).
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Sets the data extension columns the file's fields are loaded
+     * into, in order; required if the file has no header, and
+     * used instead of the header if it does.
+     */
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public boolean getIgnoreUnknownColumns() {
+        return ignoreUnknownColumns;
+    }
+
+    /**
+     * Sets whether columns of the file that aren't in the data
+     * extension are skipped (by default, the import fails).
+     */
+    public void setIgnoreUnknownColumns(boolean ignoreUnknownColumns) {
+        this.ignoreUnknownColumns = ignoreUnknownColumns;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the (approximate) size in bytes of the chunks the
+     * file is split into to parse in parallel; chunks end
+     * at the first record boundary past this size.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+}
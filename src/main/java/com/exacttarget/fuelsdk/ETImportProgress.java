@@ -0,0 +1,90 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.exacttarget.fuelsdk.annotations.PrettyPrint;
+
+/**
+ * An <code>ETImportProgress</code> object holds the results of an
+ * <code>ETDataExtension.importFile</code> job: those of the
+ * <code>ETDataExtension.ingest</code> job that loaded the rows,
+ * plus the results for each chunk of the file.
+ */
+
+public class ETImportProgress extends ETIngestProgress {
+    @PrettyPrint
+    private long bytesRead = 0;
+    @PrettyPrint
+    private long parseErrors = 0;
+    private List<ETImportChunk> chunks = null;
+
+    public ETImportProgress(ETIngestProgress progress,
+                            long bytesRead,
+                            List<ETImportChunk> chunks)
+    {
+        super(progress.getRowsRead(),
+              progress.getRowsSucceeded(),
+              progress.getRowsFailed(),
+              progress.getBatchesSent(),
+              progress.getElapsedTime(),
+              progress.isDone());
+        this.bytesRead = bytesRead;
+        for (ETImportChunk chunk : chunks) {
+            parseErrors += chunk.getParseErrors();
+        }
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of records that could not be parsed.
+     */
+    public long getParseErrors() {
+        return parseErrors;
+    }
+
+    /**
+     * Returns the results for each chunk of the file, in order.
+     */
+    public List<ETImportChunk> getChunks() {
+        return chunks;
+    }
+}
@@ -0,0 +1,563 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.CreateOptions;
+import com.exacttarget.fuelsdk.internal.CreateRequest;
+import com.exacttarget.fuelsdk.internal.CreateResponse;
+import com.exacttarget.fuelsdk.internal.CreateResult;
+import com.exacttarget.fuelsdk.internal.Soap;
+
+/**
+ * An <code>ETIngest</code> is a running
+ * <code>ETDataExtension.ingest</code> job: a pipeline of
+ * three stages connected by bounded queues:
+ *
+ * 1. the calling thread pulls rows from the source and cuts
+ *    them into batches by count and (estimated) size,
+ * 2. converter threads convert each batch to a
+ *    <code>CreateRequest</code>, and
+ * 3. dispatcher threads serialize and send the requests.
+ *
+ * When a queue is full the stage feeding it blocks, so no more
+ * than a few batches are ever held in memory, however many rows
+ * the source produces.
+ *
+ * If the source is a <code>GroupedIterator</code>, batches are
+ * also cut where the group changes, and each group is told how
+ * many of its rows were loaded as each of its batches completes.
+ */
+
+class ETIngest {
+    private static Logger logger = Logger.getLogger(ETIngest.class);
+
+    // signals the end of the rows to the next stage:
+    private static final Batch END = new Batch(null, null);
+
+    private ETClient client = null;
+    private String dataExtensionKey = null;
+    private ETIngestOptions options = null;
+    private ETIngestListener listener = null;
+
+    private int batchSize = 0;
+    private int dispatcherThreads = 0;
+
+    private BlockingQueue<Batch> batches = null;
+    private BlockingQueue<Batch> requests = null;
+
+    private AtomicInteger convertersRunning = null;
+    private CountDownLatch dispatchersDone = null;
+
+    private AtomicLong rowsRead = new AtomicLong();
+    private AtomicLong rowsSucceeded = new AtomicLong();
+    private AtomicLong rowsFailed = new AtomicLong();
+    private AtomicLong batchesSent = new AtomicLong();
+
+    private long startTime = 0;
+    private long lastProgressTime = 0;
+
+    ETIngest(ETClient client, String dataExtensionKey, ETIngestOptions options)
+        throws ETSdkException
+    {
+        this.client = client;
+        this.dataExtensionKey = dataExtensionKey;
+        this.options = options;
+        this.listener = options.getListener();
+
+        ETSoapConnection connection = client.getSoapConnection();
+        if (options.getBatchSize() != null) {
+            batchSize = options.getBatchSize();
+        } else {
+            batchSize = connection.getBatchSize("DataExtensionObject");
+        }
+        if (options.getDispatcherThreads() != null) {
+            dispatcherThreads = options.getDispatcherThreads();
+        } else {
+            dispatcherThreads = connection.getMaxConcurrentBatches();
+        }
+
+        batches = new ArrayBlockingQueue<Batch>(options.getQueueCapacity());
+        requests = new ArrayBlockingQueue<Batch>(options.getQueueCapacity());
+    }
+
+    /**
+     * A set of rows (e.g., a chunk of a file) whose
+     * results are tracked together.
+     */
+    interface Group {
+        /**
+         * Called (from a dispatcher thread) when a batch
+         * of rows in the group has been loaded.
+         */
+        public void batchDone(int rowsSucceeded, int rowsFailed);
+    }
+
+    interface GroupedIterator extends Iterator<ETDataExtensionRow> {
+        /**
+         * Returns the group of the row last returned by
+         * <code>next</code>.
+         */
+        public Group getGroup();
+    }
+
+    ETIngestProgress run(Iterator<ETDataExtensionRow> rows)
+        throws ETSdkException
+    {
+        startTime = System.currentTimeMillis();
+        lastProgressTime = startTime;
+
+        int converterThreads = options.getConverterThreads();
+
+        logger.debug("ingesting into " + dataExtensionKey + " in batches of "
+                + batchSize + " (" + converterThreads + " converters, "
+                + dispatcherThreads + " dispatchers)");
+
+        convertersRunning = new AtomicInteger(converterThreads);
+        dispatchersDone = new CountDownLatch(dispatcherThreads);
+
+        ExecutorService converters =
+                Executors.newFixedThreadPool(converterThreads,
+                                             newThreadFactory("ETIngest-convert"));
+        ExecutorService dispatchers =
+                Executors.newFixedThreadPool(dispatcherThreads,
+                                             newThreadFactory("ETIngest-dispatch"));
+        try {
+            for (int i = 0; i < converterThreads; i++) {
+                converters.execute(new Runnable() {
+                    public void run() {
+                        convert();
+                    }
+                });
+            }
+            for (int i = 0; i < dispatcherThreads; i++) {
+                dispatchers.execute(new Runnable() {
+                    public void run() {
+                        dispatch();
+                    }
+                });
+            }
+
+            RuntimeException sourceException = null;
+            try {
+                read(rows);
+            } catch (RuntimeException ex) {
+                // let the rows already read finish loading:
+                sourceException = ex;
+            }
+            for (int i = 0; i < converterThreads; i++) {
+                batches.put(END);
+            }
+
+            while (!dispatchersDone.await(options.getProgressInterval(),
+                                          TimeUnit.MILLISECONDS))
+            {
+                reportProgress(false);
+            }
+
+            if (sourceException != null) {
+                throw new ETSdkException("error reading rows to ingest into "
+                        + dataExtensionKey + " after " + rowsRead.get()
+                        + " rows", sourceException);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted ingesting into "
+                    + dataExtensionKey, ex);
+        } finally {
+            converters.shutdownNow();
+            dispatchers.shutdownNow();
+        }
+
+        ETIngestProgress progress = reportProgress(true);
+
+        logger.debug("ingested " + progress.getRowsSucceeded() + " rows into "
+                + dataExtensionKey + " (" + progress.getRowsFailed()
+                + " failed) in " + progress.getElapsedTime() + " ms");
+
+        return progress;
+    }
+
+    //
+    // Stage 1 (calling thread): cut the rows into batches:
+    //
+
+    private void read(Iterator<ETDataExtensionRow> rows)
+        throws InterruptedException
+    {
+        GroupedIterator groupedRows = null;
+        if (rows instanceof GroupedIterator) {
+            groupedRows = (GroupedIterator) rows;
+        }
+
+        Batcher batcher = new Batcher(batchSize, options.getMaxBatchBytes());
+        while (rows.hasNext()) {
+            ETDataExtensionRow row = rows.next();
+            Group group = groupedRows != null ? groupedRows.getGroup() : null;
+            if (row.getDataExtensionKey() == null) {
+                row.setDataExtensionKey(dataExtensionKey);
+            }
+            Batch batch = batcher.add(row, group);
+            if (batch != null) {
+                batches.put(batch);
+            }
+            rowsRead.incrementAndGet();
+
+            if (System.currentTimeMillis() - lastProgressTime
+                    >= options.getProgressInterval())
+            {
+                reportProgress(false);
+            }
+        }
+        Batch batch = batcher.finish();
+        if (batch != null) {
+            batches.put(batch);
+        }
+    }
+
+    //
+    // Stage 2 (converter threads): convert batches of rows
+    // to create requests:
+    //
+
+    private void convert() {
+        try {
+            while (true) {
+                Batch batch = batches.take();
+                if (batch == END) {
+                    break;
+                }
+                List<ETDataExtensionRow> converted =
+                        new ArrayList<ETDataExtensionRow>(batch.rows.size());
+                CreateRequest createRequest = new CreateRequest();
+                createRequest.setOptions(new CreateOptions());
+                int conversionFailures = 0;
+                for (ETDataExtensionRow row : batch.rows) {
+                    try {
+                        row.setClient(client);
+                        createRequest.getObjects().add(row.toInternal());
+                        converted.add(row);
+                    } catch (Exception ex) {
+                        rowFailed(row, "Error", "could not convert row: " + ex);
+                        conversionFailures++;
+                    }
+                }
+                if (converted.size() > 0) {
+                    Batch request = new Batch(converted, batch.group);
+                    request.createRequest = createRequest;
+                    request.conversionFailures = conversionFailures;
+                    requests.put(request);
+                } else {
+                    batchDone(batch, 0);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the last converter out tells the dispatchers:
+            if (convertersRunning.decrementAndGet() == 0) {
+                try {
+                    for (int i = 0; i < dispatcherThreads; i++) {
+                        requests.put(END);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    //
+    // Stage 3 (dispatcher threads): serialize and send
+    // the create requests:
+    //
+
+    private void dispatch() {
+        try {
+            Soap soap = client.getSoapConnection().getSoap();
+            while (true) {
+                Batch batch = requests.take();
+                if (batch == END) {
+                    break;
+                }
+                CreateResponse createResponse = null;
+                try {
+                    client.refreshToken();
+                    createResponse = soap.create(batch.createRequest);
+                } catch (Exception ex) {
+                    logger.warn("error sending batch of " + batch.rows.size()
+                            + " rows to " + dataExtensionKey, ex);
+                    for (ETDataExtensionRow row : batch.rows) {
+                        rowFailed(row, "Error", "error sending batch: " + ex);
+                    }
+                    batchDone(batch, 0);
+                    continue;
+                } finally {
+                    batchesSent.incrementAndGet();
+                }
+                handleResults(batch, createResponse);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            dispatchersDone.countDown();
+        }
+    }
+
+    private void handleResults(Batch batch, CreateResponse createResponse) {
+        int succeeded = 0;
+        int index = 0;
+        boolean[] hasResult = new boolean[batch.rows.size()];
+        for (CreateResult createResult : createResponse.getResults()) {
+            Integer ordinal = createResult.getOrdinalID();
+            if (ordinal == null || ordinal < 0 || ordinal >= batch.rows.size()) {
+                ordinal = index;
+            }
+            index++;
+            if (ordinal >= batch.rows.size() || hasResult[ordinal]) {
+                // more results than rows
+                continue;
+            }
+            hasResult[ordinal] = true;
+            if ("OK".equals(createResult.getStatusCode())) {
+                succeeded++;
+                continue;
+            }
+            ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+            result.setRequestId(createResponse.getRequestID());
+            result.setStatus(ETResult.Status.ERROR);
+            result.setResponseCode(createResult.getStatusCode());
+            result.setResponseMessage(createResult.getStatusMessage());
+            result.setErrorCode(createResult.getErrorCode());
+            result.setObject(batch.rows.get(ordinal));
+            rowFailed(result);
+        }
+
+        //
+        // Rows without a result (e.g., when the whole call
+        // failed) failed with the overall status:
+        //
+
+        for (int i = 0; i < hasResult.length; i++) {
+            if (!hasResult[i]) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setRequestId(createResponse.getRequestID());
+                result.setStatus(ETResult.Status.ERROR);
+                result.setResponseCode(createResponse.getOverallStatus());
+                result.setResponseMessage(createResponse.getOverallStatus());
+                result.setObject(batch.rows.get(i));
+                rowFailed(result);
+            }
+        }
+        rowsSucceeded.addAndGet(succeeded);
+        batchDone(batch, succeeded);
+    }
+
+    //
+    // Tells the batch's group (if any) how many of its rows
+    // were loaded; the rest (including those that could not be
+    // converted) failed:
+    //
+
+    private void batchDone(Batch batch, int succeeded) {
+        if (batch.group == null) {
+            return;
+        }
+        try {
+            batch.group.batchDone(succeeded, batch.rows.size()
+                    + batch.conversionFailures - succeeded);
+        } catch (RuntimeException ex) {
+            // don't let the group stop the job
+            logger.warn("error reporting completed batch", ex);
+        }
+    }
+
+    private void rowFailed(ETDataExtensionRow row,
+                           String responseCode,
+                           String responseMessage)
+    {
+        ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+        result.setStatus(ETResult.Status.ERROR);
+        result.setResponseCode(responseCode);
+        result.setResponseMessage(responseMessage);
+        result.setObject(row);
+        rowFailed(result);
+    }
+
+    private void rowFailed(ETResult<ETDataExtensionRow> result) {
+        rowsFailed.incrementAndGet();
+        if (listener != null) {
+            try {
+                listener.rowFailed(result);
+            } catch (RuntimeException ex) {
+                // don't let the listener stop the job
+                logger.warn("error reporting failed row", ex);
+            }
+        }
+    }
+
+    private ETIngestProgress reportProgress(boolean done) {
+        long now = System.currentTimeMillis();
+        lastProgressTime = now;
+        ETIngestProgress progress = new ETIngestProgress(rowsRead.get(),
+                                                         rowsSucceeded.get(),
+                                                         rowsFailed.get(),
+                                                         batchesSent.get(),
+                                                         now - startTime,
+                                                         done);
+        if (listener != null) {
+            listener.progress(progress);
+        }
+        return progress;
+    }
+
+    //
+    // Rough size of the row in the request (column names
+    // and values plus per-property markup):
+    //
+
+    static int estimateSize(ETDataExtensionRow row) {
+        int size = 100;
+        for (String name : row.getColumnNames()) {
+            String value = row.getColumn(name);
+            size += 2 * name.length() + 50;
+            if (value != null) {
+                size += value.length();
+            }
+        }
+        return size;
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    static class Batch {
+        private List<ETDataExtensionRow> rows = null;
+        private Group group = null;
+        private CreateRequest createRequest = null;
+        private int conversionFailures = 0;
+
+        private Batch(List<ETDataExtensionRow> rows, Group group) {
+            this.rows = rows;
+            this.group = group;
+        }
+
+        List<ETDataExtensionRow> getRows() {
+            return rows;
+        }
+
+        Group getGroup() {
+            return group;
+        }
+    }
+
+    /**
+     * Cuts rows into batches of at most <code>batchSize</code>
+     * rows and (an estimated) <code>maxBatchBytes</code> bytes,
+     * never mixing rows of different groups. A row bigger than
+     * <code>maxBatchBytes</code> goes in a batch of its own.
+     */
+    static class Batcher {
+        private int batchSize = 0;
+        private int maxBatchBytes = 0;
+
+        private List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        private Group group = null;
+        private int bytes = 0;
+
+        Batcher(int batchSize, int maxBatchBytes) {
+            this.batchSize = batchSize;
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
+        /**
+         * Adds a row, returning the batch it doesn't fit in
+         * (which is then complete), or <code>null</code>.
+         */
+        Batch add(ETDataExtensionRow row, Group group) {
+            Batch batch = null;
+            int rowBytes = estimateSize(row);
+            if (rows.size() > 0 && (rows.size() >= batchSize
+                    || bytes + rowBytes > maxBatchBytes
+                    || group != this.group))
+            {
+                batch = new Batch(rows, this.group);
+                rows = new ArrayList<ETDataExtensionRow>();
+                bytes = 0;
+            }
+            this.group = group;
+            rows.add(row);
+            bytes += rowBytes;
+            return batch;
+        }
+
+        /**
+         * Returns the last batch, or <code>null</code> if
+         * there are no rows left.
+         */
+        Batch finish() {
+            if (rows.isEmpty()) {
+                return null;
+            }
+            Batch batch = new Batch(rows, group);
+            rows = new ArrayList<ETDataExtensionRow>();
+            bytes = 0;
+            return batch;
+        }
+    }
+}
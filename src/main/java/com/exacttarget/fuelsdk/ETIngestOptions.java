@@ -0,0 +1,135 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+/**
+ * An <code>ETIngestOptions</code> object holds the options for
+ * loading rows into a data extension with
+ * <code>ETDataExtension.ingest</code>. Options left
+ * <code>null</code> default to the corresponding settings of the
+ * client's <code>ETSoapConnection</code>.
+ */
+
+public class ETIngestOptions extends ETObject {
+    public static final int DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_CONVERTER_THREADS = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+    public static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+    private Integer batchSize = null;
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private int converterThreads = DEFAULT_CONVERTER_THREADS;
+    private Integer dispatcherThreads = null;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    private ETIngestListener listener = null;
+
+    public ETIngestOptions() {}
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of rows per create call (by default,
+     * the connection's batch size for data extension rows).
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Sets the (estimated) maximum size of the rows in one create
+     * call; a batch is sent when either limit is reached.
+     */
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public int getConverterThreads() {
+        return converterThreads;
+    }
+
+    public void setConverterThreads(int converterThreads) {
+        this.converterThreads = converterThreads;
+    }
+
+    public Integer getDispatcherThreads() {
+        return dispatcherThreads;
+    }
+
+    /**
+     * Sets the number of create calls in flight at any one time
+     * (by default, the connection's maximum concurrent batches).
+     */
+    public void setDispatcherThreads(Integer dispatcherThreads) {
+        this.dispatcherThreads = dispatcherThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the number of batches that can be waiting between
+     * stages; when a queue is full, the stage feeding it blocks.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Sets the time (in milliseconds) between progress reports.
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    public ETIngestListener getListener() {
+        return listener;
+    }
+
+    public void setListener(ETIngestListener listener) {
+        this.listener = listener;
+    }
+}
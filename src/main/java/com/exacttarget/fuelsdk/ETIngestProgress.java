@@ -0,0 +1,112 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import com.exacttarget.fuelsdk.annotations.PrettyPrint;
+
+/**
+ * An <code>ETIngestProgress</code> object is a snapshot of the
+ * status of an <code>ETDataExtension.ingest</code> job.
+ */
+
+public class ETIngestProgress extends ETObject {
+    @PrettyPrint
+    private long rowsRead = 0;
+    @PrettyPrint
+    private long rowsSucceeded = 0;
+    @PrettyPrint
+    private long rowsFailed = 0;
+    @PrettyPrint
+    private long batchesSent = 0;
+    @PrettyPrint
+    private long elapsedTime = 0;
+    @PrettyPrint
+    private boolean done = false;
+
+    public ETIngestProgress(long rowsRead,
+                            long rowsSucceeded,
+                            long rowsFailed,
+                            long batchesSent,
+                            long elapsedTime,
+                            boolean done)
+    {
+        this.rowsRead = rowsRead;
+        this.rowsSucceeded = rowsSucceeded;
+        this.rowsFailed = rowsFailed;
+        this.batchesSent = batchesSent;
+        this.elapsedTime = elapsedTime;
+        this.done = done;
+    }
+
+    /**
+     * Returns the number of rows taken from the source so far.
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsSucceeded() {
+        return rowsSucceeded;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    /**
+     * Returns the time (in milliseconds) since the job started.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the number of rows loaded (or rejected) per second.
+     */
+    public double getRowsPerSecond() {
+        if (elapsedTime == 0) {
+            return 0;
+        }
+        return (rowsSucceeded + rowsFailed) * 1000.0 / elapsedTime;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+}
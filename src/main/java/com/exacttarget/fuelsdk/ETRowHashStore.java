@@ -0,0 +1,411 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An <code>ETRowHashStore</code> remembers, per primary key, a hash
+ * of the content of each data extension row as it was last sent by
+ * <code>ETDataExtension.sync</code>. It is a binary file holding a
+ * 64-bit hash of each primary key, a 64-bit hash of the row, and the
+ * primary key values (which are needed to delete the row once it
+ * disappears from the snapshot). Each sync writes a new file next
+ * to the old one and renames it over the original, so the store is
+ * never left half written.
+ */
+
+public class ETRowHashStore {
+    private static Logger logger = Logger.getLogger(ETRowHashStore.class);
+
+    private static final int MAGIC = 0x45545248; // "ETRH"
+    private static final int VERSION = 1;
+
+    private Path path = null;
+
+    public ETRowHashStore(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns true if a sync has written the store; if not, the
+     * next sync sends every row in the snapshot.
+     */
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Deletes the store, so that the next sync sends every row in
+     * the snapshot again (and deletes none).
+     */
+    public void clear()
+        throws ETSdkException
+    {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            throw new ETSdkException("could not delete " + path, ex);
+        }
+    }
+
+    /**
+     * Loads the key and row hashes (but not the primary key values)
+     * into a table.
+     */
+    Table load(List<String> primaryKeyColumnNames)
+        throws ETSdkException
+    {
+        Table table = new Table(1024);
+        if (!exists()) {
+            return table;
+        }
+        Reader reader = openReader(primaryKeyColumnNames);
+        try {
+            while (reader.next()) {
+                table.put(reader.getKeyHash(), reader.getRowHash());
+            }
+        } finally {
+            reader.close();
+        }
+        logger.debug("loaded " + table.size() + " row hashes from " + path);
+        return table;
+    }
+
+    Reader openReader(List<String> primaryKeyColumnNames)
+        throws ETSdkException
+    {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(path), 65536));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new ETSdkException(path + " is not a row hash store");
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new ETSdkException("unsupported row hash store version "
+                            + version + " in " + path);
+                }
+                int count = in.readInt();
+                List<String> columnNames = new ArrayList<String>(count);
+                for (int i = 0; i < count; i++) {
+                    columnNames.add(in.readUTF());
+                }
+                if (!columnNames.equals(primaryKeyColumnNames)) {
+                    throw new ETSdkException(path + " was written for primary key "
+                            + columnNames + ", not " + primaryKeyColumnNames);
+                }
+                Reader reader = new Reader(in, count);
+                in = null;
+                return reader;
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+        } catch (IOException ex) {
+            throw new ETSdkException("could not read " + path, ex);
+        }
+    }
+
+    Writer openWriter(List<String> primaryKeyColumnNames)
+        throws ETSdkException
+    {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory,
+                                             path.getFileName().toString(),
+                                             ".tmp");
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), 65536));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(primaryKeyColumnNames.size());
+            for (String columnName : primaryKeyColumnNames) {
+                out.writeUTF(columnName);
+            }
+            Writer writer = new Writer(out, temporary);
+            temporary = null;
+            return writer;
+        } catch (IOException ex) {
+            throw new ETSdkException("could not create row hash store in "
+                    + directory, ex);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ex) {
+                    logger.warn("could not delete " + temporary, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a store in order.
+     */
+    class Reader {
+        private DataInputStream in = null;
+        private long keyHash = 0;
+        private long rowHash = 0;
+        private String[] keyValues = null;
+
+        private Reader(DataInputStream in, int keyCount) {
+            this.in = in;
+            this.keyValues = new String[keyCount];
+        }
+
+        boolean next()
+            throws ETSdkException
+        {
+            try {
+                try {
+                    keyHash = in.readLong();
+                } catch (EOFException ex) {
+                    return false;
+                }
+                rowHash = in.readLong();
+                for (int i = 0; i < keyValues.length; i++) {
+                    keyValues[i] = in.readUTF();
+                }
+                return true;
+            } catch (IOException ex) {
+                throw new ETSdkException("could not read " + path, ex);
+            }
+        }
+
+        long getKeyHash() {
+            return keyHash;
+        }
+
+        long getRowHash() {
+            return rowHash;
+        }
+
+        /**
+         * Returns the primary key values of the current record
+         * (in a new array).
+         */
+        String[] getKeyValues() {
+            return keyValues.clone();
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ex) {
+                logger.warn("could not close " + path, ex);
+            }
+        }
+    }
+
+    /**
+     * Writes a new store to a temporary file, which replaces the
+     * store on commit.
+     */
+    class Writer {
+        private DataOutputStream out = null;
+        private Path temporary = null;
+        private long count = 0;
+
+        private Writer(DataOutputStream out, Path temporary) {
+            this.out = out;
+            this.temporary = temporary;
+        }
+
+        synchronized void write(long keyHash, long rowHash, String[] keyValues)
+            throws ETSdkException
+        {
+            try {
+                out.writeLong(keyHash);
+                out.writeLong(rowHash);
+                for (String keyValue : keyValues) {
+                    out.writeUTF(keyValue);
+                }
+                count++;
+            } catch (IOException ex) {
+                throw new ETSdkException("could not write " + temporary, ex);
+            }
+        }
+
+        synchronized void commit()
+            throws ETSdkException
+        {
+            try {
+                out.close();
+                try {
+                    Files.move(temporary, path,
+                               StandardCopyOption.REPLACE_EXISTING,
+                               StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    logger.warn("atomic rename not supported for " + path
+                            + ", replacing non-atomically");
+                    Files.move(temporary, path,
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException ex) {
+                abort();
+                throw new ETSdkException("could not write row hashes to " + path, ex);
+            }
+            logger.debug("wrote " + count + " row hashes to " + path);
+        }
+
+        synchronized void abort() {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                logger.warn("could not close " + temporary, ex);
+            }
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ex) {
+                logger.warn("could not delete " + temporary, ex);
+            }
+        }
+    }
+
+    /**
+     * An open addressing hash table from key hash to row hash,
+     * with a flag per entry recording whether the key was seen in
+     * the current snapshot. Key hashes are never 0, which marks an
+     * empty slot.
+     */
+    static class Table {
+        private long[] keys = null;
+        private long[] values = null;
+        private long[] seen = null;
+        private int size = 0;
+
+        Table(int capacity) {
+            int slots = Integer.highestOneBit(Math.max(capacity, 16) * 2 - 1);
+            keys = new long[slots];
+            values = new long[slots];
+            seen = new long[(slots + 63) >>> 6];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void put(long key, long value) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        /**
+         * Returns the slot holding the key, or -1.
+         */
+        int find(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        long getValue(int slot) {
+            return values[slot];
+        }
+
+        /**
+         * Marks the slot as seen, returning true if it wasn't already.
+         */
+        boolean markSeen(int slot) {
+            long bit = 1L << slot;
+            if ((seen[slot >>> 6] & bit) != 0) {
+                return false;
+            }
+            seen[slot >>> 6] |= bit;
+            return true;
+        }
+
+        boolean isSeen(int slot) {
+            return (seen[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            long[] oldSeen = seen;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            seen = new long[(keys.length + 63) >>> 6];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                    if ((oldSeen[i >>> 6] & (1L << i)) != 0) {
+                        markSeen(find(oldKeys[i]));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -36,6 +36,8 @@ package com.exacttarget.fuelsdk;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.namespace.QName;
 import javax.xml.soap.SOAPElement;
@@ -43,16 +45,16 @@ import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPFactory;
 
 import org.apache.cxf.endpoint.Client;
-import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.interceptor.LoggingInInterceptor;
 import org.apache.cxf.interceptor.LoggingOutInterceptor;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
 
 import org.apache.log4j.Logger;
 
-import com.exacttarget.fuelsdk.internal.PartnerAPI;
 import com.exacttarget.fuelsdk.internal.Soap;
 
 /**
@@ -66,6 +68,16 @@ public class ETSoapConnection {
     private static final String WSSE_NAMESPACE_URI =
             "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
 
+    //
+    // CXF only emits wire logs when its per-service loggers
+    // (under org.apache.cxf.services) are at INFO or finer:
+    //
+
+    private static final String CXF_SERVICES_LOGGER = "org.apache.cxf.services";
+
+    public static final int DEFAULT_BATCH_SIZE = 2500;
+    public static final int DEFAULT_MAX_CONCURRENT_BATCHES = 4;
+
     private String endpoint = null;
 
     private Soap soap = null;
@@ -73,35 +85,53 @@ public class ETSoapConnection {
     private SOAPFactory soapFactory = null;
     private SOAPElement accessTokenElement = null;
 
+    private ETSoapMetrics metrics = new ETSoapMetrics();
+    private ETSoapStreamingDecoder streamingDecoder = new ETSoapStreamingDecoder();
+
+    private LoggingInInterceptor loggingInInterceptor = null;
+    private LoggingOutInterceptor loggingOutInterceptor = null;
+
+    private GZIPInInterceptor gzipInInterceptor = null;
+    private GZIPOutInterceptor gzipOutInterceptor = null;
+    private int requestCompressionThreshold = -1;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private ConcurrentMap<String, Integer> batchSizes =
+            new ConcurrentHashMap<String, Integer>();
+    private int maxConcurrentBatches = DEFAULT_MAX_CONCURRENT_BATCHES;
+
     public ETSoapConnection(String endpoint)
         throws ETSdkException
     {
         this.endpoint = endpoint;
 
         //
-        // Initialize the SOAP proxy:
+        // Initialize the SOAP proxy; the WSDL, service model
+        // and JAXB context are shared by all connections, so
+        // everything per connection goes on the client:
         //
 
         try {
-            PartnerAPI service = new PartnerAPI();
-            soap = service.getSoap();
+            soap = ETSoapRuntime.getInstance().createSoap();
             soapClient = ClientProxy.getClient(soap);
-            Endpoint soapEndpoint = soapClient.getEndpoint();
             soapFactory = SOAPFactory.newInstance();
             soapClient.getRequestContext().put(Message.ENDPOINT_ADDRESS,
                     endpoint);
             soapClient.getRequestContext().put(Message.ENCODING, "UTF-8");
-            LoggingInInterceptor loggingInInterceptor =
-                    new LoggingInInterceptor();
-            loggingInInterceptor.setPrettyLogging(true);
-            LoggingOutInterceptor loggingOutInterceptor =
-                    new LoggingOutInterceptor();
-            loggingOutInterceptor.setPrettyLogging(true);
-            soapEndpoint.getInInterceptors().add(loggingInInterceptor);
-            soapEndpoint.getOutInterceptors().add(loggingOutInterceptor);
+            metrics.install(soapClient);
+            streamingDecoder.install(soapClient);
         } catch (SOAPException ex) {
             throw new ETSdkException("could not initialize SOAP proxy", ex);
         }
+
+        //
+        // Only pay for wire logging if it would actually
+        // be written somewhere:
+        //
+
+        if (Logger.getLogger(CXF_SERVICES_LOGGER).isInfoEnabled()) {
+            setWireLogging(true);
+        }
     }
 
     public ETSoapConnection(String endpoint, String username, String password)
@@ -168,6 +198,145 @@ public class ETSoapConnection {
         return endpoint;
     }
 
+    public ETSoapMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized boolean getWireLogging() {
+        return loggingInInterceptor != null;
+    }
+
+    /**
+     * Attaches (or detaches) the CXF logging interceptors, which
+     * pretty print each SOAP request and response. Output goes
+     * to the org.apache.cxf.services loggers at INFO level.
+     */
+    public synchronized void setWireLogging(boolean wireLogging) {
+        if (wireLogging && loggingInInterceptor == null) {
+            loggingInInterceptor = new LoggingInInterceptor();
+            loggingInInterceptor.setPrettyLogging(true);
+            loggingOutInterceptor = new LoggingOutInterceptor();
+            loggingOutInterceptor.setPrettyLogging(true);
+            soapClient.getInInterceptors().add(loggingInInterceptor);
+            soapClient.getOutInterceptors().add(loggingOutInterceptor);
+            logger.debug("enabled SOAP wire logging");
+        } else if (!wireLogging && loggingInInterceptor != null) {
+            soapClient.getInInterceptors().remove(loggingInInterceptor);
+            soapClient.getOutInterceptors().remove(loggingOutInterceptor);
+            loggingInInterceptor = null;
+            loggingOutInterceptor = null;
+            logger.debug("disabled SOAP wire logging");
+        }
+    }
+
+    public synchronized boolean getCompression() {
+        return gzipInInterceptor != null;
+    }
+
+    /**
+     * Enables (or disables) GZIP compression. When enabled,
+     * responses are requested GZIP encoded (via Accept-Encoding)
+     * and requests larger than the request compression threshold
+     * are GZIP encoded too.
+     */
+    public synchronized void setCompression(boolean compression) {
+        if (compression && gzipInInterceptor == null) {
+            gzipInInterceptor = new GZIPInInterceptor();
+            gzipOutInterceptor = new GZIPOutInterceptor();
+            configureRequestCompression();
+            soapClient.getInInterceptors().add(gzipInInterceptor);
+            soapClient.getInFaultInterceptors().add(gzipInInterceptor);
+            soapClient.getOutInterceptors().add(gzipOutInterceptor);
+            logger.debug("enabled SOAP compression");
+        } else if (!compression && gzipInInterceptor != null) {
+            soapClient.getInInterceptors().remove(gzipInInterceptor);
+            soapClient.getInFaultInterceptors().remove(gzipInInterceptor);
+            soapClient.getOutInterceptors().remove(gzipOutInterceptor);
+            gzipInInterceptor = null;
+            gzipOutInterceptor = null;
+            logger.debug("disabled SOAP compression");
+        }
+    }
+
+    public synchronized int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the size (in bytes) above which requests are GZIP
+     * encoded when compression is enabled. A negative threshold
+     * (the default) means requests are never compressed; only
+     * responses are.
+     */
+    public synchronized void setRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        if (gzipOutInterceptor != null) {
+            configureRequestCompression();
+        }
+    }
+
+    private void configureRequestCompression() {
+        //
+        // On the client side GZIPOutInterceptor always sends
+        // Accept-Encoding; it only compresses the request
+        // if forced to:
+        //
+
+        if (requestCompressionThreshold >= 0) {
+            gzipOutInterceptor.setForce(true);
+            gzipOutInterceptor.setThreshold(requestCompressionThreshold);
+        } else {
+            gzipOutInterceptor.setForce(false);
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of objects sent in a single
+     * create, update, or delete request. Larger lists are split
+     * into batches of this size, which are sent in parallel.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the batch size for the specified object type (the
+     * name of the SOAP object, e.g., DataExtensionObject), which
+     * falls back to the default batch size if none has been set.
+     */
+    public int getBatchSize(String objectType) {
+        Integer size = batchSizes.get(objectType);
+        if (size == null) {
+            return batchSize;
+        }
+        return size;
+    }
+
+    public void setBatchSize(String objectType, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        batchSizes.put(objectType, batchSize);
+    }
+
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        if (maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("max concurrent batches must be positive");
+        }
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
     public void setAccessToken(String accessToken)
         throws ETSdkException
     {
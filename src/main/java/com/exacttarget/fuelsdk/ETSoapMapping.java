@@ -0,0 +1,470 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.beanutils.ConvertUtilsBean;
+import org.apache.commons.beanutils.Converter;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.annotations.ExternalName;
+import com.exacttarget.fuelsdk.annotations.InternalName;
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETSoapMapping</code> is the compiled plan for converting
+ * between an external (<code>ETSoapObject</code>) type and an internal
+ * (<code>APIObject</code>) type. It is built once per pair of types,
+ * the first time they are converted, and holds one
+ * <code>Property</code> per <code>@ExternalName</code> field with
+ * its getters and setters resolved to method handles and its
+ * converters looked up in advance.
+ *
+ * Conversion follows the same rules <code>BeanUtils</code> does:
+ * the converter is chosen by the type of the property being set,
+ * values of the same immutable type are passed through unchanged,
+ * and read-only properties are silently skipped.
+ */
+
+class ETSoapMapping {
+    private static Logger logger = Logger.getLogger(ETSoapMapping.class);
+
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    //
+    // Types whose values can be passed through unchanged when
+    // the source and target properties are of the same type:
+    //
+
+    private static final Set<Class<?>> VALUE_TYPES = new HashSet<Class<?>>(
+            Arrays.<Class<?>>asList(String.class,
+                                    Boolean.class,
+                                    Byte.class,
+                                    Character.class,
+                                    Short.class,
+                                    Integer.class,
+                                    Long.class,
+                                    Float.class,
+                                    Double.class,
+                                    BigInteger.class,
+                                    BigDecimal.class));
+
+    private static ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, ETSoapMapping>> mappings =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, ETSoapMapping>>();
+
+    private Class<? extends ETSoapObject> externalType = null;
+    private Class<? extends APIObject> internalType = null;
+    private List<Property> properties = null;
+
+    private ETSoapMapping(Class<? extends ETSoapObject> externalType,
+                          Class<? extends APIObject> internalType)
+    {
+        this.externalType = externalType;
+        this.internalType = internalType;
+
+        Map<String, PropertyDescriptor> externalDescriptors =
+                getPropertyDescriptors(externalType);
+        Map<String, PropertyDescriptor> internalDescriptors =
+                getPropertyDescriptors(internalType);
+
+        List<Property> properties = new ArrayList<Property>();
+        for (Field externalField : ETObject.getAllFields(externalType)) {
+            //
+            // Skip this field if it doesn't have the @ExternalName
+            // annotation (it's an internal field):
+            //
+
+            if (externalField.getAnnotation(ExternalName.class) == null) {
+                continue;
+            }
+
+            String externalName = externalField.getName();
+            String internalName = null;
+
+            InternalName internalNameAnnotation =
+                    externalField.getAnnotation(InternalName.class);
+
+            if (internalNameAnnotation != null) {
+                internalName = internalNameAnnotation.value();
+            } else {
+                // internal name is the same as external name
+                internalName = externalName;
+            }
+
+            properties.add(new Property(externalField,
+                    externalName,
+                    internalName,
+                    externalDescriptors.get(externalName),
+                    internalDescriptors.get(internalName)));
+        }
+        this.properties = Collections.unmodifiableList(properties);
+
+        logger.debug("compiled mapping " + externalType.getSimpleName()
+                + " <-> " + internalType.getSimpleName()
+                + " (" + properties.size() + " properties)");
+    }
+
+    /**
+     * Returns the mapping between the specified external
+     * and internal types, building it if necessary.
+     */
+    static ETSoapMapping getMapping(Class<? extends ETSoapObject> externalType,
+                                    Class<? extends APIObject> internalType)
+    {
+        ConcurrentMap<Class<?>, ETSoapMapping> internalMappings =
+                mappings.get(externalType);
+        if (internalMappings == null) {
+            internalMappings = new ConcurrentHashMap<Class<?>, ETSoapMapping>();
+            ConcurrentMap<Class<?>, ETSoapMapping> existing =
+                    mappings.putIfAbsent(externalType, internalMappings);
+            if (existing != null) {
+                internalMappings = existing;
+            }
+        }
+        ETSoapMapping mapping = internalMappings.get(internalType);
+        if (mapping == null) {
+            mapping = new ETSoapMapping(externalType, internalType);
+            ETSoapMapping existing =
+                    internalMappings.putIfAbsent(internalType, mapping);
+            if (existing != null) {
+                mapping = existing;
+            }
+        }
+        return mapping;
+    }
+
+    public Class<? extends ETSoapObject> getExternalType() {
+        return externalType;
+    }
+
+    public Class<? extends APIObject> getInternalType() {
+        return internalType;
+    }
+
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    private static Map<String, PropertyDescriptor> getPropertyDescriptors(Class<?> type) {
+        Map<String, PropertyDescriptor> descriptors =
+                new HashMap<String, PropertyDescriptor>();
+        try {
+            for (PropertyDescriptor descriptor :
+                    Introspector.getBeanInfo(type).getPropertyDescriptors())
+            {
+                descriptors.put(descriptor.getName(), descriptor);
+            }
+        } catch (IntrospectionException ex) {
+            logger.warn("could not introspect " + type.getName(), ex);
+        }
+        return descriptors;
+    }
+
+    private static MethodHandle getHandle(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        } catch (Exception ex) {
+            logger.warn("could not create method handle for " + method, ex);
+            return null;
+        }
+    }
+
+    //
+    // Mirrors BeanUtilsBean.setProperty: the converter is
+    // chosen by the type of the property being set (String
+    // values fall back to the String converter):
+    //
+
+    private static Converter getConverter(Class<?> sourceType,
+                                          Class<?> targetType)
+    {
+        if (targetType == null) {
+            return null;
+        }
+        if (sourceType == targetType && VALUE_TYPES.contains(targetType)) {
+            return null;
+        }
+        ConvertUtilsBean convertUtils = ETSoapObject.getConvertUtils();
+        Converter converter = convertUtils.lookup(targetType);
+        if (converter == null && sourceType == String.class) {
+            converter = convertUtils.lookup(String.class);
+        }
+        return converter;
+    }
+
+    /**
+     * One <code>@ExternalName</code> field and the internal
+     * property it maps to.
+     */
+    public static class Property {
+        private Field externalField = null;
+        private String externalName = null;
+        private String internalName = null;
+        private Class<?> externalItemType = null;
+        private Field internalField = null;
+        private MethodHandle externalGetter = null;
+        private MethodHandle externalSetter = null;
+        private MethodHandle internalGetter = null;
+        private MethodHandle internalSetter = null;
+        private Class<?> externalPropertyType = null;
+        private Class<?> internalPropertyType = null;
+        private Converter toExternalConverter = null;
+        private Converter toInternalConverter = null;
+
+        private Property(Field externalField,
+                         String externalName,
+                         String internalName,
+                         PropertyDescriptor externalDescriptor,
+                         PropertyDescriptor internalDescriptor)
+        {
+            this.externalField = externalField;
+            this.externalName = externalName;
+            this.internalName = internalName;
+
+            externalField.setAccessible(true);
+
+            Type fieldType = externalField.getGenericType();
+            if (fieldType instanceof ParameterizedType
+                    && List.class.isAssignableFrom(externalField.getType()))
+            {
+                Type itemType = ((ParameterizedType) fieldType)
+                        .getActualTypeArguments()[0];
+                if (itemType instanceof Class) {
+                    externalItemType = (Class<?>) itemType;
+                }
+            }
+
+            if (externalDescriptor != null) {
+                externalPropertyType = externalDescriptor.getPropertyType();
+                externalGetter = getHandle(externalDescriptor.getReadMethod(),
+                                           GETTER_TYPE);
+                externalSetter = getHandle(externalDescriptor.getWriteMethod(),
+                                           SETTER_TYPE);
+            }
+            if (internalDescriptor != null) {
+                internalPropertyType = internalDescriptor.getPropertyType();
+                internalGetter = getHandle(internalDescriptor.getReadMethod(),
+                                           GETTER_TYPE);
+                internalSetter = getHandle(internalDescriptor.getWriteMethod(),
+                                           SETTER_TYPE);
+            }
+
+            toExternalConverter = getConverter(internalPropertyType,
+                                               externalPropertyType);
+            toInternalConverter = getConverter(externalPropertyType,
+                                               internalPropertyType);
+        }
+
+        public Field getExternalField() {
+            return externalField;
+        }
+
+        public String getExternalName() {
+            return externalName;
+        }
+
+        public String getInternalName() {
+            return internalName;
+        }
+
+        /**
+         * Returns the item type if the external field is
+         * a <code>List</code>, or <code>null</code> if not.
+         */
+        public Class<?> getExternalItemType() {
+            return externalItemType;
+        }
+
+        public Object getExternalValue(ETSoapObject externalObject)
+            throws ETSdkException
+        {
+            return get(externalGetter, externalObject, externalName);
+        }
+
+        public Object getInternalValue(APIObject internalObject)
+            throws ETSdkException
+        {
+            return get(internalGetter, internalObject, internalName);
+        }
+
+        /**
+         * Converts the specified value to the type of the
+         * external property and sets it.
+         */
+        public void setExternalValue(ETSoapObject externalObject,
+                                     Object value)
+            throws ETSdkException
+        {
+            set(externalSetter, externalPropertyType, toExternalConverter,
+                externalObject, externalName, value);
+        }
+
+        /**
+         * Converts the specified value to the type of the
+         * internal property and sets it.
+         */
+        public void setInternalValue(APIObject internalObject,
+                                     Object value)
+            throws ETSdkException
+        {
+            set(internalSetter, internalPropertyType, toInternalConverter,
+                internalObject, internalName, value);
+        }
+
+        /**
+         * Sets the external field directly, bypassing
+         * setter and converter.
+         */
+        public void setExternalField(ETSoapObject externalObject,
+                                     Object value)
+            throws ETSdkException
+        {
+            try {
+                externalField.set(externalObject, value);
+            } catch (Exception ex) {
+                throw new ETSdkException("could not set field \""
+                        + externalName
+                        + "\" of object "
+                        + externalObject,
+                        ex);
+            }
+        }
+
+        /**
+         * Sets the internal field directly, bypassing
+         * setter and converter.
+         */
+        public void setInternalField(APIObject internalObject,
+                                     Object value)
+            throws ETSdkException
+        {
+            Field field = internalField;
+            if (field == null) {
+                field = ETObject.getField(internalObject.getClass(),
+                                          internalName);
+                field.setAccessible(true);
+                internalField = field;
+            }
+            try {
+                field.set(internalObject, value);
+            } catch (Exception ex) {
+                throw new ETSdkException("could not set field \""
+                        + internalName
+                        + "\" of object "
+                        + internalObject,
+                        ex);
+            }
+        }
+
+        private static Object get(MethodHandle getter,
+                                  Object object,
+                                  String name)
+            throws ETSdkException
+        {
+            if (getter == null) {
+                throw new ETSdkException("could not get property \""
+                        + name
+                        + "\" of object "
+                        + object);
+            }
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (Throwable ex) {
+                throw new ETSdkException("could not get property \""
+                        + name
+                        + "\" of object "
+                        + object,
+                        ex);
+            }
+        }
+
+        private static void set(MethodHandle setter,
+                                Class<?> type,
+                                Converter converter,
+                                Object object,
+                                String name,
+                                Object value)
+            throws ETSdkException
+        {
+            if (setter == null) {
+                // read-only (or missing) properties are skipped
+                return;
+            }
+            try {
+                Object convertedValue = value;
+                if (converter != null) {
+                    convertedValue = converter.convert(type, value);
+                }
+                setter.invokeExact(object, convertedValue);
+            } catch (Throwable ex) {
+                throw new ETSdkException("could not set property \""
+                        + name
+                        + "\" of object "
+                        + object,
+                        ex);
+            }
+        }
+    }
+}
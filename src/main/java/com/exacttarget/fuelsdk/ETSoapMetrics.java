@@ -0,0 +1,655 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.apache.cxf.interceptor.MessageSenderInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+import com.exacttarget.fuelsdk.internal.CreateRequest;
+import com.exacttarget.fuelsdk.internal.CreateResponse;
+import com.exacttarget.fuelsdk.internal.DeleteRequest;
+import com.exacttarget.fuelsdk.internal.DeleteResponse;
+import com.exacttarget.fuelsdk.internal.RetrieveRequestMsg;
+import com.exacttarget.fuelsdk.internal.RetrieveResponseMsg;
+import com.exacttarget.fuelsdk.internal.UpdateRequest;
+import com.exacttarget.fuelsdk.internal.UpdateResponse;
+
+/**
+ * An <code>ETSoapMetrics</code> object collects per operation
+ * (Retrieve, Create, Update, Delete, ...) and per object type
+ * statistics for the SOAP calls made over an
+ * <code>ETSoapConnection</code>: call count, latency, request
+ * and response bytes, object counts, and fault codes.
+ *
+ * Request and response bytes are counted both as XML and as
+ * sent over the wire, so when compression is enabled the
+ * compression ratio and bytes saved are available as well.
+ */
+
+public class ETSoapMetrics {
+    private static Logger logger = Logger.getLogger(ETSoapMetrics.class);
+
+    private static final String START_TIME =
+            ETSoapMetrics.class.getName() + ".startTime";
+    private static final String OBJECT_TYPE =
+            ETSoapMetrics.class.getName() + ".objectType";
+    private static final String REQUEST_OBJECTS =
+            ETSoapMetrics.class.getName() + ".requestObjects";
+    private static final String REQUEST_STREAM =
+            ETSoapMetrics.class.getName() + ".requestStream";
+    private static final String RESPONSE_STREAM =
+            ETSoapMetrics.class.getName() + ".responseStream";
+    private static final String REQUEST_WIRE_STREAM =
+            ETSoapMetrics.class.getName() + ".requestWireStream";
+    private static final String RESPONSE_WIRE_STREAM =
+            ETSoapMetrics.class.getName() + ".responseWireStream";
+    private static final String RECORDED =
+            ETSoapMetrics.class.getName() + ".recorded";
+
+    // set by interceptors that consume the response objects
+    // before they reach the unmarshalled response message:
+    static final String OBJECT_COUNT =
+            ETSoapMetrics.class.getName() + ".objectCount";
+
+    private ConcurrentMap<String, Stats> stats =
+            new ConcurrentHashMap<String, Stats>();
+
+    private OutInterceptor outInterceptor = new OutInterceptor();
+    private InInterceptor inInterceptor = new InInterceptor();
+    private WireOutInterceptor wireOutInterceptor = new WireOutInterceptor();
+    private WireInInterceptor wireInInterceptor = new WireInInterceptor();
+    private RecordInterceptor recordInterceptor = new RecordInterceptor();
+
+    public ETSoapMetrics() {}
+
+    /**
+     * Installs the metrics interceptors on the specified client
+     * (or endpoint).
+     */
+    public void install(InterceptorProvider provider) {
+        provider.getOutInterceptors().add(outInterceptor);
+        provider.getOutInterceptors().add(wireOutInterceptor);
+        provider.getInInterceptors().add(wireInInterceptor);
+        provider.getInInterceptors().add(inInterceptor);
+        provider.getInInterceptors().add(recordInterceptor);
+        provider.getInFaultInterceptors().add(wireInInterceptor);
+        provider.getInFaultInterceptors().add(inInterceptor);
+        provider.getInFaultInterceptors().add(recordInterceptor);
+    }
+
+    /**
+     * Removes the metrics interceptors from the specified client
+     * (or endpoint).
+     */
+    public void uninstall(InterceptorProvider provider) {
+        provider.getOutInterceptors().remove(outInterceptor);
+        provider.getOutInterceptors().remove(wireOutInterceptor);
+        provider.getInInterceptors().remove(wireInInterceptor);
+        provider.getInInterceptors().remove(inInterceptor);
+        provider.getInInterceptors().remove(recordInterceptor);
+        provider.getInFaultInterceptors().remove(wireInInterceptor);
+        provider.getInFaultInterceptors().remove(inInterceptor);
+        provider.getInFaultInterceptors().remove(recordInterceptor);
+    }
+
+    /**
+     * Returns the statistics for the specified operation and
+     * object type, or <code>null</code> if no such call has
+     * been made.
+     */
+    public Stats getStats(String operation, String objectType) {
+        return stats.get(toKey(operation, objectType));
+    }
+
+    /**
+     * Returns a snapshot of the statistics for all operation
+     * and object type combinations seen so far.
+     */
+    public List<Stats> getAllStats() {
+        return new ArrayList<Stats>(stats.values());
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Records a single SOAP call. Normally called by the
+     * interceptors but can also be called directly, e.g., to
+     * account for calls made outside of CXF.
+     */
+    public void record(String operation,
+                       String objectType,
+                       long latencyNanos,
+                       long requestBytes,
+                       long requestWireBytes,
+                       long responseBytes,
+                       long responseWireBytes,
+                       int objects,
+                       String faultCode)
+    {
+        String key = toKey(operation, objectType);
+        Stats s = stats.get(key);
+        if (s == null) {
+            Stats newStats = new Stats(operation, objectType);
+            s = stats.putIfAbsent(key, newStats);
+            if (s == null) {
+                s = newStats;
+            }
+        }
+        s.record(latencyNanos,
+                 requestBytes,
+                 requestWireBytes,
+                 responseBytes,
+                 responseWireBytes,
+                 objects,
+                 faultCode);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(operation + " " + objectType
+                    + ": " + (latencyNanos / 1000000) + " ms"
+                    + ", " + requestBytes + " bytes out"
+                    + (requestWireBytes != requestBytes
+                            ? " (" + requestWireBytes + " compressed)" : "")
+                    + ", " + responseBytes + " bytes in"
+                    + (responseWireBytes != responseBytes
+                            ? " (" + responseWireBytes + " compressed)" : "")
+                    + ", " + objects + " objects"
+                    + (faultCode != null ? ", fault " + faultCode : ""));
+        }
+    }
+
+    private static String toKey(String operation, String objectType) {
+        return operation + "/" + objectType;
+    }
+
+    //
+    // DataExtensionObjects are retrieved as DataExtensionObject[key];
+    // strip the key so we don't get one entry per data extension:
+    //
+
+    private static String normalizeObjectType(String objectType) {
+        if (objectType == null) {
+            return null;
+        }
+        int i = objectType.indexOf('[');
+        if (i != -1) {
+            return objectType.substring(0, i);
+        }
+        return objectType;
+    }
+
+    private static String getObjectType(List<? extends APIObject> objects) {
+        if (objects.isEmpty()) {
+            return null;
+        }
+        return objects.get(0).getClass().getSimpleName();
+    }
+
+    private static String getOperation(Exchange exchange) {
+        BindingOperationInfo operation = exchange.getBindingOperationInfo();
+        if (operation == null) {
+            return "Unknown";
+        }
+        return operation.getName().getLocalPart();
+    }
+
+    private static Object getFirstContent(Message message) {
+        List<?> contents = message.getContent(List.class);
+        if (contents == null || contents.isEmpty()) {
+            return null;
+        }
+        return contents.get(0);
+    }
+
+    private class OutInterceptor extends AbstractPhaseInterceptor<Message> {
+        public OutInterceptor() {
+            super(Phase.PRE_STREAM);
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            Exchange exchange = message.getExchange();
+
+            String objectType = null;
+            int objects = 0;
+
+            Object request = getFirstContent(message);
+            if (request instanceof RetrieveRequestMsg) {
+                RetrieveRequestMsg r = (RetrieveRequestMsg) request;
+                if (r.getRetrieveRequest() != null) {
+                    objectType = r.getRetrieveRequest().getObjectType();
+                }
+            } else if (request instanceof CreateRequest) {
+                List<APIObject> l = ((CreateRequest) request).getObjects();
+                objectType = getObjectType(l);
+                objects = l.size();
+            } else if (request instanceof UpdateRequest) {
+                List<APIObject> l = ((UpdateRequest) request).getObjects();
+                objectType = getObjectType(l);
+                objects = l.size();
+            } else if (request instanceof DeleteRequest) {
+                List<APIObject> l = ((DeleteRequest) request).getObjects();
+                objectType = getObjectType(l);
+                objects = l.size();
+            }
+
+            exchange.put(OBJECT_TYPE, normalizeObjectType(objectType));
+            exchange.put(REQUEST_OBJECTS, objects);
+
+            OutputStream os = message.getContent(OutputStream.class);
+            if (os != null) {
+                CountingOutputStream cos = new CountingOutputStream(os);
+                message.setContent(OutputStream.class, cos);
+                exchange.put(REQUEST_STREAM, cos);
+            }
+
+            exchange.put(START_TIME, System.nanoTime());
+        }
+    }
+
+    //
+    // The wire interceptors count the bytes actually sent and
+    // received, so they sit between the transport and the GZIP
+    // interceptors (if compression is enabled); the other two
+    // count the XML as written and read:
+    //
+
+    private class WireOutInterceptor extends AbstractPhaseInterceptor<Message> {
+        public WireOutInterceptor() {
+            super(Phase.PREPARE_SEND);
+            addAfter(MessageSenderInterceptor.class.getName());
+            addBefore(GZIPOutInterceptor.class.getName());
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            OutputStream os = message.getContent(OutputStream.class);
+            if (os != null) {
+                CountingOutputStream cos = new CountingOutputStream(os);
+                message.setContent(OutputStream.class, cos);
+                message.getExchange().put(REQUEST_WIRE_STREAM, cos);
+            }
+        }
+    }
+
+    private class WireInInterceptor extends AbstractPhaseInterceptor<Message> {
+        public WireInInterceptor() {
+            super(Phase.RECEIVE);
+            addBefore(GZIPInInterceptor.class.getName());
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            InputStream is = message.getContent(InputStream.class);
+            // faults are rerouted to the in fault chain with
+            // the stream we've already wrapped:
+            if (is != null && !(is instanceof CountingInputStream)) {
+                CountingInputStream cis = new CountingInputStream(is);
+                message.setContent(InputStream.class, cis);
+                message.getExchange().put(RESPONSE_WIRE_STREAM, cis);
+            }
+        }
+    }
+
+    private class InInterceptor extends AbstractPhaseInterceptor<Message> {
+        public InInterceptor() {
+            super(Phase.RECEIVE);
+            addAfter(GZIPInInterceptor.class.getName());
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            InputStream is = message.getContent(InputStream.class);
+            // only needed if the response was decompressed:
+            if (is != null && !(is instanceof CountingInputStream)) {
+                CountingInputStream cis = new CountingInputStream(is);
+                message.setContent(InputStream.class, cis);
+                message.getExchange().put(RESPONSE_STREAM, cis);
+            }
+        }
+    }
+
+    private class RecordInterceptor extends AbstractPhaseInterceptor<Message> {
+        public RecordInterceptor() {
+            super(Phase.POST_LOGICAL);
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            Exchange exchange = message.getExchange();
+
+            Long startTime = (Long) exchange.get(START_TIME);
+            if (startTime == null || exchange.get(RECORDED) != null) {
+                return;
+            }
+            exchange.put(RECORDED, Boolean.TRUE);
+
+            long latency = System.nanoTime() - startTime;
+
+            CountingOutputStream cos =
+                    (CountingOutputStream) exchange.get(REQUEST_STREAM);
+            CountingInputStream cis =
+                    (CountingInputStream) exchange.get(RESPONSE_STREAM);
+            CountingOutputStream wireCos =
+                    (CountingOutputStream) exchange.get(REQUEST_WIRE_STREAM);
+            CountingInputStream wireCis =
+                    (CountingInputStream) exchange.get(RESPONSE_WIRE_STREAM);
+            if (cis == null) {
+                cis = wireCis;
+            }
+
+            int objects = (Integer) exchange.get(REQUEST_OBJECTS);
+
+            Object response = getFirstContent(message);
+            if (response instanceof RetrieveResponseMsg) {
+                objects = ((RetrieveResponseMsg) response).getResults().size();
+            } else if (response instanceof CreateResponse) {
+                objects = ((CreateResponse) response).getResults().size();
+            } else if (response instanceof UpdateResponse) {
+                objects = ((UpdateResponse) response).getResults().size();
+            } else if (response instanceof DeleteResponse) {
+                objects = ((DeleteResponse) response).getResults().size();
+            }
+            if (exchange.get(OBJECT_COUNT) != null) {
+                objects = (Integer) exchange.get(OBJECT_COUNT);
+            }
+
+            String faultCode = null;
+            Exception ex = message.getContent(Exception.class);
+            if (ex instanceof Fault) {
+                Fault fault = (Fault) ex;
+                if (fault.getFaultCode() != null) {
+                    faultCode = fault.getFaultCode().getLocalPart();
+                } else {
+                    faultCode = "Unknown";
+                }
+            } else if (ex != null) {
+                faultCode = ex.getClass().getSimpleName();
+            }
+
+            record(getOperation(exchange),
+                   (String) exchange.get(OBJECT_TYPE),
+                   latency,
+                   cos != null ? cos.getCount() : 0,
+                   wireCos != null ? wireCos.getCount() : 0,
+                   cis != null ? cis.getCount() : 0,
+                   wireCis != null ? wireCis.getCount() : 0,
+                   objects,
+                   faultCode);
+        }
+    }
+
+    /**
+     * Accumulated statistics for one operation and object type.
+     */
+    public static class Stats {
+        private final String operation;
+        private final String objectType;
+        private long calls = 0;
+        private long faults = 0;
+        private long totalLatencyNanos = 0;
+        private long maxLatencyNanos = 0;
+        private long requestBytes = 0;
+        private long requestWireBytes = 0;
+        private long responseBytes = 0;
+        private long responseWireBytes = 0;
+        private long objects = 0;
+        private Map<String, Long> faultCodes = new HashMap<String, Long>();
+
+        Stats(String operation, String objectType) {
+            this.operation = operation;
+            this.objectType = objectType;
+        }
+
+        synchronized void record(long latencyNanos,
+                                 long requestBytes,
+                                 long requestWireBytes,
+                                 long responseBytes,
+                                 long responseWireBytes,
+                                 int objects,
+                                 String faultCode)
+        {
+            calls++;
+            totalLatencyNanos += latencyNanos;
+            if (latencyNanos > maxLatencyNanos) {
+                maxLatencyNanos = latencyNanos;
+            }
+            this.requestBytes += requestBytes;
+            this.requestWireBytes += requestWireBytes;
+            this.responseBytes += responseBytes;
+            this.responseWireBytes += responseWireBytes;
+            this.objects += objects;
+            if (faultCode != null) {
+                faults++;
+                Long count = faultCodes.get(faultCode);
+                faultCodes.put(faultCode, count == null ? 1 : count + 1);
+            }
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getObjectType() {
+            return objectType;
+        }
+
+        public synchronized long getCalls() {
+            return calls;
+        }
+
+        public synchronized long getFaults() {
+            return faults;
+        }
+
+        public synchronized long getTotalLatencyMillis() {
+            return totalLatencyNanos / 1000000;
+        }
+
+        public synchronized long getMaxLatencyMillis() {
+            return maxLatencyNanos / 1000000;
+        }
+
+        public synchronized double getAverageLatencyMillis() {
+            if (calls == 0) {
+                return 0;
+            }
+            return (double) totalLatencyNanos / calls / 1000000;
+        }
+
+        public synchronized long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public synchronized long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public synchronized long getRequestWireBytes() {
+            return requestWireBytes;
+        }
+
+        public synchronized long getResponseWireBytes() {
+            return responseWireBytes;
+        }
+
+        /**
+         * Returns the number of bytes compression kept off
+         * the wire, in both directions.
+         */
+        public synchronized long getBytesSaved() {
+            return (requestBytes + responseBytes)
+                    - (requestWireBytes + responseWireBytes);
+        }
+
+        /**
+         * Returns the ratio of XML bytes to bytes on the wire
+         * (1.0 when nothing was compressed).
+         */
+        public synchronized double getCompressionRatio() {
+            long wireBytes = requestWireBytes + responseWireBytes;
+            if (wireBytes == 0) {
+                return 1.0;
+            }
+            return (double) (requestBytes + responseBytes) / wireBytes;
+        }
+
+        public synchronized long getObjects() {
+            return objects;
+        }
+
+        public synchronized Map<String, Long> getFaultCodes() {
+            return Collections.unmodifiableMap(new HashMap<String, Long>(faultCodes));
+        }
+
+        @Override
+        public synchronized String toString() {
+            return operation + "/" + objectType
+                    + "[calls=" + calls
+                    + ", faults=" + faults
+                    + ", avgLatencyMillis=" + getAverageLatencyMillis()
+                    + ", maxLatencyMillis=" + getMaxLatencyMillis()
+                    + ", requestBytes=" + requestBytes
+                    + ", responseBytes=" + responseBytes
+                    + ", requestWireBytes=" + requestWireBytes
+                    + ", responseWireBytes=" + responseWireBytes
+                    + ", compressionRatio=" + getCompressionRatio()
+                    + ", objects=" + objects
+                    + ", faultCodes=" + faultCodes
+                    + "]";
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b)
+            throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+            throws IOException
+        {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n)
+            throws IOException
+        {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -35,31 +35,39 @@
 package com.exacttarget.fuelsdk;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
 
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.ws.AsyncHandler;
+import javax.xml.ws.Response;
+import javax.xml.ws.WebServiceException;
 
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.beanutils.BeanUtilsBean;
 import org.apache.commons.beanutils.ConversionException;
 import org.apache.commons.beanutils.ConvertUtilsBean;
 import org.apache.commons.beanutils.Converter;
-import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.log4j.Logger;
 
-import com.exacttarget.fuelsdk.annotations.ExternalName;
-import com.exacttarget.fuelsdk.annotations.InternalName;
 import com.exacttarget.fuelsdk.annotations.InternalProperty;
+import com.exacttarget.fuelsdk.annotations.PrettyPrint;
 import com.exacttarget.fuelsdk.annotations.SoapObject;
 import com.exacttarget.fuelsdk.internal.APIObject;
 import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.AsyncResponse;
+import com.exacttarget.fuelsdk.internal.AsyncResponseType;
 import com.exacttarget.fuelsdk.internal.Attribute;
+import com.exacttarget.fuelsdk.internal.ClientID;
 import com.exacttarget.fuelsdk.internal.ComplexFilterPart;
 import com.exacttarget.fuelsdk.internal.CreateOptions;
 import com.exacttarget.fuelsdk.internal.CreateRequest;
@@ -81,9 +89,16 @@ import com.exacttarget.fuelsdk.internal.ListClassificationEnum;
 import com.exacttarget.fuelsdk.internal.ListTypeEnum;
 import com.exacttarget.fuelsdk.internal.LogicalOperators;
 import com.exacttarget.fuelsdk.internal.ObjectExtension;
+import com.exacttarget.fuelsdk.internal.Options;
+import com.exacttarget.fuelsdk.internal.Priority;
+import com.exacttarget.fuelsdk.internal.RequestType;
+import com.exacttarget.fuelsdk.internal.RespondWhen;
+import com.exacttarget.fuelsdk.internal.Result;
 import com.exacttarget.fuelsdk.internal.RetrieveRequest;
 import com.exacttarget.fuelsdk.internal.RetrieveRequestMsg;
 import com.exacttarget.fuelsdk.internal.RetrieveResponseMsg;
+import com.exacttarget.fuelsdk.internal.SaveAction;
+import com.exacttarget.fuelsdk.internal.SaveOption;
 import com.exacttarget.fuelsdk.internal.SimpleFilterPart;
 import com.exacttarget.fuelsdk.internal.SimpleOperators;
 import com.exacttarget.fuelsdk.internal.Soap;
@@ -104,8 +119,31 @@ import com.exacttarget.fuelsdk.internal.UpdateResult;
 public abstract class ETSoapObject extends ETApiObject {
     private static Logger logger = Logger.getLogger(ETSoapObject.class);
 
-    public ETSoapObject() {
-        registerConverters();
+    private static final String CLIENT_ID_PROPERTY = "Client.ID";
+    private static final String MODIFIED_DATE_PROPERTY = "ModifiedDate";
+
+    private static ConvertUtilsBean convertUtils = null;
+
+    @PrettyPrint
+    @InternalProperty(CLIENT_ID_PROPERTY)
+    private Integer clientId = null;
+
+    public ETSoapObject() {}
+
+    /**
+     * Gets the client ID (MID) of the business unit this object
+     * was retrieved from, if known.
+     */
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    /**
+     * Sets the client ID (MID) of the business unit this object
+     * was retrieved from.
+     */
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
     }
 
     public static <T extends ETSoapObject> ETResponse<T> retrieve(ETClient client,
@@ -143,8 +181,6 @@ public abstract class ETSoapObject extends ETApiObject {
                                                                      ETFilter filter)
         throws ETSdkException
     {
-        ETResponse<T> response = new ETResponse<T>();
-
         //
         // Get handle to the SOAP connection:
         //
@@ -158,16 +194,450 @@ public abstract class ETSoapObject extends ETApiObject {
         client.refreshToken();
 
         //
-        // Read internal type from the SoapObject annotation:
+        // Perform the SOAP retrieve:
         //
 
-        Class<T> externalType = type; // for code readability
+        Soap soap = connection.getSoap();
+
+        RetrieveRequestMsg retrieveRequestMsg =
+                toRetrieveRequestMsg(soapObjectName, type, filter);
+
+        logger.trace("calling soap.retrieve...");
+
+        RetrieveResponseMsg retrieveResponseMsg = soap.retrieve(retrieveRequestMsg);
+
+        return toResponse(client, type, retrieveResponseMsg);
+    }
+
+    public static <T extends ETSoapObject> ETResponse<T> retrieve(ETClient client,
+                                                                  Class<T> type,
+                                                                  ETFilter filter,
+                                                                  ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        if (filter.getOrderBy().size() != 0) {
+            throw new ETSdkException("order by argument not supported on this object type");
+        }
+
+        return retrieve(client, null, type, filter, handler);
+    }
+
+    //
+    // The streaming variant passes each object to the handler
+    // as soon as it has been decoded off the wire, so memory
+    // use stays flat regardless of the size of the response,
+    // and follows continuation until all objects have been
+    // passed. The returned response carries the status and
+    // request ID of the last retrieve, but no results.
+    //
+
+    protected static <T extends ETSoapObject> ETResponse<T> retrieve(ETClient client,
+                                                                     String soapObjectName,
+                                                                     Class<T> type,
+                                                                     ETFilter filter,
+                                                                     ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        RetrieveRequestMsg retrieveRequestMsg =
+                toRetrieveRequestMsg(soapObjectName, type, filter);
+
+        return retrieveContinued(client, soap, type, retrieveRequestMsg, handler);
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> retrieve(ETClient client,
+                                                                   Soap soap,
+                                                                   Class<T> type,
+                                                                   RetrieveRequestMsg retrieveRequestMsg,
+                                                                   ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        logger.trace("calling soap.retrieve (streaming)...");
+
+        ETSoapStreamingDecoder.Decoding<T> decoding =
+                ETSoapStreamingDecoder.begin(client, type, handler);
+        RetrieveResponseMsg retrieveResponseMsg = null;
+        try {
+            retrieveResponseMsg = soap.retrieve(retrieveRequestMsg);
+        } catch (WebServiceException ex) {
+            // rethrow exceptions thrown by the handler as is:
+            if (decoding.getException() != null) {
+                throw decoding.getException();
+            }
+            throw ex;
+        } finally {
+            ETSoapStreamingDecoder.end();
+        }
+
+        logger.trace("streamed " + decoding.getCount() + " objects");
+
+        return toResponse(client, type, retrieveResponseMsg);
+    }
+
+    /**
+     * Retrieves objects from all business units (accounts) of an
+     * enterprise account with a single <code>QueryAllAccounts</code>
+     * retrieve, following continuation until all results have been
+     * passed to the handler. <code>Client.ID</code> is added to
+     * the properties retrieved, so each object is tagged with the
+     * client ID of the business unit it belongs to.
+     */
+    public static <T extends ETSoapObject> ETResponse<T> retrieveAllAccounts(ETClient client,
+                                                                             Class<T> type,
+                                                                             ETFilter filter,
+                                                                             ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        if (filter.getOrderBy().size() != 0) {
+            throw new ETSdkException("order by argument not supported on this object type");
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        RetrieveRequestMsg retrieveRequestMsg =
+                toRetrieveRequestMsg(null, type, filter);
+        RetrieveRequest retrieveRequest = retrieveRequestMsg.getRetrieveRequest();
+        retrieveRequest.setQueryAllAccounts(true);
+        if (!retrieveRequest.getProperties().contains(CLIENT_ID_PROPERTY)) {
+            retrieveRequest.getProperties().add(CLIENT_ID_PROPERTY);
+        }
+
+        return retrieveContinued(client, soap, type, retrieveRequestMsg, handler);
+    }
+
+    /**
+     * Retrieves objects modified after the specified date (or all
+     * objects, if <code>since</code> is <code>null</code>), following
+     * continuation until all results have been passed to the handler.
+     * The <code>ModifiedDate</code> condition is ANDed with the
+     * filter's expression, if any.
+     */
+    static <T extends ETSoapObject> ETResponse<T> retrieveModifiedSince(ETClient client,
+                                                                       Class<T> type,
+                                                                       ETFilter filter,
+                                                                       Date since,
+                                                                       ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        if (filter.getOrderBy().size() != 0) {
+            throw new ETSdkException("order by argument not supported on this object type");
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        RetrieveRequestMsg retrieveRequestMsg =
+                toRetrieveRequestMsg(null, type, filter);
+        RetrieveRequest retrieveRequest = retrieveRequestMsg.getRetrieveRequest();
+
+        if (since != null) {
+            SimpleFilterPart modifiedSince = new SimpleFilterPart();
+            modifiedSince.setProperty(MODIFIED_DATE_PROPERTY);
+            modifiedSince.setSimpleOperator(SimpleOperators.GREATER_THAN);
+            modifiedSince.getDateValue().add(since);
+            if (retrieveRequest.getFilter() == null) {
+                retrieveRequest.setFilter(modifiedSince);
+            } else {
+                ComplexFilterPart complexFilterPart = new ComplexFilterPart();
+                complexFilterPart.setLeftOperand(retrieveRequest.getFilter());
+                complexFilterPart.setLogicalOperator(LogicalOperators.AND);
+                complexFilterPart.setRightOperand(modifiedSince);
+                retrieveRequest.setFilter(complexFilterPart);
+            }
+        }
+
+        return retrieveContinued(client, soap, type, retrieveRequestMsg, handler);
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> retrieveContinued(ETClient client,
+                                                                            Soap soap,
+                                                                            Class<T> type,
+                                                                            RetrieveRequestMsg retrieveRequestMsg,
+                                                                            ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        RetrieveRequest retrieveRequest = retrieveRequestMsg.getRetrieveRequest();
+
+        ETResponse<T> response = retrieve(client, soap, type, retrieveRequestMsg, handler);
+        while (response.hasMoreResults()) {
+            client.refreshToken();
+            response = retrieve(client,
+                                soap,
+                                type,
+                                toContinueRequestMsg(retrieveRequest,
+                                                     response.getRequestId()),
+                                handler);
+        }
+
+        return response;
+    }
+
+    /**
+     * Retrieves objects from the specified business units
+     * (accounts) of an enterprise account, one retrieve per
+     * client ID. Up to <code>maxConcurrentBatches</code> retrieves
+     * (see <code>ETSoapConnection</code>) are in flight at any one
+     * time, continuation is followed per business unit, and results
+     * are passed to the handler (always on the calling thread) in
+     * the order they arrive, each tagged with its client ID.
+     *
+     * A transport error for one business unit does not stop the
+     * others; the first such error is thrown once all business
+     * units have been retrieved. An exception thrown by the
+     * handler stops the retrieve immediately.
+     */
+    public static <T extends ETSoapObject> ETResponse<T> retrieve(final ETClient client,
+                                                                  final Class<T> type,
+                                                                  ETFilter filter,
+                                                                  List<Integer> clientIds,
+                                                                  ETObjectHandler<T> handler)
+        throws ETSdkException
+    {
+        if (filter.getOrderBy().size() != 0) {
+            throw new ETSdkException("order by argument not supported on this object type");
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        RetrieveRequest retrieveRequest =
+                toRetrieveRequestMsg(null, type, filter).getRetrieveRequest();
+
+        int maxConcurrentRetrieves = connection.getMaxConcurrentBatches();
+
+        logger.trace("retrieving " + type.getSimpleName() + " from "
+                + clientIds.size() + " accounts ("
+                + maxConcurrentRetrieves + " concurrent)");
+
+        BlockingQueue<AccountPage<T>> pages =
+                new LinkedBlockingQueue<AccountPage<T>>();
+        Deque<Integer> remaining = new ArrayDeque<Integer>(clientIds);
+        int inFlight = 0;
+
+        ETResponse<T> response = new ETResponse<T>();
+        response.setStatus(ETResult.Status.OK);
+        response.setResponseCode("OK");
+        response.setResponseMessage("OK");
+
+        ETSdkException exception = null;
+
+        while (!remaining.isEmpty() || inFlight > 0) {
+            while (!remaining.isEmpty() && inFlight < maxConcurrentRetrieves) {
+                Integer clientId = remaining.poll();
+                retrieveAccountPage(client, soap, type, clientId,
+                        toAccountRequestMsg(retrieveRequest, clientId, null),
+                        pages);
+                inFlight++;
+            }
+
+            AccountPage<T> page = null;
+            try {
+                page = pages.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted retrieving accounts", ex);
+            }
+            inFlight--;
+
+            if (page.exception != null) {
+                logger.warn("error retrieving " + type.getSimpleName()
+                        + " from account " + page.clientId, page.exception);
+                if (exception == null) {
+                    exception = page.exception;
+                }
+                continue;
+            }
+
+            for (T object : page.response.getObjects()) {
+                handler.handleObject(object);
+            }
+
+            if (page.response.getStatus() == ETResult.Status.ERROR) {
+                logger.warn("error retrieving " + type.getSimpleName()
+                        + " from account " + page.clientId + ": "
+                        + page.response.getResponseMessage());
+                response.setStatus(ETResult.Status.ERROR);
+                response.setResponseCode("Has Errors");
+                response.setResponseMessage("Has Errors");
+            }
+
+            if (page.response.hasMoreResults()) {
+                client.refreshToken();
+                retrieveAccountPage(client, soap, type, page.clientId,
+                        toAccountRequestMsg(retrieveRequest,
+                                            page.clientId,
+                                            page.response.getRequestId()),
+                        pages);
+                inFlight++;
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+
+        return response;
+    }
+
+    //
+    // One page of results from one business unit, converted
+    // (and tagged) on the CXF response thread:
+    //
+
+    private static class AccountPage<T extends ETSoapObject> {
+        private Integer clientId = null;
+        private ETResponse<T> response = null;
+        private ETSdkException exception = null;
+    }
+
+    private static <T extends ETSoapObject> void retrieveAccountPage(final ETClient client,
+                                                                     Soap soap,
+                                                                     final Class<T> type,
+                                                                     final Integer clientId,
+                                                                     RetrieveRequestMsg retrieveRequestMsg,
+                                                                     final BlockingQueue<AccountPage<T>> pages)
+    {
+        soap.retrieveAsync(retrieveRequestMsg, new AsyncHandler<RetrieveResponseMsg>() {
+            public void handleResponse(Response<RetrieveResponseMsg> r) {
+                AccountPage<T> page = new AccountPage<T>();
+                page.clientId = clientId;
+                try {
+                    page.response = toResponse(client, type, getAsyncResult(r, "retrieve"));
+                    for (T object : page.response.getObjects()) {
+                        if (object.getClientId() == null) {
+                            object.setClientId(clientId);
+                        }
+                    }
+                } catch (ETSdkException ex) {
+                    page.exception = ex;
+                } catch (RuntimeException ex) {
+                    page.exception = new ETSdkException("error retrieving account "
+                            + clientId, ex);
+                }
+                pages.add(page);
+            }
+        });
+    }
+
+    private static RetrieveRequestMsg toAccountRequestMsg(RetrieveRequest retrieveRequest,
+                                                          Integer clientId,
+                                                          String continueRequestId)
+    {
+        RetrieveRequest accountRequest = new RetrieveRequest();
+        accountRequest.setObjectType(retrieveRequest.getObjectType());
+        accountRequest.getProperties().addAll(retrieveRequest.getProperties());
+        accountRequest.setFilter(retrieveRequest.getFilter());
+        ClientID internalClientId = new ClientID();
+        internalClientId.setID(clientId);
+        accountRequest.getClientIDs().add(internalClientId);
+        accountRequest.setContinueRequest(continueRequestId);
+        RetrieveRequestMsg retrieveRequestMsg = new RetrieveRequestMsg();
+        retrieveRequestMsg.setRetrieveRequest(accountRequest);
+        return retrieveRequestMsg;
+    }
+
+    private static RetrieveRequestMsg toContinueRequestMsg(RetrieveRequest retrieveRequest,
+                                                           String continueRequestId)
+    {
+        RetrieveRequest continueRequest = new RetrieveRequest();
+        continueRequest.setObjectType(retrieveRequest.getObjectType());
+        continueRequest.getProperties().addAll(retrieveRequest.getProperties());
+        continueRequest.setQueryAllAccounts(retrieveRequest.getQueryAllAccounts());
+        continueRequest.getClientIDs().addAll(retrieveRequest.getClientIDs());
+        continueRequest.setContinueRequest(continueRequestId);
+        RetrieveRequestMsg retrieveRequestMsg = new RetrieveRequestMsg();
+        retrieveRequestMsg.setRetrieveRequest(continueRequest);
+        return retrieveRequestMsg;
+    }
+
+    public static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> retrieveAsync(ETClient client,
+                                                                                         Class<T> type,
+                                                                                         Integer page,
+                                                                                         Integer pageSize,
+                                                                                         ETFilter filter)
+        throws ETSdkException
+    {
+        if (page != null) {
+            throw new ETSdkException("page argument not supported on this object type");
+        }
+        if (pageSize != null) {
+            throw new ETSdkException("pageSize argument not supported on this object type");
+        }
+
+        if (filter.getOrderBy().size() != 0) {
+            throw new ETSdkException("order by argument not supported on this object type");
+        }
+
+        return retrieveAsync(client, null, type, filter);
+    }
+
+    //
+    // The asynchronous variants build the request on the calling
+    // thread (so argument and token errors are still thrown
+    // directly) and then hand the call off to CXF. The returned
+    // future is completed from the CXF response thread.
+    //
+
+    protected static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> retrieveAsync(final ETClient client,
+                                                                                            String soapObjectName,
+                                                                                            final Class<T> type,
+                                                                                            ETFilter filter)
+        throws ETSdkException
+    {
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        RetrieveRequestMsg retrieveRequestMsg =
+                toRetrieveRequestMsg(soapObjectName, type, filter);
+
+        logger.trace("calling soap.retrieveAsync...");
+
+        final CompletableFuture<ETResponse<T>> future =
+                new CompletableFuture<ETResponse<T>>();
+
+        soap.retrieveAsync(retrieveRequestMsg, new AsyncHandler<RetrieveResponseMsg>() {
+            public void handleResponse(Response<RetrieveResponseMsg> r) {
+                try {
+                    future.complete(toResponse(client, type, getAsyncResult(r, "retrieve")));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    private static <T extends ETSoapObject> RetrieveRequestMsg toRetrieveRequestMsg(String soapObjectName,
+                                                                                     Class<T> type,
+                                                                                     ETFilter filter)
+        throws ETSdkException
+    {
+        //
+        // Read internal type and property names from the
+        // (cached) metadata for the type:
+        //
 
-        SoapObject internalTypeAnnotation
-            = externalType.getAnnotation(SoapObject.class);
-        assert internalTypeAnnotation != null;
-        Class<? extends APIObject> internalType = internalTypeAnnotation.internalType();
-        assert internalType != null;
+        ETSoapObjectMetadata metadata = ETSoapObjectMetadata.getMetadata(type);
+        Class<? extends APIObject> internalType = metadata.getInternalType();
 
         //
         // Determine properties to retrieve:
@@ -185,32 +655,19 @@ public abstract class ETSoapObject extends ETApiObject {
 
             for (String externalProperty : externalProperties) {
                 String internalProperty =
-                        getInternalProperty(externalType, externalProperty);
+                        metadata.getInternalProperty(externalProperty);
                 assert internalProperty != null;
                 internalProperties.add(internalProperty);
             }
         } else {
             //
-            // No properties were explicitly requested:
-            //
-
-            internalProperties = getInternalProperties(externalType);
-
-            //
-            // Remove properties that are unretrievable:
+            // No properties were explicitly requested, so retrieve
+            // all except those that are unretrievable:
             //
 
-            for (String property : internalTypeAnnotation.unretrievable()) {
-                internalProperties.remove(property);
-            }
+            internalProperties = metadata.getRetrievableProperties();
         }
 
-        //
-        // Perform the SOAP retrieve:
-        //
-
-        Soap soap = connection.getSoap();
-
         RetrieveRequest retrieveRequest = new RetrieveRequest();
         // if soapObjectType is specified, use it; otherwise, default
         // to the name of the internal class representing the object:
@@ -229,12 +686,12 @@ public abstract class ETSoapObject extends ETApiObject {
 
             String property = expression.getProperty();
             if (property != null) {
-                expression.setProperty(getInternalProperty(type, property));
+                expression.setProperty(metadata.getInternalProperty(property));
             }
             for (ETExpression subexpression : expression.getSubexpressions()) {
                 String p = subexpression.getProperty();
                 if (p != null) {
-                    subexpression.setProperty(getInternalProperty(type, p));
+                    subexpression.setProperty(metadata.getInternalProperty(p));
                 }
             }
 
@@ -262,12 +719,18 @@ public abstract class ETSoapObject extends ETApiObject {
             }
         }
 
-        logger.trace("calling soap.retrieve...");
-
         RetrieveRequestMsg retrieveRequestMsg = new RetrieveRequestMsg();
         retrieveRequestMsg.setRetrieveRequest(retrieveRequest);
 
-        RetrieveResponseMsg retrieveResponseMsg = soap.retrieve(retrieveRequestMsg);
+        return retrieveRequestMsg;
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> toResponse(ETClient client,
+                                                                     Class<T> externalType,
+                                                                     RetrieveResponseMsg retrieveResponseMsg)
+        throws ETSdkException
+    {
+        ETResponse<T> response = new ETResponse<T>();
 
         if (logger.isTraceEnabled()) {
             logger.trace("RetrieveResponseMsg:");
@@ -348,12 +811,112 @@ public abstract class ETSoapObject extends ETApiObject {
 
         client.refreshToken();
 
+        //
+        // Split large lists into batches:
+        //
+
+        int batchSize = connection.getBatchSize(getInternalTypeName(objects));
+        if (objects.size() > batchSize) {
+            return callInBatches(client, objects, batchSize, new BatchCall<T, T>() {
+                public CompletableFuture<ETResponse<T>> call(ETClient client, List<T> batch)
+                    throws ETSdkException
+                {
+                    return createAsync(client, batch);
+                }
+            });
+        }
+
         //
         // Perform the SOAP create:
         //
 
         Soap soap = connection.getSoap();
 
+        CreateRequest createRequest = toCreateRequest(client, objects);
+
+        logger.trace("calling soap.create...");
+
+        CreateResponse createResponse = soap.create(createRequest);
+
+        return toResponse(client, objects, createResponse);
+    }
+
+    public static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> createAsync(final ETClient client,
+                                                                                       final List<T> objects)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            ETResponse<T> response = new ETResponse<T>();
+            response.setStatus(ETResult.Status.OK);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        CreateRequest createRequest = toCreateRequest(client, objects);
+
+        logger.trace("calling soap.createAsync...");
+
+        final CompletableFuture<ETResponse<T>> future =
+                new CompletableFuture<ETResponse<T>>();
+
+        soap.createAsync(createRequest, new AsyncHandler<CreateResponse>() {
+            public void handleResponse(Response<CreateResponse> r) {
+                try {
+                    future.complete(toResponse(client, objects, getAsyncResult(r, "create")));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    //
+    // The queued variants ask the server to process the write
+    // asynchronously: the call returns as soon as the request has
+    // been queued, and the client's ETAsyncWriteTracker completes
+    // the futures of the returned handle as results come in.
+    //
+
+    public static <T extends ETSoapObject> ETAsyncWrite<T> queueCreate(ETClient client,
+                                                                       List<T> objects,
+                                                                       ETAsyncOptions options)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            return new ETAsyncWrite<T>(null, new ArrayList<T>());
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        CreateRequest createRequest = toCreateRequest(client, objects);
+        setAsyncOptions(createRequest.getOptions(), options);
+
+        logger.trace("calling soap.create (asynchronous)...");
+
+        CreateResponse createResponse = soap.create(createRequest);
+
+        return toAsyncWrite(client,
+                            objects,
+                            createResponse.getRequestID(),
+                            createResponse.getOverallStatus(),
+                            createResponse.getResults());
+    }
+
+    private static <T extends ETSoapObject> CreateRequest toCreateRequest(ETClient client,
+                                                                          List<T> objects)
+        throws ETSdkException
+    {
         CreateRequest createRequest = new CreateRequest();
         createRequest.setOptions(new CreateOptions());
         for (T object : objects) {
@@ -370,9 +933,15 @@ public abstract class ETSoapObject extends ETApiObject {
             logger.trace("  }");
         }
 
-        logger.trace("calling soap.create...");
+        return createRequest;
+    }
 
-        CreateResponse createResponse = soap.create(createRequest);
+    private static <T extends ETSoapObject> ETResponse<T> toResponse(ETClient client,
+                                                                     List<T> objects,
+                                                                     CreateResponse createResponse)
+        throws ETSdkException
+    {
+        ETResponse<T> response = new ETResponse<T>();
 
         if (logger.isTraceEnabled()) {
             logger.trace("CreateResponse:");
@@ -469,12 +1038,183 @@ public abstract class ETSoapObject extends ETApiObject {
 
         client.refreshToken();
 
-        //
-        // Perform the SOAP update:
-        //
-
+        //
+        // Split large lists into batches:
+        //
+
+        int batchSize = connection.getBatchSize(getInternalTypeName(objects));
+        if (objects.size() > batchSize) {
+            return callInBatches(client, objects, batchSize, new BatchCall<T, T>() {
+                public CompletableFuture<ETResponse<T>> call(ETClient client, List<T> batch)
+                    throws ETSdkException
+                {
+                    return updateAsync(client, batch);
+                }
+            });
+        }
+
+        //
+        // Perform the SOAP update:
+        //
+
+        Soap soap = connection.getSoap();
+
+        UpdateRequest updateRequest = toUpdateRequest(client, objects);
+
+        logger.trace("calling soap.update...");
+
+        UpdateResponse updateResponse = soap.update(updateRequest);
+
+        return toResponse(client, objects, updateResponse);
+    }
+
+    public static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> updateAsync(final ETClient client,
+                                                                                       final List<T> objects)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            ETResponse<T> response = new ETResponse<T>();
+            response.setStatus(ETResult.Status.OK);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        UpdateRequest updateRequest = toUpdateRequest(client, objects);
+
+        logger.trace("calling soap.updateAsync...");
+
+        final CompletableFuture<ETResponse<T>> future =
+                new CompletableFuture<ETResponse<T>>();
+
+        soap.updateAsync(updateRequest, new AsyncHandler<UpdateResponse>() {
+            public void handleResponse(Response<UpdateResponse> r) {
+                try {
+                    future.complete(toResponse(client, objects, getAsyncResult(r, "update")));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    //
+    // Upserts are updates with the UpdateAdd save action, which
+    // makes the server add the objects that don't exist yet:
+    //
+
+    public static <T extends ETSoapObject> ETResponse<T> upsert(ETClient client,
+                                                                List<T> objects)
+        throws ETSdkException
+    {
+        ETResponse<T> response = new ETResponse<T>();
+
+        if (objects == null || objects.size() == 0) {
+            response.setStatus(ETResult.Status.OK);
+            return response;
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        int batchSize = connection.getBatchSize(getInternalTypeName(objects));
+        if (objects.size() > batchSize) {
+            return callInBatches(client, objects, batchSize, new BatchCall<T, T>() {
+                public CompletableFuture<ETResponse<T>> call(ETClient client, List<T> batch)
+                    throws ETSdkException
+                {
+                    return upsertAsync(client, batch);
+                }
+            });
+        }
+
+        Soap soap = connection.getSoap();
+
+        UpdateRequest updateRequest = toUpsertRequest(client, objects);
+
+        logger.trace("calling soap.update (upsert)...");
+
+        UpdateResponse updateResponse = soap.update(updateRequest);
+
+        return toResponse(client, objects, updateResponse);
+    }
+
+    public static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> upsertAsync(final ETClient client,
+                                                                                       final List<T> objects)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            ETResponse<T> response = new ETResponse<T>();
+            response.setStatus(ETResult.Status.OK);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        UpdateRequest updateRequest = toUpsertRequest(client, objects);
+
+        logger.trace("calling soap.updateAsync (upsert)...");
+
+        final CompletableFuture<ETResponse<T>> future =
+                new CompletableFuture<ETResponse<T>>();
+
+        soap.updateAsync(updateRequest, new AsyncHandler<UpdateResponse>() {
+            public void handleResponse(Response<UpdateResponse> r) {
+                try {
+                    future.complete(toResponse(client, objects, getAsyncResult(r, "update")));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    public static <T extends ETSoapObject> ETAsyncWrite<T> queueUpdate(ETClient client,
+                                                                       List<T> objects,
+                                                                       ETAsyncOptions options)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            return new ETAsyncWrite<T>(null, new ArrayList<T>());
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
         Soap soap = connection.getSoap();
 
+        UpdateRequest updateRequest = toUpdateRequest(client, objects);
+        setAsyncOptions(updateRequest.getOptions(), options);
+
+        logger.trace("calling soap.update (asynchronous)...");
+
+        UpdateResponse updateResponse = soap.update(updateRequest);
+
+        return toAsyncWrite(client,
+                            objects,
+                            updateResponse.getRequestID(),
+                            updateResponse.getOverallStatus(),
+                            updateResponse.getResults());
+    }
+
+    private static <T extends ETSoapObject> UpdateRequest toUpdateRequest(ETClient client,
+                                                                          List<T> objects)
+        throws ETSdkException
+    {
         UpdateRequest updateRequest = new UpdateRequest();
         updateRequest.setOptions(new UpdateOptions());
         for (T object : objects) {
@@ -491,9 +1231,31 @@ public abstract class ETSoapObject extends ETApiObject {
             logger.trace("  }");
         }
 
-        logger.trace("calling soap.update...");
+        return updateRequest;
+    }
 
-        UpdateResponse updateResponse = soap.update(updateRequest);
+    private static <T extends ETSoapObject> UpdateRequest toUpsertRequest(ETClient client,
+                                                                          List<T> objects)
+        throws ETSdkException
+    {
+        UpdateRequest updateRequest = toUpdateRequest(client, objects);
+
+        SaveOption saveOption = new SaveOption();
+        saveOption.setPropertyName("*");
+        saveOption.setSaveAction(SaveAction.UPDATE_ADD);
+        Options.SaveOptions saveOptions = new Options.SaveOptions();
+        saveOptions.getSaveOption().add(saveOption);
+        updateRequest.getOptions().setSaveOptions(saveOptions);
+
+        return updateRequest;
+    }
+
+    private static <T extends ETSoapObject> ETResponse<T> toResponse(ETClient client,
+                                                                     List<T> objects,
+                                                                     UpdateResponse updateResponse)
+        throws ETSdkException
+    {
+        ETResponse<T> response = new ETResponse<T>();
 
         if (logger.isTraceEnabled()) {
             logger.trace("UpdateResponse:");
@@ -608,12 +1370,92 @@ public abstract class ETSoapObject extends ETApiObject {
 
         client.refreshToken();
 
+        //
+        // Split large lists into batches:
+        //
+
+        int batchSize = connection.getBatchSize(objects.get(0).getClass().getSimpleName());
+        if (objects.size() > batchSize) {
+            return callInBatches(client, objects, batchSize, new BatchCall<T, APIObject>() {
+                public CompletableFuture<ETResponse<T>> call(ETClient client, List<APIObject> batch)
+                    throws ETSdkException
+                {
+                    return deleteAsync(client, batch, true);
+                }
+            });
+        }
+
         //
         // Perform the SOAP delete:
         //
 
         Soap soap = connection.getSoap();
 
+        DeleteRequest deleteRequest = toDeleteRequest(objects);
+
+        logger.trace("calling soap.delete...");
+
+        DeleteResponse deleteResponse = soap.delete(deleteRequest);
+
+        return toResponse(deleteResponse);
+    }
+
+    public static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> deleteAsync(ETClient client,
+                                                                                       List<T> objects)
+        throws ETSdkException
+    {
+        List<APIObject> internalObjects = new ArrayList<APIObject>();
+
+        //
+        // Convert the external objects to internal objects:
+        //
+
+        for (T object : objects) {
+            object.setClient(client);
+            internalObjects.add(object.toInternal());
+        }
+
+        return deleteAsync(client, internalObjects, true);
+    }
+
+    protected static <T extends ETSoapObject> CompletableFuture<ETResponse<T>> deleteAsync(ETClient client,
+                                                                                          List<APIObject> objects,
+                                                                                          boolean internal)
+        throws ETSdkException
+    {
+        if (objects == null || objects.size() == 0) {
+            ETResponse<T> response = new ETResponse<T>();
+            response.setStatus(ETResult.Status.OK);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        ETSoapConnection connection = client.getSoapConnection();
+
+        client.refreshToken();
+
+        Soap soap = connection.getSoap();
+
+        DeleteRequest deleteRequest = toDeleteRequest(objects);
+
+        logger.trace("calling soap.deleteAsync...");
+
+        final CompletableFuture<ETResponse<T>> future =
+                new CompletableFuture<ETResponse<T>>();
+
+        soap.deleteAsync(deleteRequest, new AsyncHandler<DeleteResponse>() {
+            public void handleResponse(Response<DeleteResponse> r) {
+                try {
+                    future.complete(ETSoapObject.<T>toResponse(getAsyncResult(r, "delete")));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    private static DeleteRequest toDeleteRequest(List<APIObject> objects) {
         DeleteRequest deleteRequest = new DeleteRequest();
         deleteRequest.setOptions(new DeleteOptions());
         deleteRequest.getObjects().addAll(objects);
@@ -627,9 +1469,11 @@ public abstract class ETSoapObject extends ETApiObject {
             logger.trace("  }");
         }
 
-        logger.trace("calling soap.delete...");
+        return deleteRequest;
+    }
 
-        DeleteResponse deleteResponse = soap.delete(deleteRequest);
+    private static <T extends ETSoapObject> ETResponse<T> toResponse(DeleteResponse deleteResponse) {
+        ETResponse<T> response = new ETResponse<T>();
 
         if (logger.isTraceEnabled()) {
             logger.trace("DeleteResponse:");
@@ -666,12 +1510,219 @@ public abstract class ETSoapObject extends ETApiObject {
         return response;
     }
 
-    private void registerConverters() {
+    private static void setAsyncOptions(Options internalOptions, ETAsyncOptions options) {
+        internalOptions.setRequestType(RequestType.ASYNCHRONOUS);
+        if (options == null) {
+            return;
+        }
+        if (options.getPriority() != null) {
+            internalOptions.setQueuePriority(Priority.fromValue(options.getPriority().value()));
+        }
+        if (options.getConversationId() != null) {
+            internalOptions.setConversationID(options.getConversationId());
+        }
+        if (options.getResponseType() != null) {
+            AsyncResponse asyncResponse = new AsyncResponse();
+            asyncResponse.setResponseType(AsyncResponseType.fromValue(options.getResponseType().value()));
+            asyncResponse.setResponseAddress(options.getResponseAddress());
+            if (options.getRespondWhen() != null) {
+                asyncResponse.setRespondWhen(RespondWhen.fromValue(options.getRespondWhen().value()));
+            }
+            asyncResponse.setIncludeResults(options.getIncludeResults());
+            asyncResponse.setIncludeObjects(options.getIncludeObjects());
+            internalOptions.getSendResponseTo().add(asyncResponse);
+        }
+    }
+
+    private static <T extends ETSoapObject> ETAsyncWrite<T> toAsyncWrite(ETClient client,
+                                                                         List<T> objects,
+                                                                         String requestId,
+                                                                         String overallStatus,
+                                                                         List<? extends Result> results)
+    {
+        logger.trace("queued request " + requestId + ": " + overallStatus);
+
+        ETAsyncWrite<T> write = new ETAsyncWrite<T>(requestId, objects);
+
         //
-        // Register converters:
+        // Objects rejected up front (or the whole request, if it
+        // couldn't be queued) are completed right away:
+        //
+
+        for (Result result : results) {
+            if (!"Error".equals(result.getStatusCode())) {
+                continue;
+            }
+            ETResultItem item = new ETResultItem();
+            item.setRequestId(requestId);
+            item.setOrdinalId(result.getOrdinalID());
+            item.setStatusCode(result.getStatusCode());
+            item.setStatusMessage(result.getStatusMessage());
+            item.setErrorCode(result.getErrorCode());
+            write.complete(item);
+        }
+        if ("Error".equals(overallStatus)) {
+            write.completeRemaining(ETResult.Status.ERROR, overallStatus, overallStatus);
+        }
+
+        client.getAsyncWriteTracker().track(write);
+
+        return write;
+    }
+
+    //
+    // Lists larger than the batch size configured for their object
+    // type are split into batches, which are dispatched using the
+    // asynchronous calls, with at most the connection's maximum
+    // number of concurrent batches in flight at any time. The
+    // results are merged back in input order.
+    //
+
+    private interface BatchCall<T extends ETSoapObject, O> {
+        public CompletableFuture<ETResponse<T>> call(ETClient client, List<O> batch)
+            throws ETSdkException;
+    }
+
+    private static <T extends ETSoapObject, O> ETResponse<T> callInBatches(ETClient client,
+                                                                           List<O> objects,
+                                                                           int batchSize,
+                                                                           BatchCall<T, O> batchCall)
+        throws ETSdkException
+    {
+        ETSoapConnection connection = client.getSoapConnection();
+
+        int maxConcurrentBatches = connection.getMaxConcurrentBatches();
+
+        logger.trace("splitting " + objects.size() + " objects into batches of "
+                + batchSize + " (" + maxConcurrentBatches + " concurrent)");
+
+        final Semaphore semaphore = new Semaphore(maxConcurrentBatches);
+
+        List<CompletableFuture<ETResponse<T>>> futures =
+                new ArrayList<CompletableFuture<ETResponse<T>>>();
+
+        ETSdkException exception = null;
+
+        for (int i = 0; i < objects.size(); i += batchSize) {
+            List<O> batch = objects.subList(i, Math.min(i + batchSize, objects.size()));
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                exception = new ETSdkException("interrupted dispatching batches", ex);
+                break;
+            }
+            CompletableFuture<ETResponse<T>> future = null;
+            try {
+                future = batchCall.call(client, batch);
+            } catch (ETSdkException ex) {
+                semaphore.release();
+                exception = ex;
+                break;
+            }
+            future.whenComplete(new BiConsumer<ETResponse<T>, Throwable>() {
+                public void accept(ETResponse<T> response, Throwable throwable) {
+                    semaphore.release();
+                }
+            });
+            futures.add(future);
+        }
+
         //
+        // Wait for all batches (even if one failed) so no
+        // calls are left running when we return:
+        //
+
+        ETResponse<T> response = new ETResponse<T>();
+        for (CompletableFuture<ETResponse<T>> future : futures) {
+            ETResponse<T> batchResponse = null;
+            try {
+                batchResponse = future.get();
+            } catch (ExecutionException ex) {
+                if (exception == null) {
+                    if (ex.getCause() instanceof ETSdkException) {
+                        exception = (ETSdkException) ex.getCause();
+                    } else {
+                        exception = new ETSdkException("error executing batch",
+                                                       ex.getCause());
+                    }
+                }
+                continue;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ETSdkException("interrupted waiting for batches", ex);
+            }
+            if (response.getResponseCode() == null) {
+                response.setRequestId(batchResponse.getRequestId());
+                response.setStatus(batchResponse.getStatus());
+                response.setResponseCode(batchResponse.getResponseCode());
+                response.setResponseMessage(batchResponse.getResponseMessage());
+            } else if (!response.getResponseCode().equals(batchResponse.getResponseCode())) {
+                // the same overall status the API uses when
+                // some but not all objects fail:
+                response.setStatus(ETResult.Status.ERROR);
+                response.setResponseCode("Has Errors");
+                response.setResponseMessage("Has Errors");
+            }
+            for (ETResult<T> result : batchResponse.getResults()) {
+                response.addResult(result);
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+
+        return response;
+    }
+
+    private static <T extends ETSoapObject> String getInternalTypeName(List<T> objects) {
+        SoapObject internalTypeAnnotation =
+                objects.get(0).getClass().getAnnotation(SoapObject.class);
+        if (internalTypeAnnotation == null) {
+            return objects.get(0).getClass().getSimpleName();
+        }
+        return internalTypeAnnotation.internalType().getSimpleName();
+    }
+
+    //
+    // Unwraps the result of an asynchronous SOAP call, mapping
+    // transport and fault errors to ETSdkException:
+    //
+
+    private static <R> R getAsyncResult(Response<R> response, String operation)
+        throws ETSdkException
+    {
+        try {
+            return response.get();
+        } catch (ExecutionException ex) {
+            throw new ETSdkException("error invoking soap."
+                    + operation, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ETSdkException("interrupted invoking soap."
+                    + operation, ex);
+        }
+    }
 
-        ConvertUtilsBean convertUtils = BeanUtilsBean.getInstance().getConvertUtils();
+    /**
+     * Returns the converters used to convert property values
+     * between external and internal objects. The SDK's own
+     * converters are registered the first time this is called,
+     * once per JVM (rather than once per object).
+     */
+    static synchronized ConvertUtilsBean getConvertUtils() {
+        if (convertUtils == null) {
+            convertUtils = BeanUtilsBean.getInstance().getConvertUtils();
+            registerConverters(convertUtils);
+        }
+        return convertUtils;
+    }
+
+    private static void registerConverters(ConvertUtilsBean convertUtils) {
+        //
+        // Register converters:
+        //
 
         // ETDataExtension
         convertUtils.register(new ExternalObjectConverter(),
@@ -770,7 +1821,7 @@ public abstract class ETSoapObject extends ETApiObject {
                 TriggeredSendStatusEnum.class);
     }
 
-    public class ExternalObjectConverter implements Converter {
+    public static class ExternalObjectConverter implements Converter {
         @SuppressWarnings("rawtypes")
         public Object convert(Class type, Object value) {
             ETSoapObject externalObject = null;
@@ -788,7 +1839,7 @@ public abstract class ETSoapObject extends ETApiObject {
         }
     }
 
-    public class InternalObjectConverter implements Converter {
+    public static class InternalObjectConverter implements Converter {
         @SuppressWarnings("rawtypes")
         public Object convert(Class type, Object value) {
             APIObject internalObject = null;
@@ -801,7 +1852,7 @@ public abstract class ETSoapObject extends ETApiObject {
         }
     }
 
-    public class DataExtensionRowConverter implements Converter {
+    public static class DataExtensionRowConverter implements Converter {
         @SuppressWarnings({ "rawtypes", "unchecked" })
         public Object convert(Class type, Object value) {
             if (type == Map.class) {
@@ -829,7 +1880,7 @@ public abstract class ETSoapObject extends ETApiObject {
         }
     }
 
-    public class EnumConverter implements Converter {
+    public static class EnumConverter implements Converter {
         @SuppressWarnings({ "rawtypes", "unchecked" })
         public Object convert(Class type, Object value) {
             return Enum.valueOf(type, value.toString());
@@ -851,63 +1902,36 @@ public abstract class ETSoapObject extends ETApiObject {
         logger.trace("                    to external type "
                 + externalTypeName);
 
-        for (Field externalField : getAllFields(externalType)) {
-            //
-            // Skip this field if it doesn't have the @ExternalName
-            // annotation (it's an internal field):
-            //
-
-            ExternalName externalName =
-                    externalField.getAnnotation(ExternalName.class);
-            if (externalName == null) {
-                continue;
-            }
-
-            String externalFieldName = externalField.getName();
-            String internalFieldName = null;
+        //
+        // Tag the object with the business unit it came from
+        // (only returned for some retrieves):
+        //
 
-            InternalName internalName =
-                    externalField.getAnnotation(InternalName.class);
+        if (internalObject.getClient() != null
+                && internalObject.getClient().getID() != null)
+        {
+            clientId = internalObject.getClient().getID();
+        }
 
-            if (internalName != null) {
-                internalFieldName = internalName.value();
-            } else {
-                // internal name is the same as external name
-                internalFieldName = externalFieldName;
-            }
+        ETSoapMapping mapping = ETSoapMapping.getMapping(externalType,
+                                                         internalType);
 
-            Object internalFieldValue = null;
-            try {
-                internalFieldValue =
-                        PropertyUtils.getProperty(internalObject,
-                                                  internalFieldName);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not get property \""
-                        + internalFieldName
-                        + "\" of object "
-                        + internalObject,
-                        ex);
-            }
+        for (ETSoapMapping.Property property : mapping.getProperties()) {
+            Object internalFieldValue =
+                    property.getInternalValue(internalObject);
 
             if (internalFieldValue == null) {
                 continue;
             }
 
             if (internalFieldValue instanceof List) {
-                externalField.setAccessible(true);
-
                 List<ETSoapObject> externalList = new ArrayList<ETSoapObject>();
                 @SuppressWarnings("unchecked")
                 List<APIObject> internalList
                     = (List<APIObject>) internalFieldValue;
 
-                Type fieldType = externalField.getGenericType();
-                assert fieldType instanceof ParameterizedType;
-                ParameterizedType parameterizedType
-                    = (ParameterizedType) fieldType;
-                assert parameterizedType.getActualTypeArguments().length == 1;
-                Class<?> externalItemType
-                    = (Class<?>) parameterizedType.getActualTypeArguments()[0];
+                Class<?> externalItemType = property.getExternalItemType();
+                assert externalItemType != null;
 
                 for (APIObject internalItem : internalList) {
                     ETSoapObject externalItem = null;
@@ -920,59 +1944,31 @@ public abstract class ETSoapObject extends ETApiObject {
                     externalList.add(externalItem.fromInternal(internalItem));
                 }
 
-                try {
-                    externalField.set(externalObject, externalList);
-                } catch (Exception ex) {
-                    throw new ETSdkException("could not set field \""
-                            + externalFieldName
-                            + "\" of object "
-                            + externalObject,
-                            ex);
-                }
+                property.setExternalField(externalObject, externalList);
 
                 continue;
             }
 
-            try {
-                BeanUtils.setProperty(externalObject,
-                                      externalFieldName,
-                                      internalFieldValue);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not set property \""
-                        + externalFieldName
-                        + "\" of object "
-                        + externalObject,
-                        ex);
-            }
+            property.setExternalValue(externalObject, internalFieldValue);
 
             if (logger.isTraceEnabled()) {
                 Field internalField = getField(internalType,
-                                               internalFieldName);
+                                               property.getInternalName());
 
-                Object externalFieldValue = null;
-                try {
-                    externalFieldValue =
-                            PropertyUtils.getProperty(externalObject,
-                                                      externalFieldName);
-                } catch (Exception ex) {
-                    throw new ETSdkException("could not get property \""
-                            + externalFieldName
-                            + "\" of object "
-                            + externalObject,
-                            ex);
-                }
+                Object externalFieldValue =
+                        property.getExternalValue(externalObject);
 
                 logger.trace("  converted field "
-                        + internalTypeName + "." + internalFieldName
+                        + internalTypeName + "." + property.getInternalName()
                         + " (type="
                         + internalField.getType().getSimpleName()
                         + ", value="
                         + internalFieldValue
                         + ")");
                 logger.trace("         to field "
-                        + externalTypeName + "." + externalFieldName
+                        + externalTypeName + "." + property.getExternalName()
                         + " (type="
-                        + externalField.getType().getSimpleName()
+                        + property.getExternalField().getType().getSimpleName()
                         + ", value="
                         + externalFieldValue
                         + ")");
@@ -990,14 +1986,13 @@ public abstract class ETSoapObject extends ETApiObject {
         Class<? extends ETSoapObject> externalType = externalObject.getClass();
 
         //
-        // Use the @SoapObject annotation to determine internalType:
+        // Use the @SoapObject annotation (via the cached
+        // metadata) to determine internalType:
         //
 
-        SoapObject internalTypeAnnotation
-            = externalType.getAnnotation(SoapObject.class);
-        assert internalTypeAnnotation != null;
-        Class<? extends APIObject> internalType = internalTypeAnnotation.internalType();
-        assert internalType != null;
+        ETSoapObjectMetadata metadata =
+                ETSoapObjectMetadata.getMetadata(externalType);
+        Class<? extends APIObject> internalType = metadata.getInternalType();
 
         String externalTypeName = externalType.getSimpleName();
         String internalTypeName = internalType.getSimpleName();
@@ -1015,54 +2010,17 @@ public abstract class ETSoapObject extends ETApiObject {
                     + internalType.getName(), ex);
         }
 
-        for (Field externalField : getAllFields(externalType)) {
-            //
-            // Skip this field if it doesn't have the @ExternalName
-            // annotation (it's an internal field):
-            //
-
-            ExternalName externalName =
-                    externalField.getAnnotation(ExternalName.class);
-            if (externalName == null) {
-                continue;
-            }
-
-            String externalFieldName = externalField.getName();
-            String internalFieldName = null;
-
-            InternalName internalName =
-                    externalField.getAnnotation(InternalName.class);
-
-            if (internalName != null) {
-                internalFieldName = internalName.value();
-            } else {
-                // internal name is the same as external name
-                internalFieldName = externalFieldName;
-            }
+        ETSoapMapping mapping = metadata.getMapping();
 
-            Object externalFieldValue = null;
-            try {
-                externalFieldValue =
-                        PropertyUtils.getProperty(externalObject,
-                                                  externalFieldName);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not get property \""
-                        + externalFieldName
-                        + "\" of object "
-                        + externalObject,
-                        ex);
-            }
+        for (ETSoapMapping.Property property : mapping.getProperties()) {
+            Object externalFieldValue =
+                    property.getExternalValue(externalObject);
 
             if (externalFieldValue == null) {
                 continue;
             }
 
             if (externalFieldValue instanceof List) {
-                Field internalField = getField(internalType,
-                                               internalFieldName);
-
-                internalField.setAccessible(true);
-
                 List<APIObject> internalList = new ArrayList<APIObject>();
                 @SuppressWarnings("unchecked")
                 List<ETSoapObject> externalList
@@ -1072,7 +2030,7 @@ public abstract class ETSoapObject extends ETApiObject {
                     internalList.add(externalItem.toInternal());
                 }
 
-                if (internalFieldName.equals("fields")) {
+                if (property.getInternalName().equals("fields")) {
                     //
                     // This list contains data extension columns:
                     //
@@ -1081,68 +2039,32 @@ public abstract class ETSoapObject extends ETApiObject {
                     for (APIObject field : internalList) {
                         fields.getField().add((DataExtensionField) field);
                     }
-                    try {
-                        internalField.set(internalObject, fields);
-                    } catch (Exception ex) {
-                        throw new ETSdkException("could not set field \""
-                                + internalFieldName
-                                + "\" of object "
-                                + internalObject,
-                                ex);
-                    }
+                    property.setInternalField(internalObject, fields);
                 } else {
-                    try {
-                        internalField.set(internalObject, internalList);
-                    } catch (Exception ex) {
-                        throw new ETSdkException("could not set field \""
-                                + internalFieldName
-                                + "\" of object "
-                                + internalObject,
-                                ex);
-                    }
+                    property.setInternalField(internalObject, internalList);
                 }
 
                 continue;
             }
 
-            try {
-                BeanUtils.setProperty(internalObject,
-                                      internalFieldName,
-                                      externalFieldValue);
-            } catch (Exception ex) {
-                throw new ETSdkException("could not set property \""
-                        + internalFieldName
-                        + "\" of object "
-                        + internalObject,
-                        ex);
-            }
+            property.setInternalValue(internalObject, externalFieldValue);
 
             if (logger.isTraceEnabled()) {
                 Field internalField = getField(internalType,
-                                               internalFieldName);
+                                               property.getInternalName());
 
-                Object internalFieldValue = null;
-                try {
-                    internalFieldValue =
-                            PropertyUtils.getProperty(internalObject,
-                                                      internalFieldName);
-                } catch (Exception ex) {
-                    throw new ETSdkException("could not get property \""
-                            + internalFieldName
-                            + "\" of object "
-                            + internalObject,
-                            ex);
-                }
+                Object internalFieldValue =
+                        property.getInternalValue(internalObject);
 
                 logger.trace("  converted field "
-                        + externalTypeName + "." + externalFieldName
+                        + externalTypeName + "." + property.getExternalName()
                         + " (type="
-                        + externalField.getType().getSimpleName()
+                        + property.getExternalField().getType().getSimpleName()
                         + ", value="
                         + externalFieldValue
                         + ")");
                 logger.trace("         to field "
-                        + internalTypeName + "." + internalFieldName
+                        + internalTypeName + "." + property.getInternalName()
                         + " (type="
                         + internalField.getType().getSimpleName()
                         + ", value="
@@ -1158,120 +2080,14 @@ public abstract class ETSoapObject extends ETApiObject {
                                                 String name)
         throws ETSdkException
     {
-        String internalProperty = null;
-
-        Class<? extends ETSoapObject> externalType = type; // for code readability
-
-        Field externalField = null;
-        try {
-            externalField = getField(externalType, name);
-        } catch (ETSdkException ex) {
-            return name; // XXX
-        }
-
-        InternalProperty internalPropertyAnnotation =
-                externalField.getAnnotation(InternalProperty.class);
-
-        if (internalPropertyAnnotation != null) {
-            internalProperty = internalPropertyAnnotation.value();
-        } else {
-            //
-            // The internal property name can be found in the
-            // @XmlElement (or @XmlElementRef) annotation on the
-            // NAME internal field of the CXF generated class:
-            //
-
-            //
-            // Use the @SoapObject annotation to determine internalType:
-            //
-
-            SoapObject internalTypeAnnotation
-                = externalType.getAnnotation(SoapObject.class);
-            assert internalTypeAnnotation != null;
-            Class<? extends APIObject> internalType = internalTypeAnnotation.internalType();
-            assert internalType != null;
-
-            InternalName internalNameAnnotation =
-                    externalField.getAnnotation(InternalName.class);
-
-            String internalName = null;
-            if (internalNameAnnotation != null) {
-                internalName = internalNameAnnotation.value();
-            } else {
-                // internal name is the same as external name
-                internalName = externalField.getName();
-            }
-
-            Field internalField = getField(internalType, internalName);
-
-            XmlElement element =
-                    internalField.getAnnotation(XmlElement.class);
-            if (element != null) {
-                internalProperty = element.name();
-            } else {
-                //
-                // Optional dateTimes are annotated with @XmlElementRef:
-                //
-
-                XmlElementRef elementRef =
-                        internalField.getAnnotation(XmlElementRef.class);
-                if (elementRef != null) {
-                    internalProperty = elementRef.name();
-                }
-            }
-        }
-
-        return internalProperty;
+        return ETSoapObjectMetadata.getMetadata(type).getInternalProperty(name);
     }
 
-    // XXX private?
     protected static List<String> getInternalProperties(Class<? extends ETSoapObject> type)
         throws ETSdkException
     {
-        List<String> internalProperties = new ArrayList<String>();
-
-        Class<? extends ETSoapObject> externalType = type; // for code readability
-
-        //
-        // Use the @SoapObject annotation to determine internalType:
-        //
-
-        SoapObject internalTypeAnnotation
-            = externalType.getAnnotation(SoapObject.class);
-        assert internalTypeAnnotation != null;
-        Class<? extends APIObject> internalType = internalTypeAnnotation.internalType();
-        assert internalType != null;
-
-        //
-        // Build a list of fields from externalType and all superclasses:
-        //
-
-        List<Field> externalFields = getAllFields(externalType);
-
-        //
-        // Walk the list of external fields, building a list of the
-        // corresponding property names:
-        //
-
-        for (Field externalField : externalFields) {
-            //
-            // Skip this field if it doesn't have the @ExternalName
-            // annotation (it's an internal field):
-            //
-
-            ExternalName externalName =
-                    externalField.getAnnotation(ExternalName.class);
-            if (externalName == null) {
-                continue;
-            }
-
-            String internalProperty = getInternalProperty(externalType,
-                                                          externalField.getName());
-            assert internalProperty != null;
-            internalProperties.add(internalProperty);
-        }
-
-        return internalProperties;
+        return new ArrayList<String>(
+                ETSoapObjectMetadata.getMetadata(type).getInternalProperties());
     }
 
     public static FilterPart toFilterPart(ETExpression expression) {
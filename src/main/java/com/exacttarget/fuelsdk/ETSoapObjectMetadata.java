@@ -0,0 +1,253 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+
+import com.exacttarget.fuelsdk.annotations.ExternalName;
+import com.exacttarget.fuelsdk.annotations.InternalName;
+import com.exacttarget.fuelsdk.annotations.InternalProperty;
+import com.exacttarget.fuelsdk.annotations.SoapObject;
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * An <code>ETSoapObjectMetadata</code> object holds what the SDK
+ * needs to know about a <code>@SoapObject</code> type to build
+ * queries and convert objects: its internal type, the internal
+ * (SOAP) property name of each external property, the properties
+ * retrieved by default, and its conversion mapping. It is built
+ * once per type, the first time the type is used, and is immutable.
+ */
+
+class ETSoapObjectMetadata {
+    private static ConcurrentMap<Class<?>, ETSoapObjectMetadata> registry =
+            new ConcurrentHashMap<Class<?>, ETSoapObjectMetadata>();
+
+    private Class<? extends ETSoapObject> externalType = null;
+    private Class<? extends APIObject> internalType = null;
+    private Map<String, String> internalProperties = null;
+    private List<String> defaultProperties = null;
+    private List<String> retrievableProperties = null;
+    private ETSoapMapping mapping = null;
+
+    private ETSoapObjectMetadata(Class<? extends ETSoapObject> externalType)
+        throws ETSdkException
+    {
+        this.externalType = externalType;
+
+        //
+        // Use the @SoapObject annotation to determine internalType:
+        //
+
+        SoapObject internalTypeAnnotation
+            = externalType.getAnnotation(SoapObject.class);
+        if (internalTypeAnnotation == null) {
+            throw new ETSdkException(externalType.getName()
+                    + " is not annotated with @SoapObject");
+        }
+        internalType = internalTypeAnnotation.internalType();
+
+        //
+        // Walk the list of external fields, building a map of
+        // external to internal property names and a list of the
+        // internal property names of the @ExternalName fields:
+        //
+
+        Map<String, String> internalProperties = new HashMap<String, String>();
+        List<String> defaultProperties = new ArrayList<String>();
+        for (Field externalField : ETObject.getAllFields(externalType)) {
+            if (externalField.getAnnotation(ExternalName.class) == null
+                    && externalField.getAnnotation(InternalProperty.class) == null)
+            {
+                continue;
+            }
+
+            String internalProperty = getInternalProperty(externalField);
+            internalProperties.put(externalField.getName(), internalProperty);
+
+            if (externalField.getAnnotation(ExternalName.class) != null) {
+                assert internalProperty != null;
+                defaultProperties.add(internalProperty);
+            }
+        }
+        this.internalProperties = Collections.unmodifiableMap(internalProperties);
+        this.defaultProperties = Collections.unmodifiableList(defaultProperties);
+
+        //
+        // Properties retrieved when none are explicitly
+        // requested omit those that are unretrievable:
+        //
+
+        List<String> retrievableProperties =
+                new ArrayList<String>(defaultProperties);
+        retrievableProperties.removeAll(
+                Arrays.asList(internalTypeAnnotation.unretrievable()));
+        this.retrievableProperties =
+                Collections.unmodifiableList(retrievableProperties);
+
+        mapping = ETSoapMapping.getMapping(externalType, internalType);
+    }
+
+    /**
+     * Returns the metadata for the specified type,
+     * building it if necessary.
+     */
+    static ETSoapObjectMetadata getMetadata(Class<? extends ETSoapObject> type)
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata metadata = registry.get(type);
+        if (metadata == null) {
+            metadata = new ETSoapObjectMetadata(type);
+            ETSoapObjectMetadata existing = registry.putIfAbsent(type, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        return metadata;
+    }
+
+    public Class<? extends ETSoapObject> getExternalType() {
+        return externalType;
+    }
+
+    public Class<? extends APIObject> getInternalType() {
+        return internalType;
+    }
+
+    /**
+     * Returns the internal (SOAP) property name of the specified
+     * external property. Names that are not fields of the external
+     * type are returned as is.
+     */
+    public String getInternalProperty(String name)
+        throws ETSdkException
+    {
+        String internalProperty = internalProperties.get(name);
+        if (internalProperty != null) {
+            return internalProperty;
+        }
+
+        Field externalField = null;
+        try {
+            externalField = ETObject.getField(externalType, name);
+        } catch (ETSdkException ex) {
+            return name; // XXX
+        }
+        return getInternalProperty(externalField);
+    }
+
+    /**
+     * Returns the internal property names of all
+     * <code>@ExternalName</code> fields.
+     */
+    public List<String> getInternalProperties() {
+        return defaultProperties;
+    }
+
+    /**
+     * Returns the internal property names retrieved when no
+     * properties are explicitly requested (that is, all
+     * <code>@ExternalName</code> fields minus those marked
+     * <code>unretrievable</code>).
+     */
+    public List<String> getRetrievableProperties() {
+        return retrievableProperties;
+    }
+
+    public ETSoapMapping getMapping() {
+        return mapping;
+    }
+
+    private String getInternalProperty(Field externalField)
+        throws ETSdkException
+    {
+        String internalProperty = null;
+
+        InternalProperty internalPropertyAnnotation =
+                externalField.getAnnotation(InternalProperty.class);
+
+        if (internalPropertyAnnotation != null) {
+            internalProperty = internalPropertyAnnotation.value();
+        } else {
+            //
+            // The internal property name can be found in the
+            // @XmlElement (or @XmlElementRef) annotation on the
+            // NAME internal field of the CXF generated class:
+            //
+
+            InternalName internalNameAnnotation =
+                    externalField.getAnnotation(InternalName.class);
+
+            String internalName = null;
+            if (internalNameAnnotation != null) {
+                internalName = internalNameAnnotation.value();
+            } else {
+                // internal name is the same as external name
+                internalName = externalField.getName();
+            }
+
+            Field internalField = ETObject.getField(internalType, internalName);
+
+            XmlElement element =
+                    internalField.getAnnotation(XmlElement.class);
+            if (element != null) {
+                internalProperty = element.name();
+            } else {
+                //
+                // Optional dateTimes are annotated with @XmlElementRef:
+                //
+
+                XmlElementRef elementRef =
+                        internalField.getAnnotation(XmlElementRef.class);
+                if (elementRef != null) {
+                    internalProperty = elementRef.name();
+                }
+            }
+        }
+
+        return internalProperty;
+    }
+}
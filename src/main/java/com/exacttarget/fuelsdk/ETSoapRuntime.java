@@ -0,0 +1,131 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.Closeable;
+import java.lang.reflect.Proxy;
+
+import javax.xml.ws.BindingProvider;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientImpl;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.jaxws.JaxWsClientProxy;
+import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+import org.apache.cxf.jaxws.support.JaxWsEndpointImpl;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.PartnerAPI;
+import com.exacttarget.fuelsdk.internal.Soap;
+
+/**
+ * <code>ETSoapRuntime</code> holds the parts of the SOAP stack that
+ * are expensive to build and identical for every connection: the
+ * parsed WSDL, the CXF service model and endpoint, and the JAXB
+ * context over the generated types. It is built once per class
+ * loader, the first time a connection is created.
+ *
+ * Each connection gets its own CXF client (and so its own request
+ * context, conduit and interceptors) on top of the shared endpoint.
+ * Per-connection interceptors must therefore be installed on the
+ * client, never on the endpoint.
+ */
+
+class ETSoapRuntime {
+    private static Logger logger = Logger.getLogger(ETSoapRuntime.class);
+
+    private static ETSoapRuntime instance = null;
+
+    private Bus bus = null;
+    private JaxWsEndpointImpl endpoint = null;
+    private Client templateClient = null;
+
+    ETSoapRuntime() {
+        long startTime = System.currentTimeMillis();
+
+        JaxWsProxyFactoryBean factory = new JaxWsProxyFactoryBean();
+        factory.setServiceClass(Soap.class);
+        factory.setWsdlURL(PartnerAPI.WSDL_LOCATION.toString());
+        factory.setServiceName(PartnerAPI.SERVICE);
+        factory.setEndpointName(PartnerAPI.Soap);
+        templateClient = ClientProxy.getClient(factory.create());
+        bus = templateClient.getBus();
+        endpoint = (JaxWsEndpointImpl) templateClient.getEndpoint();
+
+        logger.debug("initialized SOAP runtime in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    static synchronized ETSoapRuntime getInstance() {
+        if (instance == null) {
+            instance = new ETSoapRuntime();
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a new SOAP proxy backed by its own client
+     * on the shared endpoint.
+     */
+    Soap createSoap() {
+        ClientImpl client = new ClientImpl(bus, endpoint);
+
+        //
+        // Carry over the interceptors the proxy factory
+        // attached to the template client (e.g., for
+        // wrapper classes):
+        //
+
+        client.getInInterceptors().addAll(templateClient.getInInterceptors());
+        client.getOutInterceptors().addAll(templateClient.getOutInterceptors());
+        client.getInFaultInterceptors().addAll(templateClient.getInFaultInterceptors());
+        client.getOutFaultInterceptors().addAll(templateClient.getOutFaultInterceptors());
+
+        JaxWsClientProxy handler =
+                new JaxWsClientProxy(client, endpoint.getJaxwsBinding());
+
+        return (Soap) Proxy.newProxyInstance(Soap.class.getClassLoader(),
+                new Class<?>[] {
+                    Soap.class, BindingProvider.class, Closeable.class
+                },
+                handler);
+    }
+
+    JaxWsEndpointImpl getEndpoint() {
+        return endpoint;
+    }
+}
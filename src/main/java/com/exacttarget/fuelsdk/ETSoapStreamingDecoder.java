@@ -0,0 +1,387 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.interceptor.DocLiteralInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.apache.cxf.jaxb.JAXBDataBinding;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.staxutils.StaxUtils;
+
+import org.apache.log4j.Logger;
+
+import com.exacttarget.fuelsdk.internal.APIObject;
+
+/**
+ * <code>ETSoapStreamingDecoder</code> decodes the results of a
+ * <code>RetrieveResponseMsg</code> straight off the wire with StAX,
+ * handing each one to an <code>ETObjectHandler</code> as soon as it
+ * has been read instead of unmarshalling the whole message first.
+ * Data extension rows are built directly from the
+ * <code>Properties</code> element; all other object types are
+ * unmarshalled (and converted) one <code>Results</code> element
+ * at a time.
+ *
+ * Once the results have been consumed, the rest of the CXF chain
+ * is handed a <code>RetrieveResponseMsg</code> that contains only
+ * the overall status and request ID.
+ */
+
+class ETSoapStreamingDecoder {
+    private static Logger logger = Logger.getLogger(ETSoapStreamingDecoder.class);
+
+    private static final String PARTNER_API_NAMESPACE_URI =
+            "http://exacttarget.com/wsdl/partnerAPI";
+    private static final String XSI_NAMESPACE_URI =
+            "http://www.w3.org/2001/XMLSchema-instance";
+
+    private static final String DECODING =
+            ETSoapStreamingDecoder.class.getName() + ".decoding";
+
+    //
+    // The decoding state is handed from the calling thread to
+    // the exchange by the out interceptor, so the in interceptor
+    // finds it regardless of which thread processes the response:
+    //
+
+    private static final ThreadLocal<Decoding<?>> currentDecoding =
+            new ThreadLocal<Decoding<?>>();
+
+    private OutInterceptor outInterceptor = new OutInterceptor();
+    private InInterceptor inInterceptor = new InInterceptor();
+
+    public void install(InterceptorProvider provider) {
+        provider.getOutInterceptors().add(outInterceptor);
+        provider.getInInterceptors().add(inInterceptor);
+    }
+
+    /**
+     * Marks the next SOAP call made on the current thread as
+     * a streaming retrieve. Must be paired with
+     * <code>end</code> in a finally block.
+     */
+    static <T extends ETSoapObject> Decoding<T> begin(ETClient client,
+                                                      Class<T> type,
+                                                      ETObjectHandler<T> handler)
+    {
+        Decoding<T> decoding = new Decoding<T>(client, type, handler);
+        currentDecoding.set(decoding);
+        return decoding;
+    }
+
+    static void end() {
+        currentDecoding.remove();
+    }
+
+    static class Decoding<T extends ETSoapObject> {
+        private ETClient client = null;
+        private Class<T> type = null;
+        private ETObjectHandler<T> handler = null;
+        private int count = 0;
+        private ETSdkException exception = null;
+
+        Decoding(ETClient client, Class<T> type, ETObjectHandler<T> handler) {
+            this.client = client;
+            this.type = type;
+            this.handler = handler;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        ETSdkException getException() {
+            return exception;
+        }
+
+        void handle(T object)
+            throws ETSdkException
+        {
+            object.setClient(client);
+            count++;
+            handler.handleObject(object);
+        }
+
+        T newObject()
+            throws ETSdkException
+        {
+            try {
+                return type.newInstance();
+            } catch (Exception ex) {
+                throw new ETSdkException("could not instantiate "
+                        + type.getName(), ex);
+            }
+        }
+    }
+
+    private class OutInterceptor extends AbstractPhaseInterceptor<Message> {
+        public OutInterceptor() {
+            super(Phase.SETUP);
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            Decoding<?> decoding = currentDecoding.get();
+            if (decoding != null) {
+                message.getExchange().put(DECODING, decoding);
+                // only the first call after begin() streams
+                currentDecoding.remove();
+            }
+        }
+    }
+
+    private class InInterceptor extends AbstractPhaseInterceptor<Message> {
+        public InInterceptor() {
+            super(Phase.UNMARSHAL);
+            addBefore(DocLiteralInInterceptor.class.getName());
+        }
+
+        public void handleMessage(Message message)
+            throws Fault
+        {
+            Exchange exchange = message.getExchange();
+            Decoding<?> decoding = (Decoding<?>) exchange.get(DECODING);
+            if (decoding == null) {
+                return;
+            }
+
+            XMLStreamReader reader = message.getContent(XMLStreamReader.class);
+            if (reader == null
+                    || reader.getEventType() != XMLStreamConstants.START_ELEMENT
+                    || !reader.getLocalName().equals("RetrieveResponseMsg")) {
+                return;
+            }
+
+            try {
+                decode(decoding, exchange, reader);
+            } catch (XMLStreamException ex) {
+                throw new Fault(ex);
+            } catch (JAXBException ex) {
+                throw new Fault(ex);
+            } catch (ETSdkException ex) {
+                decoding.exception = ex;
+                throw new Fault(ex);
+            }
+
+            exchange.put(ETSoapMetrics.OBJECT_COUNT, decoding.getCount());
+        }
+
+        private <T extends ETSoapObject> void decode(Decoding<T> decoding,
+                                                     Exchange exchange,
+                                                     XMLStreamReader reader)
+            throws XMLStreamException, JAXBException, ETSdkException
+        {
+            String overallStatus = null;
+            String requestId = null;
+
+            Unmarshaller unmarshaller = null;
+
+            int event = reader.nextTag();
+            while (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("OverallStatus")) {
+                    overallStatus = reader.getElementText();
+                } else if (name.equals("RequestID")) {
+                    requestId = reader.getElementText();
+                } else if (name.equals("Results")) {
+                    if (getLocalType(reader).equals("DataExtensionObject")
+                            && decoding.type == ETDataExtensionRow.class) {
+                        @SuppressWarnings("unchecked")
+                        Decoding<ETDataExtensionRow> d =
+                                (Decoding<ETDataExtensionRow>) decoding;
+                        d.handle(decodeRow(reader));
+                    } else {
+                        if (unmarshaller == null) {
+                            unmarshaller = getContext(exchange).createUnmarshaller();
+                        }
+                        APIObject internalObject =
+                                unmarshaller.unmarshal(reader, APIObject.class).getValue();
+                        T externalObject = decoding.newObject();
+                        externalObject.fromInternal(internalObject);
+                        decoding.handle(externalObject);
+                        // the unmarshaller leaves the reader
+                        // positioned after the end tag:
+                        event = skipWhitespace(reader);
+                        continue;
+                    }
+                } else {
+                    skipElement(reader);
+                }
+                event = reader.nextTag();
+            }
+
+            logger.trace("streamed " + decoding.getCount() + " results");
+
+            //
+            // Hand the rest of the chain a response with the status
+            // only, so the regular unmarshalling still happens:
+            //
+
+            StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("<RetrieveResponseMsg xmlns=\"");
+            stringBuilder.append(PARTNER_API_NAMESPACE_URI);
+            stringBuilder.append("\">");
+            if (overallStatus != null) {
+                stringBuilder.append("<OverallStatus>");
+                stringBuilder.append(escape(overallStatus));
+                stringBuilder.append("</OverallStatus>");
+            }
+            if (requestId != null) {
+                stringBuilder.append("<RequestID>");
+                stringBuilder.append(escape(requestId));
+                stringBuilder.append("</RequestID>");
+            }
+            stringBuilder.append("</RetrieveResponseMsg>");
+
+            XMLStreamReader statusReader = StaxUtils.createXMLStreamReader(
+                    new StringReader(stringBuilder.toString()));
+            statusReader.nextTag();
+            exchange.getInMessage().setContent(XMLStreamReader.class, statusReader);
+        }
+    }
+
+    private static ETDataExtensionRow decodeRow(XMLStreamReader reader)
+        throws XMLStreamException
+    {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("CustomerKey") && !isNil(reader)) {
+                row.setDataExtensionKey(reader.getElementText());
+            } else if (name.equals("Properties")) {
+                List<String> columnNames = new ArrayList<String>();
+                List<String> columnValues = new ArrayList<String>();
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    String columnName = null;
+                    String columnValue = null;
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        String n = reader.getLocalName();
+                        if (n.equals("Name")) {
+                            columnName = reader.getElementText();
+                        } else if (n.equals("Value")) {
+                            if (isNil(reader)) {
+                                skipElement(reader);
+                            } else {
+                                columnValue = reader.getElementText();
+                            }
+                        } else {
+                            skipElement(reader);
+                        }
+                    }
+                    if (columnName != null) {
+                        columnNames.add(columnName);
+                        columnValues.add(columnValue);
+                    }
+                }
+                row.setColumns(columnNames, columnValues, false);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return row;
+    }
+
+    private static JAXBContext getContext(Exchange exchange) {
+        DataBinding dataBinding = exchange.getService().getDataBinding();
+        return ((JAXBDataBinding) dataBinding).getContext();
+    }
+
+    private static String getLocalType(XMLStreamReader reader) {
+        String type = reader.getAttributeValue(XSI_NAMESPACE_URI, "type");
+        if (type == null) {
+            return "";
+        }
+        int i = type.indexOf(':');
+        if (i != -1) {
+            return type.substring(i + 1);
+        }
+        return type;
+    }
+
+    private static boolean isNil(XMLStreamReader reader) {
+        return "true".equals(reader.getAttributeValue(XSI_NAMESPACE_URI, "nil"));
+    }
+
+    //
+    // Skips the current element (and its children), leaving
+    // the reader positioned on its end tag:
+    //
+
+    private static void skipElement(XMLStreamReader reader)
+        throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static int skipWhitespace(XMLStreamReader reader)
+        throws XMLStreamException
+    {
+        int event = reader.getEventType();
+        while (event != XMLStreamConstants.START_ELEMENT
+                && event != XMLStreamConstants.END_ELEMENT) {
+            event = reader.next();
+        }
+        return event;
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,189 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETBatchDispatcherTest {
+    private static ETDataExtension newDataExtension() {
+        ETDataExtension dataExtension = new ETDataExtension();
+        dataExtension.setKey("test");
+        return dataExtension;
+    }
+
+    private static class Collector implements ETIngestListener {
+        private List<ETResult<ETDataExtensionRow>> failed =
+                new ArrayList<ETResult<ETDataExtensionRow>>();
+
+        public synchronized void rowFailed(ETResult<ETDataExtensionRow> result) {
+            failed.add(result);
+        }
+
+        public void progress(ETIngestProgress progress) {
+        }
+    }
+
+    //
+    // Sends rows named by their "id" column, completing each
+    // batch with the next of the futures, and records the
+    // result of each row:
+    //
+
+    private static class TestSender implements ETBatchDispatcher.Sender<String> {
+        private List<CompletableFuture<ETResponse<ETDataExtensionRow>>> futures =
+                new ArrayList<CompletableFuture<ETResponse<ETDataExtensionRow>>>();
+        private List<String> completed = new ArrayList<String>();
+
+        public CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<String> batch) {
+            CompletableFuture<ETResponse<ETDataExtensionRow>> future =
+                    new CompletableFuture<ETResponse<ETDataExtensionRow>>();
+            futures.add(future);
+            return future;
+        }
+
+        public ETDataExtensionRow getRow(String id) {
+            ETDataExtensionRow row = new ETDataExtensionRow();
+            row.setColumn("id", id);
+            return row;
+        }
+
+        public synchronized void completed(String id, ETResult<ETDataExtensionRow> result) {
+            completed.add(id + ":" + result.getStatus());
+        }
+    }
+
+    private static ETResult<ETDataExtensionRow> newResult(ETResult.Status status) {
+        ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+        result.setStatus(status);
+        result.setResponseMessage(status == ETResult.Status.OK ? "OK" : "failed");
+        return result;
+    }
+
+    @Test
+    public void testResultPerRow()
+        throws ETSdkException
+    {
+        Collector listener = new Collector();
+        ETBatchDispatcher dispatcher =
+                new ETBatchDispatcher(newDataExtension(), listener, 3, 1);
+        TestSender sender = new TestSender();
+
+        dispatcher.send(Arrays.asList("a", "b", "c"), sender);
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.addResult(newResult(ETResult.Status.OK));
+        response.addResult(newResult(ETResult.Status.ERROR));
+        response.addResult(newResult(ETResult.Status.OK));
+        sender.futures.get(0).complete(response);
+
+        assertEquals(Arrays.asList("a:OK", "b:ERROR", "c:OK"), sender.completed);
+        assertEquals(1, dispatcher.getRowsFailed());
+        assertEquals(1, dispatcher.getBatchesSent());
+        assertEquals(1, listener.failed.size());
+        assertEquals("b", listener.failed.get(0).getObject().getColumn("id"));
+        assertEquals("failed", listener.failed.get(0).getResponseMessage());
+    }
+
+    @Test
+    public void testOverallStatusWithoutResultPerRow()
+        throws ETSdkException
+    {
+        Collector listener = new Collector();
+        ETBatchDispatcher dispatcher =
+                new ETBatchDispatcher(newDataExtension(), listener, 2, 1);
+        TestSender sender = new TestSender();
+
+        dispatcher.send(Arrays.asList("a", "b"), sender);
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setStatus(ETResult.Status.ERROR);
+        response.setResponseMessage("too busy");
+        sender.futures.get(0).complete(response);
+
+        assertEquals(Arrays.asList("a:ERROR", "b:ERROR"), sender.completed);
+        assertEquals(2, listener.failed.size());
+        assertEquals("too busy", listener.failed.get(1).getResponseMessage());
+    }
+
+    @Test
+    public void testExceptionFailsBatch()
+        throws ETSdkException
+    {
+        ETBatchDispatcher dispatcher = new ETBatchDispatcher(newDataExtension(),
+                new ETIngestListener() {
+                    public void rowFailed(ETResult<ETDataExtensionRow> result) {
+                        // must not stop the batch being handled
+                        throw new IllegalStateException("listener failed");
+                    }
+
+                    public void progress(ETIngestProgress progress) {
+                    }
+                }, 2, 1);
+        TestSender sender = new TestSender();
+
+        dispatcher.send(Arrays.asList("a", "b"), sender);
+        sender.futures.get(0).completeExceptionally(new ETSdkException("connection reset"));
+
+        assertEquals(Arrays.asList("a:ERROR", "b:ERROR"), sender.completed);
+        assertEquals(2, dispatcher.getRowsFailed());
+    }
+
+    @Test
+    public void testAwaitBatches()
+        throws ETSdkException, InterruptedException
+    {
+        ETBatchDispatcher dispatcher =
+                new ETBatchDispatcher(newDataExtension(), null, 1, 2);
+        TestSender sender = new TestSender();
+
+        dispatcher.send(Arrays.asList("a"), sender);
+        dispatcher.send(Arrays.asList("b"), sender);
+        assertFalse(dispatcher.awaitBatches(10));
+
+        sender.futures.get(1).complete(new ETResponse<ETDataExtensionRow>());
+        assertFalse(dispatcher.awaitBatches(10));
+
+        sender.futures.get(0).complete(new ETResponse<ETDataExtensionRow>());
+        assertTrue(dispatcher.awaitBatches(10));
+        // (and the permits are given back)
+        assertTrue(dispatcher.awaitBatches(10));
+        assertEquals(Arrays.asList("b:OK", "a:OK"), sender.completed);
+    }
+}
@@ -0,0 +1,167 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks kept out of the unit tests, as their results depend
+ * on the machine (and so can't be asserted on). After
+ * <code>mvn test-compile</code>, run with the test classpath:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     com.exacttarget.fuelsdk.ETBenchmark [startup] [footprint]
+ * </pre>
+ *
+ * (<code>mvn dependency:build-classpath</code> prints the
+ * dependencies). With no arguments every benchmark is run.
+ */
+
+public class ETBenchmark {
+    public static void main(String[] args)
+        throws Exception
+    {
+        List<String> benchmarks = Arrays.asList(args);
+        if (benchmarks.isEmpty()) {
+            benchmarks = Arrays.asList("startup", "footprint");
+        }
+        for (String benchmark : benchmarks) {
+            if (benchmark.equals("startup")) {
+                startup(20);
+            } else if (benchmark.equals("footprint")) {
+                footprint(100000);
+            } else {
+                System.err.println("unknown benchmark: " + benchmark);
+                System.exit(1);
+            }
+        }
+    }
+
+    //
+    // Compares creating connections on the shared SOAP runtime
+    // with building the runtime (WSDL, service model and JAXB
+    // context) for each connection, as was done before:
+    //
+
+    static void startup(int n)
+        throws ETSdkException
+    {
+        String endpoint = "https://webservice.exacttarget.com/Service.asmx";
+
+        // (the first connection builds the shared runtime)
+        long startTime = System.nanoTime();
+        new ETSoapConnection(endpoint, "token");
+        long firstTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            new ETSoapConnection(endpoint, "token");
+        }
+        long sharedTime = (System.nanoTime() - startTime) / n;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            new ETSoapRuntime().createSoap();
+        }
+        long unsharedTime = (System.nanoTime() - startTime) / n;
+
+        System.out.println("startup: first connection " + firstTime / 1000000.0
+                + " ms, per connection " + sharedTime / 1000000.0
+                + " ms with the shared runtime, " + unsharedTime / 1000000.0
+                + " ms building a runtime per connection");
+    }
+
+    //
+    // Compares the heap used by rows holding their values in a
+    // map with rows sharing a schema:
+    //
+
+    static void footprint(int count) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            names.add("Column" + i);
+        }
+        ETDataExtensionSchema schema = new ETDataExtensionSchema(names);
+
+        long mapBytes = measure(count, null, names);
+        long schemaBytes = measure(count, schema, names);
+
+        System.out.println("footprint: ETDataExtensionRow (10 columns) "
+                + mapBytes / count + " bytes/row with a map, "
+                + schemaBytes / count + " bytes/row with a schema");
+    }
+
+    private static long measure(int count,
+                                ETDataExtensionSchema schema,
+                                List<String> names)
+    {
+        // the values are shared, so only the rows themselves count:
+        String[] values = new String[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "value" + i;
+        }
+        long before = usedMemory();
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>(count);
+        for (int i = 0; i < count; i++) {
+            ETDataExtensionRow row = null;
+            if (schema != null) {
+                row = new ETDataExtensionRow(schema);
+            } else {
+                row = new ETDataExtensionRow();
+            }
+            for (int j = 0; j < values.length; j++) {
+                row.setColumn(names.get(j), values[j], false);
+            }
+            rows.add(row);
+        }
+        long after = usedMemory();
+        if (rows.size() != count) {
+            // (keeps the rows reachable until measured)
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,215 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETDataExtensionMirrorTest {
+    //
+    // Loads the rows it's given, or fails if told to,
+    // recording the filter it was called with:
+    //
+
+    private static class TestLoader implements ETDataExtensionMirror.RowLoader {
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        String error = null;
+        ETFilter filter = null;
+
+        public ETResponse<ETDataExtensionRow> load(ETFilter filter,
+                                                   ETObjectHandler<ETDataExtensionRow> handler)
+            throws ETSdkException
+        {
+            this.filter = filter;
+            ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+            if (error != null) {
+                response.setStatus(ETResult.Status.ERROR);
+                response.setResponseMessage(error);
+                return response;
+            }
+            response.setStatus(ETResult.Status.OK);
+            for (ETDataExtensionRow row : rows) {
+                handler.handleObject(row);
+            }
+            return response;
+        }
+    }
+
+    private static ETDataExtension newDataExtension() {
+        ETDataExtension dataExtension = new ETDataExtension();
+        dataExtension.setKey("test");
+        return dataExtension;
+    }
+
+    private static ETDataExtensionRow newRow(String... columns) {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        for (int i = 0; i < columns.length; i += 2) {
+            row.setColumn(columns[i], columns[i + 1]);
+        }
+        return row;
+    }
+
+    @Test
+    public void testGetBySingleColumnKey()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        loader.rows.add(newRow("id", "1", "name", "one"));
+        loader.rows.add(newRow("id", "2", "name", "two"));
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("id"), new ETFilter(), loader);
+        assertEquals(0, mirror.getLastRefreshTime());
+        assertNull(mirror.get("1"));
+
+        mirror.refresh();
+        assertTrue(mirror.getLastRefreshTime() > 0);
+        assertEquals(2, mirror.size());
+        assertEquals("two", mirror.get("2").getColumn("name"));
+        assertNull(mirror.get("3"));
+    }
+
+    @Test
+    public void testGetByCompositeKey()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        loader.rows.add(newRow("store", "a", "sku", "1", "price", "10"));
+        loader.rows.add(newRow("store", "a", "sku", "2", "price", "20"));
+        loader.rows.add(newRow("store", "b", "sku", "1", "price", "30"));
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("store", "sku"), new ETFilter(), loader);
+        mirror.refresh();
+
+        assertEquals("20", mirror.get("a", "2").getColumn("price"));
+        assertEquals("30", mirror.get("b", "1").getColumn("price"));
+        assertNull(mirror.get("b", "2"));
+        try {
+            mirror.get("a");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRefreshSwapsSnapshot()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        loader.rows.add(newRow("id", "1"));
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("id"), new ETFilter(), loader);
+        mirror.refresh();
+        ETDataExtensionRowSet before = mirror.getRowSet();
+
+        loader.rows = Arrays.asList(newRow("id", "2"), newRow("id", "3"));
+        mirror.refresh();
+
+        // readers holding the old snapshot still see it whole:
+        assertEquals(1, before.size());
+        assertEquals(2, mirror.size());
+        assertNull(mirror.get("1"));
+        assertNotNull(mirror.get("3"));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsSnapshot()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        loader.rows.add(newRow("id", "1"));
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("id"), new ETFilter(), loader);
+        mirror.refresh();
+        long refreshTime = mirror.getLastRefreshTime();
+
+        loader.error = "Internal Server Error";
+        try {
+            mirror.refresh();
+            fail("expected ETSdkException");
+        } catch (ETSdkException ex) {
+            assertTrue(ex.getMessage().contains("Internal Server Error"));
+        }
+        assertEquals(1, mirror.size());
+        assertNotNull(mirror.get("1"));
+        assertEquals(refreshTime, mirror.getLastRefreshTime());
+    }
+
+    @Test
+    public void testAddIndexRebuildsCurrentSnapshot()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        loader.rows.add(newRow("id", "1", "name", "one"));
+        loader.rows.add(newRow("id", "2", "name", "two"));
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("id"), new ETFilter(), loader);
+        mirror.refresh();
+        ETDataExtensionRowSet before = mirror.getRowSet();
+        assertNull(before.getIndexType("name"));
+
+        mirror.addIndex("Name", ETDataExtensionRowSet.IndexType.HASH);
+        assertNotSame(before, mirror.getRowSet());
+        assertEquals(ETDataExtensionRowSet.IndexType.HASH,
+                     mirror.getRowSet().getIndexType("name"));
+        assertEquals(before.getRows(), mirror.getRows());
+        assertEquals("2", mirror.select("name = 'two'").get(0).getColumn("id"));
+
+        // and later snapshots keep it:
+        mirror.refresh();
+        assertEquals(ETDataExtensionRowSet.IndexType.HASH,
+                     mirror.getRowSet().getIndexType("name"));
+    }
+
+    @Test
+    public void testCallersFilterIsLeftAsItWas()
+        throws ETSdkException
+    {
+        TestLoader loader = new TestLoader();
+        ETFilter filter = new ETFilter();
+        filter.addProperty("name");
+        ETDataExtensionMirror mirror = new ETDataExtensionMirror(newDataExtension(),
+                Arrays.asList("id"), filter, loader);
+        mirror.refresh();
+
+        assertEquals(Arrays.asList("name"), filter.getProperties());
+        assertEquals(Arrays.asList("name", "id"), loader.filter.getProperties());
+    }
+}
@@ -0,0 +1,138 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+import com.exacttarget.fuelsdk.ETDataExtensionRowSet.IndexType;
+
+import static org.junit.Assert.*;
+
+public class ETDataExtensionRowSetTest {
+    private static final String[] CATEGORIES = { "books", "games", "music" };
+
+    private static List<ETDataExtensionRow> rows = null;
+    private static ETDataExtensionRowSet indexed = null;
+    private static ETDataExtensionRowSet unindexed = null;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        ETDataExtensionSchema schema = new ETDataExtensionSchema(
+                Arrays.asList("Sku", "Category", "Qty", "Price", "Added"),
+                Arrays.asList(Type.TEXT, Type.TEXT, Type.NUMBER, Type.DECIMAL, Type.DATE));
+        rows = new ArrayList<ETDataExtensionRow>();
+        for (int i = 0; i < 100; i++) {
+            ETDataExtensionRow row = new ETDataExtensionRow(schema);
+            row.setColumn("Sku", "sku" + i);
+            row.setColumn("Category", i % 10 == 9 ? null : CATEGORIES[i % 3]);
+            row.setColumn("Qty", Integer.toString(i % 20));
+            row.setColumn("Price", (i % 7) + ".50");
+            row.setColumn("Added", "1/" + (i % 28 + 1) + "/2014 3:04:05 PM");
+            rows.add(row);
+        }
+        Map<String, IndexType> indexes = new HashMap<String, IndexType>();
+        indexes.put("Category", IndexType.HASH);
+        indexes.put("Qty", IndexType.SORTED);
+        indexes.put("Price", IndexType.SORTED);
+        indexes.put("Added", IndexType.SORTED);
+        indexed = new ETDataExtensionRowSet(rows, indexes);
+        unindexed = new ETDataExtensionRowSet(rows);
+    }
+
+    private static void assertSelect(int expected, String filter)
+        throws ETSdkException
+    {
+        List<ETDataExtensionRow> fromIndexes = indexed.select(filter);
+        List<ETDataExtensionRow> fromScan = unindexed.select(filter);
+        assertEquals(filter, expected, fromScan.size());
+        // same rows, in the same (original) order:
+        assertEquals(filter, fromScan, fromIndexes);
+    }
+
+    @Test
+    public void testEquality()
+        throws ETSdkException
+    {
+        assertEquals(IndexType.HASH, indexed.getIndexType("category"));
+        assertNull(indexed.getIndexType("Sku"));
+        assertSelect(30, "Category = 'books'");
+        assertSelect(0, "Category = 'BOOKS'");
+        assertSelect(60, "Category IN ('books', 'music', 'none')");
+        assertSelect(5, "Qty = 3");
+        assertSelect(5, "Qty = '03'");
+        assertSelect(15, "Price = 1.5");
+        assertSelect(1, "Sku = 'sku42'");
+    }
+
+    @Test
+    public void testRanges()
+        throws ETSdkException
+    {
+        assertSelect(15, "Qty < 3");
+        assertSelect(20, "Qty <= 3");
+        assertSelect(80, "Qty > 3");
+        assertSelect(85, "Qty >= 3");
+        assertSelect(25, "Qty BETWEEN 5 AND 9");
+        assertSelect(42, "Price > 3.5");
+        assertSelect(24, "Added BETWEEN '1/5/2014' AND '1/11/2014'");
+        assertSelect(0, "Qty > 'lots'");
+    }
+
+    @Test
+    public void testCombined()
+        throws ETSdkException
+    {
+        assertSelect(9, "Category = 'books' AND Qty < 5");
+        assertSelect(4, "Category = 'books' AND Qty < 5 AND Price >= 2");
+        assertSelect(2, "Category = 'books' AND Qty < 5 AND Sku LIKE 'sku%0'");
+        assertSelect(46, "Category = 'books' OR Qty < 5");
+        assertSelect(38, "Category = 'books' OR Sku LIKE 'sku1%'");
+        assertSelect(10, "Category IS NULL");
+        // rows with no category don't equal 'books' either:
+        ETExpression not = new ETExpression();
+        not.setOperator(ETExpression.Operator.NOT);
+        not.addSubexpression(ETExpression.parse("Category = 'books'"));
+        assertEquals(70, indexed.select(not).size());
+        assertEquals(100, indexed.select(new ETExpression()).size());
+    }
+}
@@ -0,0 +1,245 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+import com.exacttarget.fuelsdk.internal.APIProperty;
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.ObjectExtension;
+
+public class ETDataExtensionRowTest {
+    private static final ETDataExtensionSchema schema =
+            new ETDataExtensionSchema(Arrays.asList("CustomerID", "FullName", "Email"));
+
+    @Test
+    public void testSchema() {
+        assertEquals(3, schema.size());
+        assertEquals(0, schema.getOrdinal("CustomerID"));
+        assertEquals(0, schema.getOrdinal("customerid"));
+        assertEquals(2, schema.getOrdinal("EMAIL"));
+        assertEquals(-1, schema.getOrdinal("bogus"));
+        assertEquals("FullName", schema.getColumnName(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSchemaDuplicateColumn() {
+        new ETDataExtensionSchema(Arrays.asList("a", "A"));
+    }
+
+    @Test
+    public void testGetSetColumn() {
+        ETDataExtensionRow row = new ETDataExtensionRow(schema);
+        row.setColumn("CustomerID", "1");
+        row.setColumn("fullname", "Test");
+        row.setColumn("Extra", "x");
+        row.setColumn("Email", null);
+        assertEquals("1", row.getColumn("customerId"));
+        assertEquals("Test", row.getColumn("FullName"));
+        assertEquals("x", row.getColumn("extra"));
+        assertNull(row.getColumn("Email"));
+        assertNull(row.getColumn("bogus"));
+        assertEquals(Arrays.asList("customerid", "fullname", "email", "extra"),
+                     new ArrayList<String>(row.getColumnNames()));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testColumnsView() {
+        ETDataExtensionRow row = new ETDataExtensionRow(schema);
+        row.setColumn("CustomerID", "1");
+        Map<String, String> columns = row.getColumns();
+        assertEquals(1, columns.size());
+        assertEquals("1", columns.get("customerid"));
+        assertTrue(columns.containsKey("CustomerID"));
+        assertFalse(columns.containsKey("FullName"));
+        columns.put("FullName", "Test");
+        assertEquals("Test", row.getColumn("fullname"));
+        assertEquals(2, columns.size());
+    }
+
+    @Test
+    public void testModified() {
+        ETDataExtensionRow row = new ETDataExtensionRow(schema);
+        assertNull(row.getModified("FullName"));
+        row.setColumn("FullName", "Test");
+        row.setColumn("CustomerID", "1", false);
+        row.setColumn("Extra", "x");
+        assertTrue(row.getModified("fullname"));
+        assertNull(row.getModified("CustomerID"));
+        List<String> modified = row.getAllModified();
+        assertEquals(2, modified.size());
+        assertTrue(modified.contains("FullName"));
+        assertTrue(modified.contains("Extra"));
+    }
+
+    @Test
+    public void testToInternal()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = new ETDataExtensionRow(schema);
+        row.setDataExtensionKey("key");
+        row.setColumn("CustomerID", "1");
+        row.setColumn("FullName", "Test");
+        DataExtensionObject internalRow = (DataExtensionObject) row.toInternal();
+        assertEquals("key", internalRow.getCustomerKey());
+        List<APIProperty> properties = internalRow.getProperties().getProperty();
+        assertEquals(2, properties.size());
+        assertEquals("customerid", properties.get(0).getName());
+        assertEquals("1", properties.get(0).getValue());
+    }
+
+    @Test
+    public void testFromInternalSharesSchema()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row1 = new ETDataExtensionRow();
+        row1.fromInternal(newInternalRow("1", "One"));
+        ETDataExtensionRow row2 = new ETDataExtensionRow();
+        row2.fromInternal(newInternalRow("2", null));
+        assertNotNull(row1.getSchema());
+        assertSame(row1.getSchema(), row2.getSchema());
+        assertEquals("1", row1.getColumn("customerid"));
+        assertEquals("One", row1.getColumn("FullName"));
+        assertEquals("2", row2.getColumn("CustomerID"));
+        assertNull(row2.getColumn("FullName"));
+        assertTrue(row2.getColumnNames().contains("fullname"));
+    }
+
+    @Test
+    public void testTypedAccessors() {
+        ETDataExtensionSchema typedSchema = new ETDataExtensionSchema(
+                Arrays.asList("Count", "Price", "Active", "Joined", "Name"),
+                Arrays.asList(Type.NUMBER, Type.DECIMAL, Type.BOOLEAN, Type.DATE, Type.TEXT));
+        ETDataExtensionRow row = new ETDataExtensionRow(typedSchema);
+        row.setColumns(Arrays.asList("Count", "Price", "Active", "Joined", "Name"),
+                       Arrays.asList("42", "9.99", "True", "1/15/2014 3:04:05 PM", "17"),
+                       false);
+        assertEquals(42L, row.getLong("count"));
+        assertEquals(42, row.getInt("Count"));
+        assertEquals(new BigDecimal("9.99"), row.getDecimal("Price"));
+        assertEquals(9.99, row.getDouble("Price"), 0.0);
+        assertTrue(row.getBoolean("Active"));
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(row.getDate("Joined"));
+        assertEquals(2014, calendar.get(Calendar.YEAR));
+        assertEquals(15, calendar.get(Calendar.DAY_OF_MONTH));
+        assertEquals(15, calendar.get(Calendar.HOUR_OF_DAY));
+        // untyped columns are parsed on access:
+        assertEquals(17L, row.getLong("Name"));
+    }
+
+    @Test
+    public void testTypedSetters() {
+        ETDataExtensionSchema typedSchema = new ETDataExtensionSchema(
+                Arrays.asList("Count", "Active", "Joined"),
+                Arrays.asList(Type.NUMBER, Type.BOOLEAN, Type.DATE));
+        ETDataExtensionRow row = new ETDataExtensionRow(typedSchema);
+        row.setLong("Count", 7);
+        row.setBoolean("Active", false);
+        Date date = new Date(1389798245123L);
+        row.setDate("Joined", date);
+        assertEquals("7", row.getColumn("Count"));
+        assertEquals(7L, row.getLong("Count"));
+        assertEquals("false", row.getColumn("Active"));
+        assertFalse(row.getBoolean("Active"));
+        assertEquals(date, row.getDate("Joined"));
+        assertTrue(row.getModified("Count"));
+        // setting the string value reparses it:
+        row.setColumn("Count", "8");
+        assertEquals(8L, row.getLong("Count"));
+        row.setColumn("Count", "");
+        assertTrue(row.isNull("Count"));
+        assertEquals(0L, row.getLong("Count"));
+    }
+
+    @Test
+    public void testUntypedAccessors() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setColumn("Count", "12");
+        row.setColumn("Joined", "2014-01-15T15:04:05");
+        assertEquals(12, row.getInt("Count"));
+        assertNotNull(row.getDate("Joined"));
+        row.setColumn("Day", "1/15/2014");
+        row.setColumn("Midnight", "1/15/2014 12:00:00 AM");
+        assertEquals(row.getDate("Day"), row.getDate("Midnight"));
+        assertNull(row.getDecimal("bogus"));
+        assertFalse(row.getBoolean("bogus"));
+        assertTrue(row.isNull("bogus"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntOutOfRange() {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setColumn("Count", "9999999999");
+        row.getInt("Count");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testTypedDecimalNotLong() {
+        ETDataExtensionSchema typedSchema = new ETDataExtensionSchema(
+                Arrays.asList("Price"),
+                Arrays.asList(Type.DECIMAL));
+        ETDataExtensionRow row = new ETDataExtensionRow(typedSchema);
+        row.setColumns(Arrays.asList("Price"), Arrays.asList("1.5"), false);
+        row.getLong("Price");
+    }
+
+    private static DataExtensionObject newInternalRow(String customerId, String fullName) {
+        DataExtensionObject internalRow = new DataExtensionObject();
+        ObjectExtension.Properties properties = new ObjectExtension.Properties();
+        APIProperty property = new APIProperty();
+        property.setName("CustomerID");
+        property.setValue(customerId);
+        properties.getProperty().add(property);
+        property = new APIProperty();
+        property.setName("FullName");
+        property.setValue(fullName);
+        properties.getProperty().add(property);
+        internalRow.setProperties(properties);
+        return internalRow;
+    }
+}
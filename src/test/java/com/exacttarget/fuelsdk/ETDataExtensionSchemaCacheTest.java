@@ -0,0 +1,113 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+
+import static org.junit.Assert.*;
+
+public class ETDataExtensionSchemaCacheTest {
+    private static List<ETDataExtensionColumn> columns() {
+        List<ETDataExtensionColumn> columns = new ArrayList<ETDataExtensionColumn>();
+        ETDataExtensionColumn id = new ETDataExtensionColumn();
+        id.setName("CustomerID");
+        id.setType(Type.NUMBER);
+        id.setIsPrimaryKey(true);
+        columns.add(id);
+        ETDataExtensionColumn name = new ETDataExtensionColumn();
+        name.setName("FullName");
+        name.setType(Type.TEXT);
+        name.setIsPrimaryKey(false);
+        columns.add(name);
+        return columns;
+    }
+
+    @Test
+    public void testEntry() {
+        ETDataExtensionSchemaCache.Entry entry =
+                new ETDataExtensionSchemaCache.Entry("foo", columns(), 0);
+        assertEquals("foo", entry.getKey());
+        assertEquals(2, entry.getColumns().size());
+        assertEquals("fullname", entry.getColumn("FullName").getName());
+        assertEquals("fullname", entry.getColumn("fullname").getName());
+        assertNull(entry.getColumn("Email"));
+        assertEquals(Arrays.asList("customerid"), entry.getPrimaryKeyColumnNames());
+        assertEquals(Type.NUMBER, entry.getSchema().getType(0));
+    }
+
+    @Test
+    public void testExpiry() {
+        ETDataExtensionSchemaCache cache = new ETDataExtensionSchemaCache(null);
+        cache.setTtl(1000);
+        long now = System.currentTimeMillis();
+        cache.put(new ETDataExtensionSchemaCache.Entry("fresh", columns(), now));
+        cache.put(new ETDataExtensionSchemaCache.Entry("stale", columns(), now - 2000));
+        assertNotNull(cache.getIfPresent("fresh"));
+        assertNull(cache.getIfPresent("stale"));
+        assertEquals(1, cache.size());
+
+        cache.setTtl(0); // never expire
+        cache.put(new ETDataExtensionSchemaCache.Entry("old", columns(), 0));
+        assertNotNull(cache.getIfPresent("old"));
+
+        cache.invalidate("fresh");
+        assertNull(cache.getIfPresent("fresh"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeysAreCaseInsensitive() {
+        ETDataExtensionSchemaCache cache = new ETDataExtensionSchemaCache(null);
+        cache.put(new ETDataExtensionSchemaCache.Entry("Foo", columns(),
+                                                       System.currentTimeMillis()));
+        assertNotNull(cache.getIfPresent("foo"));
+        assertNotNull(cache.getIfPresent("FOO"));
+        assertEquals("Foo", cache.getIfPresent("foo").getKey());
+
+        cache.put(new ETDataExtensionSchemaCache.Entry("FOO", columns(),
+                                                       System.currentTimeMillis()));
+        assertEquals(1, cache.size());
+
+        cache.invalidate("fOO");
+        assertNull(cache.getIfPresent("Foo"));
+    }
+}
@@ -0,0 +1,230 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.exacttarget.fuelsdk.ETDataExtensionColumn.Type;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETDataExtensionSelectTest {
+    private static ETResponse<ETDataExtensionRow> newPage(int page) {
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setStatus(ETResult.Status.OK);
+        for (int i = 0; i < 2; i++) {
+            ETDataExtensionRow row = new ETDataExtensionRow();
+            row.setColumn("page", Integer.toString(page));
+            ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+            result.setObject(row);
+            response.addResult(result);
+        }
+        return response;
+    }
+
+    private static class PageCollector implements ETObjectHandler<ETDataExtensionRow> {
+        private List<String> pages = new ArrayList<String>();
+
+        public void handleObject(ETDataExtensionRow row) {
+            pages.add(row.getColumn("page"));
+        }
+    }
+
+    @Test
+    public void testOrderedDeliversInPageOrder()
+        throws ETSdkException
+    {
+        //
+        // Later pages finish first:
+        //
+
+        PageCollector collector = new PageCollector();
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        ETDataExtension.selectPages("test", 6, 2, 5, true,
+                                    new ETDataExtension.PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize) {
+                try {
+                    Thread.sleep((6 - page) * 20);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return newPage(page);
+            }
+        }, response, collector);
+
+        assertEquals(Arrays.asList("2", "2", "3", "3", "4", "4",
+                                   "5", "5", "6", "6"),
+                     collector.pages);
+    }
+
+    @Test
+    public void testUnorderedDeliversPagesAsTheyArrive()
+        throws ETSdkException
+    {
+        //
+        // Page 2 doesn't finish until page 3 has been handled:
+        //
+
+        final CountDownLatch handled = new CountDownLatch(1);
+        final List<String> pages = new ArrayList<String>();
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        ETDataExtension.selectPages("test", 3, 2, 2, false,
+                                    new ETDataExtension.PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize) {
+                if (page == 2) {
+                    try {
+                        handled.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return newPage(page);
+            }
+        }, response, new ETObjectHandler<ETDataExtensionRow>() {
+            public void handleObject(ETDataExtensionRow row) {
+                pages.add(row.getColumn("page"));
+                if (row.getColumn("page").equals("3")) {
+                    handled.countDown();
+                }
+            }
+        });
+
+        assertEquals(Arrays.asList("3", "3", "2", "2"), pages);
+    }
+
+    @Test
+    public void testErrorPageMarksResponse()
+        throws ETSdkException
+    {
+        PageCollector collector = new PageCollector();
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        response.setStatus(ETResult.Status.OK);
+        ETDataExtension.selectPages("test", 4, 2, 1, true,
+                                    new ETDataExtension.PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize) {
+                ETResponse<ETDataExtensionRow> response = newPage(page);
+                if (page == 3) {
+                    response.setStatus(ETResult.Status.ERROR);
+                    response.setResponseCode("500");
+                    response.setResponseMessage("Internal Server Error");
+                }
+                return response;
+            }
+        }, response, collector);
+
+        assertEquals(ETResult.Status.ERROR, response.getStatus());
+        assertEquals("500", response.getResponseCode());
+        assertEquals("Internal Server Error", response.getResponseMessage());
+        // page 4 is never retrieved
+        assertEquals(Arrays.asList("2", "2"), collector.pages);
+    }
+
+    @Test
+    public void testExceptionIsThrown() {
+        PageCollector collector = new PageCollector();
+        ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+        try {
+            ETDataExtension.selectPages("test", 3, 2, 2, false,
+                                        new ETDataExtension.PageSelector() {
+                public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize)
+                    throws ETSdkException
+                {
+                    if (page == 3) {
+                        throw new ETSdkException("connection reset");
+                    }
+                    return newPage(page);
+                }
+            }, response, collector);
+            fail("expected ETSdkException");
+        } catch (ETSdkException ex) {
+            assertEquals("connection reset", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testEveryPageGetsRetrievedSchema()
+        throws ETSdkException
+    {
+        //
+        // Rows are converted as when retrieved, so they pick
+        // up the column types of the schema set for the page:
+        //
+
+        ETDataExtensionSchema schema = new ETDataExtensionSchema(
+                Arrays.asList("id", "Price"),
+                Arrays.asList(Type.TEXT, Type.DECIMAL));
+        final List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        ETResponse<ETDataExtensionRow> response =
+                ETDataExtension.selectAll("test", 2, 2, true,
+                                          ETDataExtension.withRetrievedSchema(schema,
+                                                  new ETDataExtension.PageSelector() {
+            public ETResponse<ETDataExtensionRow> select(int page, Integer pageSize) {
+                ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+                response.setStatus(ETResult.Status.OK);
+                response.setPage(page);
+                response.setPageSize(pageSize);
+                response.setTotalCount(6);
+                response.setMoreResults(page < 3);
+                for (int i = 0; i < pageSize; i++) {
+                    ETDataExtensionRow row = new ETDataExtensionRow();
+                    row.setColumns(Arrays.asList("id", "Price"),
+                                   Arrays.asList(page + "-" + i, "1.5"),
+                                   false);
+                    ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                    result.setObject(row);
+                    response.addResult(result);
+                }
+                return response;
+            }
+        }), new ETObjectHandler<ETDataExtensionRow>() {
+            public void handleObject(ETDataExtensionRow row) {
+                rows.add(row);
+            }
+        });
+
+        assertEquals(ETResult.Status.OK, response.getStatus());
+        assertEquals(6, rows.size());
+        assertEquals("1-0", rows.get(0).getColumn("id"));
+        for (ETDataExtensionRow row : rows) {
+            assertEquals(Type.DECIMAL, row.getSchema().getType(1));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETDataExtensionWriteBufferTest {
+    //
+    // A batch the buffer has sent, completed by the test:
+    //
+
+    private static class Sent {
+        List<ETDataExtensionRow> rows = null;
+        boolean inserting = false;
+        CompletableFuture<ETResponse<ETDataExtensionRow>> future =
+                new CompletableFuture<ETResponse<ETDataExtensionRow>>();
+
+        void succeed() {
+            ETResponse<ETDataExtensionRow> response = new ETResponse<ETDataExtensionRow>();
+            response.setStatus(ETResult.Status.OK);
+            for (int i = 0; i < rows.size(); i++) {
+                ETResult<ETDataExtensionRow> result = new ETResult<ETDataExtensionRow>();
+                result.setStatus(ETResult.Status.OK);
+                response.addResult(result);
+            }
+            future.complete(response);
+        }
+    }
+
+    private final BlockingQueue<Sent> sent = new LinkedBlockingQueue<Sent>();
+
+    private ETDataExtensionWriteBuffer newBuffer(int maxRows) {
+        ETDataExtension dataExtension = new ETDataExtension();
+        dataExtension.setKey("test");
+        ETDataExtensionWriteBuffer buffer = new ETDataExtensionWriteBuffer(dataExtension,
+                Arrays.asList("id"),
+                new ETBatchDispatcher(dataExtension, null, maxRows, 4)) {
+            CompletableFuture<ETResponse<ETDataExtensionRow>> send(List<ETDataExtensionRow> rows,
+                                                                  boolean inserting)
+            {
+                Sent batch = new Sent();
+                batch.rows = rows;
+                batch.inserting = inserting;
+                sent.add(batch);
+                return batch.future;
+            }
+        };
+        // (only flushed explicitly or when full)
+        buffer.setFlushInterval(60000);
+        return buffer;
+    }
+
+    private static ETDataExtensionRow newRow(String id, String column, String value) {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setColumn("id", id);
+        row.setColumn(column, value);
+        return row;
+    }
+
+    private Sent nextSent()
+        throws InterruptedException
+    {
+        Sent batch = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull("expected a batch to be sent", batch);
+        return batch;
+    }
+
+    @Test
+    public void testMergesWritesToTheSameRow()
+        throws Exception
+    {
+        ETDataExtensionWriteBuffer buffer = newBuffer(100);
+        CompletableFuture<ETResult<ETDataExtensionRow>> future1 =
+                buffer.update(newRow("1", "a", "x"));
+        CompletableFuture<ETResult<ETDataExtensionRow>> future2 =
+                buffer.update(newRow("1", "b", "y"));
+        buffer.update(newRow("2", "a", "z"));
+        assertSame(future1, future2);
+        assertEquals(2, buffer.getBufferedRowCount());
+
+        buffer.flush();
+        assertEquals(0, buffer.getBufferedRowCount());
+        Sent batch = nextSent();
+        assertFalse(batch.inserting);
+        assertEquals(2, batch.rows.size());
+        assertEquals("x", batch.rows.get(0).getColumn("a"));
+        assertEquals("y", batch.rows.get(0).getColumn("b"));
+        assertEquals("z", batch.rows.get(1).getColumn("a"));
+
+        batch.succeed();
+        assertEquals(ETResult.Status.OK, future1.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("x", future1.get().getObject().getColumn("a"));
+        buffer.close();
+    }
+
+    @Test
+    public void testFlushesWhenFull()
+        throws Exception
+    {
+        ETDataExtensionWriteBuffer buffer = newBuffer(3);
+        buffer.update(newRow("1", "a", "x"));
+        buffer.update(newRow("2", "a", "x"));
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+
+        buffer.update(newRow("3", "a", "x"));
+        Sent batch = nextSent();
+        assertEquals(3, batch.rows.size());
+        assertEquals(0, buffer.getBufferedRowCount());
+
+        batch.succeed();
+        buffer.close();
+    }
+
+    @Test
+    public void testHoldsBackRowsInFlight()
+        throws Exception
+    {
+        ETDataExtensionWriteBuffer buffer = newBuffer(100);
+        buffer.setFlushInterval(10);
+        buffer.update(newRow("1", "a", "1"));
+        Sent first = nextSent();
+
+        //
+        // Later writes wait (merged) for the batch in flight,
+        // while other rows go ahead:
+        //
+
+        CompletableFuture<ETResult<ETDataExtensionRow>> future =
+                buffer.update(newRow("1", "a", "2"));
+        buffer.update(newRow("1", "a", "3"));
+        buffer.update(newRow("2", "a", "1"));
+        Sent second = nextSent();
+        assertEquals(1, second.rows.size());
+        assertEquals("2", second.rows.get(0).getColumn("id"));
+        assertEquals(1, buffer.getBufferedRowCount());
+        second.succeed();
+
+        first.succeed();
+        Sent third = nextSent();
+        assertEquals(1, third.rows.size());
+        assertEquals("1", third.rows.get(0).getColumn("id"));
+        assertEquals("3", third.rows.get(0).getColumn("a"));
+
+        third.succeed();
+        assertEquals(ETResult.Status.OK, future.get(5, TimeUnit.SECONDS).getStatus());
+        buffer.close();
+    }
+
+    @Test
+    public void testInsertAfterUpdateIsSentAfterIt()
+        throws Exception
+    {
+        ETDataExtensionWriteBuffer buffer = newBuffer(100);
+        buffer.setFlushInterval(10);
+        buffer.update(newRow("1", "a", "x"));
+        CompletableFuture<ETResult<ETDataExtensionRow>> inserted =
+                buffer.insert(newRow("1", "b", "y"));
+        assertEquals(2, buffer.getBufferedRowCount());
+
+        Sent update = nextSent();
+        assertFalse(update.inserting);
+        assertEquals("x", update.rows.get(0).getColumn("a"));
+        assertNull(update.rows.get(0).getColumn("b"));
+
+        // not until the update completes:
+        assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+        update.succeed();
+
+        Sent insert = nextSent();
+        assertTrue(insert.inserting);
+        assertEquals("y", insert.rows.get(0).getColumn("b"));
+        assertNull(insert.rows.get(0).getColumn("a"));
+
+        insert.succeed();
+        assertEquals(ETResult.Status.OK, inserted.get(5, TimeUnit.SECONDS).getStatus());
+        buffer.close();
+    }
+
+    @Test
+    public void testCloseSendsRowsHeldBack()
+        throws Exception
+    {
+        ETDataExtensionWriteBuffer buffer = newBuffer(100);
+        buffer.update(newRow("1", "a", "1"));
+        buffer.flush();
+        final Sent first = nextSent();
+        CompletableFuture<ETResult<ETDataExtensionRow>> future =
+                buffer.update(newRow("1", "a", "2"));
+
+        Thread completer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    first.succeed();
+                    nextSent().succeed();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        completer.start();
+        buffer.close();
+        completer.join();
+
+        assertTrue(future.isDone());
+        assertEquals(ETResult.Status.OK, future.get().getStatus());
+        assertEquals(2, buffer.getProgress().getBatchesSent());
+        assertTrue(buffer.getProgress().isDone());
+    }
+}
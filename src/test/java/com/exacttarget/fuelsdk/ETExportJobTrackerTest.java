@@ -0,0 +1,120 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETExportJobTrackerTest {
+    private static ETExportJob job() {
+        return new ETExportJob("foo", "foo.csv", "job-1", "req-1");
+    }
+
+    @Test
+    public void testPending() {
+        ETExportJob job = job();
+        ETExportJobTracker.update(job, 200, "OK",
+                "{\"status\":{\"requestStatus\":\"Pending\",\"hasErrors\":false},\"requestId\":\"job-1\"}");
+        assertFalse(job.isDone());
+        assertEquals("Pending", job.getStatus());
+        assertEquals(1, job.getPollCount());
+    }
+
+    @Test
+    public void testComplete()
+        throws InterruptedException, ExecutionException
+    {
+        ETExportJob job = job();
+        ETExportJobTracker.update(job, 200, "OK",
+                "{\"status\":{\"requestStatus\":\"Complete\",\"hasErrors\":false}}");
+        assertTrue(job.isDone());
+        assertSame(job, job.getFuture().get());
+
+        job = job();
+        ETExportJobTracker.update(job, 200, "OK", "{\"status\":\"Completed\"}");
+        assertSame(job, job.getFuture().get());
+    }
+
+    @Test
+    public void testFailed() {
+        ETExportJob job = job();
+        ETExportJobTracker.update(job, 200, "OK",
+                "{\"status\":{\"requestStatus\":\"Complete\",\"hasErrors\":true,\"resultStatus\":\"bad file\"}}");
+        assertTrue(job.getFuture().isCompletedExceptionally());
+
+        job = job();
+        ETExportJobTracker.update(job, 404, "Not Found", "{}");
+        assertTrue(job.getFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testRetried() {
+        ETExportJob job = job();
+        ETExportJobTracker.update(job, 503, "Service Unavailable", "");
+        ETExportJobTracker.update(job, 429, "Too Many Requests", "");
+        ETExportJobTracker.update(job, 200, "OK", "not json");
+        assertFalse(job.isDone());
+        assertEquals(3, job.getPollCount());
+    }
+
+    @Test
+    public void testStopsPollingWhenIdle()
+        throws ETSdkException
+    {
+        // no client needed: nothing is due before the job completes
+        ETExportJobTracker tracker = new ETExportJobTracker(null);
+        tracker.setInitialPollInterval(60000);
+        assertFalse(tracker.isPolling());
+
+        ETExportJob job = job();
+        tracker.track(job);
+        assertTrue(tracker.isPolling());
+        tracker.poll();
+        assertTrue(tracker.isPolling());
+
+        job.getFuture().cancel(false);
+        tracker.poll();
+        assertEquals(0, tracker.getPendingJobCount());
+        assertFalse(tracker.isPolling());
+
+        tracker.track(job());
+        assertTrue(tracker.isPolling());
+        tracker.shutdown();
+        assertFalse(tracker.isPolling());
+    }
+}
@@ -0,0 +1,133 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETFileWatermarkStoreTest {
+    private Path directory = null;
+    private Path path = null;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("watermarks");
+        path = directory.resolve("watermarks.properties");
+    }
+
+    @After
+    public void tearDown()
+        throws IOException
+    {
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } finally {
+            files.close();
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testMissingWatermark()
+        throws ETSdkException
+    {
+        ETFileWatermarkStore store = new ETFileWatermarkStore(path);
+        assertNull(store.getWatermark("ETEmail"));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testSetWatermark()
+        throws ETSdkException
+    {
+        ETFileWatermarkStore store = new ETFileWatermarkStore(path);
+        store.setWatermark("ETEmail", new Date(1000));
+        store.setWatermark("ETList", new Date(2000));
+        store.setWatermark("ETEmail", new Date(3000));
+        assertEquals(new Date(3000), store.getWatermark("ETEmail"));
+        assertEquals(new Date(2000), store.getWatermark("ETList"));
+
+        // a new store reads the persisted watermarks:
+        ETFileWatermarkStore reloaded = new ETFileWatermarkStore(path);
+        assertEquals(new Date(3000), reloaded.getWatermark("ETEmail"));
+        assertEquals(new Date(2000), reloaded.getWatermark("ETList"));
+    }
+
+    @Test
+    public void testClearWatermark()
+        throws ETSdkException
+    {
+        ETFileWatermarkStore store = new ETFileWatermarkStore(path);
+        store.setWatermark("ETEmail", new Date(1000));
+        store.setWatermark("ETEmail", null);
+        assertNull(store.getWatermark("ETEmail"));
+        assertNull(new ETFileWatermarkStore(path).getWatermark("ETEmail"));
+    }
+
+    @Test
+    public void testNoTemporaryFilesLeft()
+        throws ETSdkException, IOException
+    {
+        ETFileWatermarkStore store = new ETFileWatermarkStore(path);
+        for (int i = 0; i < 10; i++) {
+            store.setWatermark("ETFolder", new Date(i));
+        }
+        int count = 0;
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                assertEquals(path, file);
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+        assertEquals(1, count);
+    }
+}
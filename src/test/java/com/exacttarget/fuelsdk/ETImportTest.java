@@ -0,0 +1,102 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETImportTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testParseRecords() {
+        ETImport.RecordParser parser = newParser("a,b,c\r\n1,,\"x, \"\"y\"\"\"\n\n2,\"line\nbreak\",é");
+        assertEquals(Arrays.asList("a", "b", "c"), parser.next());
+        assertEquals(Arrays.asList("1", "", "x, \"y\""), parser.next());
+        assertEquals(Arrays.asList(""), parser.next());
+        assertEquals(Arrays.asList("2", "line\nbreak", "é"), parser.next());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void testParseTrailingDelimiter() {
+        ETImport.RecordParser parser = newParser("1,2,\n3,4,");
+        assertEquals(Arrays.asList("1", "2", ""), parser.next());
+        assertEquals(Arrays.asList("3", "4", ""), parser.next());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void testFindRecordEnd()
+        throws IOException
+    {
+        String data = "id,text\n1,\"a\nb\"\n2,c\n";
+        Path path = Files.createTempFile("import", ".csv");
+        try {
+            Files.write(path, data.getBytes(UTF8));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                assertEquals(8, ETImport.findRecordEnd(channel, 0, 0, size, '"'));
+                // the line break in the quoted field isn't a record boundary:
+                assertEquals(16, ETImport.findRecordEnd(channel, 8, 12, size, '"'));
+                assertEquals(size, ETImport.findRecordEnd(channel, 16, 17, size, '"'));
+                assertEquals(size, ETImport.findRecordEnd(channel, 16, 100, size, '"'));
+                // unless fields can't be quoted:
+                assertEquals(13, ETImport.findRecordEnd(channel, 8, 12, size, ETImport.NO_QUOTE));
+            } finally {
+                channel.close();
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static ETImport.RecordParser newParser(String data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(UTF8));
+        return new ETImport.RecordParser(buffer, (byte) ',', '"', UTF8);
+    }
+}
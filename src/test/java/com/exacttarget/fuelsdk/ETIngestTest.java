@@ -0,0 +1,134 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETIngestTest {
+    private static ETIngest.Group newGroup() {
+        return new ETIngest.Group() {
+            public void batchDone(int rowsSucceeded, int rowsFailed) {
+            }
+        };
+    }
+
+    private static ETDataExtensionRow newRow(String value) {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setColumn("id", value);
+        return row;
+    }
+
+    private static List<ETIngest.Batch> cut(ETIngest.Batcher batcher,
+                                            List<ETDataExtensionRow> rows,
+                                            List<ETIngest.Group> groups)
+    {
+        List<ETIngest.Batch> batches = new ArrayList<ETIngest.Batch>();
+        for (int i = 0; i < rows.size(); i++) {
+            ETIngest.Batch batch = batcher.add(rows.get(i),
+                                               groups != null ? groups.get(i) : null);
+            if (batch != null) {
+                batches.add(batch);
+            }
+        }
+        ETIngest.Batch batch = batcher.finish();
+        if (batch != null) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    @Test
+    public void testCutByCount() {
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(newRow(Integer.toString(i)));
+        }
+        List<ETIngest.Batch> batches =
+                cut(new ETIngest.Batcher(3, Integer.MAX_VALUE), rows, null);
+        assertEquals(3, batches.size());
+        assertEquals(3, batches.get(0).getRows().size());
+        assertEquals(3, batches.get(1).getRows().size());
+        assertEquals(1, batches.get(2).getRows().size());
+        assertSame(rows.get(6), batches.get(2).getRows().get(0));
+        assertNull(new ETIngest.Batcher(3, Integer.MAX_VALUE).finish());
+    }
+
+    @Test
+    public void testCutBySize() {
+        int rowBytes = ETIngest.estimateSize(newRow("0"));
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(newRow(Integer.toString(i)));
+        }
+        // a large row goes in a batch of its own:
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5 * rowBytes; i++) {
+            value.append('x');
+        }
+        rows.add(2, newRow(value.toString()));
+        List<ETIngest.Batch> batches =
+                cut(new ETIngest.Batcher(100, 2 * rowBytes), rows, null);
+        assertEquals(4, batches.size());
+        assertEquals(2, batches.get(0).getRows().size());
+        assertEquals(1, batches.get(1).getRows().size());
+        assertSame(rows.get(2), batches.get(1).getRows().get(0));
+        assertEquals(2, batches.get(2).getRows().size());
+        assertEquals(1, batches.get(3).getRows().size());
+    }
+
+    @Test
+    public void testCutAtGroupBoundaries() {
+        ETIngest.Group group1 = newGroup();
+        ETIngest.Group group2 = newGroup();
+        List<ETDataExtensionRow> rows = new ArrayList<ETDataExtensionRow>();
+        List<ETIngest.Group> groups = new ArrayList<ETIngest.Group>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(newRow(Integer.toString(i)));
+            groups.add(i < 2 ? group1 : group2);
+        }
+        List<ETIngest.Batch> batches =
+                cut(new ETIngest.Batcher(4, Integer.MAX_VALUE), rows, groups);
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).getRows().size());
+        assertSame(group1, batches.get(0).getGroup());
+        assertEquals(3, batches.get(1).getRows().size());
+        assertSame(group2, batches.get(1).getGroup());
+    }
+}
@@ -0,0 +1,163 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETRowHashStoreTest {
+    private static final List<String> KEY = Arrays.asList("Region", "Id");
+
+    private Path directory = null;
+    private Path path = null;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("hashes");
+        path = directory.resolve("hashes.bin");
+    }
+
+    @After
+    public void tearDown()
+        throws IOException
+    {
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } finally {
+            files.close();
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRoundTrip()
+        throws ETSdkException
+    {
+        ETRowHashStore store = new ETRowHashStore(path);
+        assertFalse(store.exists());
+        assertEquals(0, store.load(KEY).size());
+
+        ETRowHashStore.Writer writer = store.openWriter(KEY);
+        for (int i = 1; i <= 5000; i++) {
+            writer.write(i, i * 10, new String[] { "EU", "id" + i });
+        }
+        writer.commit();
+        assertTrue(store.exists());
+
+        ETRowHashStore.Table table = store.load(KEY);
+        assertEquals(5000, table.size());
+        assertEquals(420, table.getValue(table.find(42)));
+        assertEquals(-1, table.find(5001));
+
+        ETRowHashStore.Reader reader = store.openReader(KEY);
+        assertTrue(reader.next());
+        assertEquals(1, reader.getKeyHash());
+        assertArrayEquals(new String[] { "EU", "id1" }, reader.getKeyValues());
+        reader.close();
+    }
+
+    @Test
+    public void testAbortKeepsStore()
+        throws ETSdkException, IOException
+    {
+        ETRowHashStore store = new ETRowHashStore(path);
+        ETRowHashStore.Writer writer = store.openWriter(KEY);
+        writer.write(1, 1, new String[] { "EU", "1" });
+        writer.commit();
+
+        writer = store.openWriter(KEY);
+        writer.write(2, 2, new String[] { "EU", "2" });
+        writer.abort();
+
+        ETRowHashStore.Table table = store.load(KEY);
+        assertEquals(1, table.size());
+        assertEquals(-1, table.find(2));
+        int count = 0;
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+        assertEquals(1, count);
+    }
+
+    @Test(expected = ETSdkException.class)
+    public void testDifferentPrimaryKey()
+        throws ETSdkException
+    {
+        ETRowHashStore store = new ETRowHashStore(path);
+        store.openWriter(KEY).commit();
+        store.load(Arrays.asList("Id"));
+    }
+
+    @Test
+    public void testHashRow() {
+        ETDataExtensionRow row1 = new ETDataExtensionRow();
+        row1.setColumn("Id", "1");
+        row1.setColumn("Name", "Ann");
+        ETDataExtensionRow row2 = new ETDataExtensionRow();
+        row2.setColumn("name", "Ann");
+        row2.setColumn("ID", "1");
+        row2.setColumn("Comment", null);
+        // the order columns are set in, their case, and null
+        // columns don't matter:
+        assertEquals(ETHashSync.hashRow(row1), ETHashSync.hashRow(row2));
+
+        row2.setColumn("Name", "Anne");
+        assertTrue(ETHashSync.hashRow(row1) != ETHashSync.hashRow(row2));
+
+        // values can't run into each other:
+        assertTrue(ETHashSync.hashKey(new String[] { "ab", "c" })
+                != ETHashSync.hashKey(new String[] { "a", "bc" }));
+    }
+}
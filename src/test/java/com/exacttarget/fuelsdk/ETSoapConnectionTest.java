@@ -0,0 +1,102 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.message.Message;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ETSoapConnectionTest {
+    private static final String ENDPOINT =
+            "https://webservice.exacttarget.com/Service.asmx";
+
+    @Test
+    public void testSharedRuntime()
+        throws ETSdkException
+    {
+        ETSoapConnection connection1 = new ETSoapConnection(ENDPOINT);
+        ETSoapConnection connection2 = new ETSoapConnection(ENDPOINT + "?2");
+        Client client1 = ClientProxy.getClient(connection1.getSoap());
+        Client client2 = ClientProxy.getClient(connection2.getSoap());
+        assertNotSame(client1, client2);
+        assertSame(client1.getEndpoint(), client2.getEndpoint());
+        assertSame(client1.getEndpoint().getService().getDataBinding(),
+                   client2.getEndpoint().getService().getDataBinding());
+        assertEquals(ENDPOINT,
+                     client1.getRequestContext().get(Message.ENDPOINT_ADDRESS));
+        assertEquals(ENDPOINT + "?2",
+                     client2.getRequestContext().get(Message.ENDPOINT_ADDRESS));
+    }
+
+    @Test
+    public void testInterceptorsArePerConnection()
+        throws ETSdkException
+    {
+        ETSoapConnection connection1 = new ETSoapConnection(ENDPOINT);
+        ETSoapConnection connection2 = new ETSoapConnection(ENDPOINT);
+        Client client1 = ClientProxy.getClient(connection1.getSoap());
+        Client client2 = ClientProxy.getClient(connection2.getSoap());
+        int endpointInterceptors =
+                client1.getEndpoint().getInInterceptors().size();
+        int clientInterceptors = client2.getInInterceptors().size();
+        connection1.setCompression(true);
+        assertEquals(endpointInterceptors,
+                     client1.getEndpoint().getInInterceptors().size());
+        assertEquals(clientInterceptors, client2.getInInterceptors().size());
+        assertTrue(connection1.getCompression());
+        assertFalse(connection2.getCompression());
+    }
+
+    @Test
+    public void testRuntimeCreatesProxiesOnSharedEndpoint()
+        throws ETSdkException
+    {
+        //
+        // Each proxy is a client of its own on the
+        // endpoint the runtime built once:
+        //
+
+        ETSoapRuntime runtime = new ETSoapRuntime();
+        Client client1 = ClientProxy.getClient(runtime.createSoap());
+        Client client2 = ClientProxy.getClient(runtime.createSoap());
+        assertNotSame(client1, client2);
+        assertSame(client1.getEndpoint(), client2.getEndpoint());
+        assertNotSame(client1.getRequestContext(), client2.getRequestContext());
+    }
+}
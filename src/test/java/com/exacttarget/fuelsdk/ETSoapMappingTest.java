@@ -0,0 +1,124 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.exacttarget.fuelsdk.internal.DataExtensionObject;
+import com.exacttarget.fuelsdk.internal.Email;
+import com.exacttarget.fuelsdk.internal.EmailType;
+import com.exacttarget.fuelsdk.internal.Subscriber;
+import com.exacttarget.fuelsdk.internal.SubscriberStatus;
+
+public class ETSoapMappingTest {
+    @Test
+    public void testMappingIsCached() {
+        ETSoapMapping mapping1 = ETSoapMapping.getMapping(ETSubscriber.class,
+                                                          Subscriber.class);
+        ETSoapMapping mapping2 = ETSoapMapping.getMapping(ETSubscriber.class,
+                                                          Subscriber.class);
+        assertSame(mapping1, mapping2);
+    }
+
+    @Test
+    public void testSubscriberToInternal()
+        throws ETSdkException
+    {
+        ETSubscriber subscriber = new ETSubscriber();
+        subscriber.setId("42");
+        subscriber.setKey("key");
+        subscriber.setEmailAddress("test@example.com");
+        subscriber.setStatus(ETSubscriber.Status.ACTIVE);
+        subscriber.setPreferredEmailType(ETEmail.Type.HTML);
+        Subscriber internalSubscriber = (Subscriber) subscriber.toInternal();
+        assertEquals(new Integer(42), internalSubscriber.getId());
+        assertEquals("key", internalSubscriber.getSubscriberKey());
+        assertEquals("test@example.com", internalSubscriber.getEmailAddress());
+        assertEquals(SubscriberStatus.ACTIVE, internalSubscriber.getStatus());
+        assertEquals(EmailType.HTML, internalSubscriber.getEmailTypePreference());
+    }
+
+    @Test
+    public void testSubscriberFromInternal()
+        throws ETSdkException
+    {
+        Subscriber internalSubscriber = new Subscriber();
+        internalSubscriber.setId(42);
+        internalSubscriber.setSubscriberKey("key");
+        internalSubscriber.setStatus(SubscriberStatus.UNSUBSCRIBED);
+        ETSubscriber subscriber = new ETSubscriber();
+        subscriber.fromInternal(internalSubscriber);
+        assertEquals("42", subscriber.getId());
+        assertEquals("key", subscriber.getKey());
+        assertEquals(ETSubscriber.Status.UNSUBSCRIBED, subscriber.getStatus());
+        assertNull(subscriber.getEmailAddress());
+    }
+
+    @Test
+    public void testDataExtensionRowRoundTrip()
+        throws ETSdkException
+    {
+        ETDataExtensionRow row = new ETDataExtensionRow();
+        row.setDataExtensionKey("key");
+        row.setColumn("a", "1");
+        row.setColumn("b", "2");
+        DataExtensionObject internalRow = (DataExtensionObject) row.toInternal();
+        assertEquals(2, internalRow.getProperties().getProperty().size());
+        ETDataExtensionRow convertedRow = new ETDataExtensionRow();
+        convertedRow.fromInternal(internalRow);
+        assertEquals("1", convertedRow.getColumn("a"));
+        assertEquals("2", convertedRow.getColumn("b"));
+    }
+
+    @Test
+    public void testEmailRoundTrip()
+        throws ETSdkException
+    {
+        ETEmail email = new ETEmail();
+        email.setKey("key");
+        email.setFolderId(7);
+        email.setIsHtmlPaste(true);
+        Email internalEmail = (Email) email.toInternal();
+        assertEquals("key", internalEmail.getCustomerKey());
+        assertEquals(new Integer(7), internalEmail.getCategoryID());
+        ETEmail convertedEmail = new ETEmail();
+        convertedEmail.fromInternal(internalEmail);
+        assertEquals("key", convertedEmail.getKey());
+        assertEquals(new Integer(7), convertedEmail.getFolderId());
+        assertTrue(convertedEmail.getIsHtmlPaste());
+    }
+}
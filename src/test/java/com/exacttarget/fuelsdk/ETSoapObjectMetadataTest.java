@@ -0,0 +1,100 @@
+//
+// This file is part of the Fuel Java client library.
+//
+// Copyright (c) 2013, 2014, 2015, ExactTarget, Inc.
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions
+// are met:
+//
+// * Redistributions of source code must retain the above copyright
+// notice, this list of conditions and the following disclaimer.
+//
+// * Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// * Neither the name of ExactTarget, Inc. nor the names of its
+// contributors may be used to endorse or promote products derived
+// from this software without specific prior written permission.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+// "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+// LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+// A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+// HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+// SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+// LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+// DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+// THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+// (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+// OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+package com.exacttarget.fuelsdk;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.exacttarget.fuelsdk.internal.DataExtension;
+
+public class ETSoapObjectMetadataTest {
+    @Test
+    public void testMetadataIsCached()
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata metadata1 =
+                ETSoapObjectMetadata.getMetadata(ETDataExtension.class);
+        ETSoapObjectMetadata metadata2 =
+                ETSoapObjectMetadata.getMetadata(ETDataExtension.class);
+        assertSame(metadata1, metadata2);
+        assertEquals(DataExtension.class, metadata1.getInternalType());
+        assertSame(ETSoapMapping.getMapping(ETDataExtension.class,
+                                            DataExtension.class),
+                   metadata1.getMapping());
+    }
+
+    @Test
+    public void testInternalProperty()
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata metadata =
+                ETSoapObjectMetadata.getMetadata(ETDataExtension.class);
+        assertEquals("CustomerKey", metadata.getInternalProperty("key"));
+        assertEquals("CategoryID", metadata.getInternalProperty("folderId"));
+        assertEquals("bogus", metadata.getInternalProperty("bogus"));
+    }
+
+    @Test
+    public void testRetrievableProperties()
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata metadata =
+                ETSoapObjectMetadata.getMetadata(ETDataExtension.class);
+        List<String> all = metadata.getInternalProperties();
+        List<String> retrievable = metadata.getRetrievableProperties();
+        assertTrue(all.contains("Fields"));
+        assertFalse(retrievable.contains("Fields"));
+        assertTrue(retrievable.contains("CustomerKey"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRetrievablePropertiesAreImmutable()
+        throws ETSdkException
+    {
+        ETSoapObjectMetadata.getMetadata(ETDataExtension.class)
+                .getRetrievableProperties().add("Foo");
+    }
+
+    @Test
+    public void testConvertersRegisteredOnce() {
+        assertSame(ETSoapObject.getConvertUtils(),
+                   ETSoapObject.getConvertUtils());
+        assertNotNull(ETSoapObject.getConvertUtils()
+                .lookup(ETSubscriber.Status.class));
+    }
+}